@@ -0,0 +1,143 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Rules that decide which subdirectories of a directory tree are not descended into while
+ * it is walked, so that none of the files or directories beneath them are ever listed.
+ * A directory is pruned if it is deeper than the maximum depth, or if it matches any of
+ * the excluded globs. A glob is matched against the name of the directory, or against its
+ * path relative to the root of the tree if the glob contains a <tt>/</tt>.
+ * The root of the tree is never pruned.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class DirectoryPruning {
+
+    private final List<String> excludedGlobs;
+    private final List<PathMatcher> nameMatchers;
+    private final List<PathMatcher> pathMatchers;
+    private int maxDepth;
+
+    public DirectoryPruning() {
+        excludedGlobs = new ArrayList<>();
+        nameMatchers = new ArrayList<>();
+        pathMatchers = new ArrayList<>();
+        maxDepth = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Adds a glob of the directories to exclude, with the syntax of {@link FileSystem#getPathMatcher}
+     *
+     * @param glob The glob, for instance <tt>.git</tt>, <tt>node_modules</tt> or <tt>photos/thumbnails</tt>
+     *
+     * @throws IllegalArgumentException If the glob is not valid
+     */
+    public void addExcludedGlob(String glob) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        if (glob.indexOf('/') == - 1)
+            nameMatchers.add(matcher);
+        else
+            pathMatchers.add(matcher);
+        excludedGlobs.add(glob);
+    }
+
+    public List<String> getExcludedGlobs() {
+        return Collections.unmodifiableList(excludedGlobs);
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Sets the maximum depth of the directories to descend into. The subdirectories of the
+     * root are at depth 1, so a maximum depth of 0 only lists the files in the root.
+     *
+     * @param maxDepth The maximum depth, not less than zero
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 0)
+            throw new IllegalArgumentException("Max depth must not be less than zero");
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @return {@code true} if no directory is ever pruned, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return maxDepth == Integer.MAX_VALUE && excludedGlobs.isEmpty();
+    }
+
+    /**
+     * Checks whether a directory must not be descended into. The relative path of the directory
+     * is only computed if there is any glob that matches paths.
+     *
+     * @param root      The root of the directory tree
+     * @param directory The directory, under the root
+     * @param depth     The number of names of the directory path relative to the root
+     *
+     * @return {@code true} if the directory is pruned, {@code false} otherwise
+     */
+    public boolean prunes(Path root, Path directory, int depth) {
+        if (depth == 0)
+            return false;
+        if (depth > maxDepth)
+            return true;
+        if (! nameMatchers.isEmpty()) {
+            Path name = directory.getFileName();
+            for (PathMatcher matcher : nameMatchers)
+                if (matcher.matches(name))
+                    return true;
+        }
+        if (! pathMatchers.isEmpty()) {
+            Path relativePath = root.relativize(directory);
+            for (PathMatcher matcher : pathMatchers)
+                if (matcher.matches(relativePath))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a directory must not be descended into, computing its depth from its path
+     *
+     * @param root      The root of the directory tree
+     * @param directory The directory, under the root
+     *
+     * @return {@code true} if the directory is pruned, {@code false} otherwise
+     */
+    public boolean prunes(Path root, Path directory) {
+        if (isEmpty() || directory.equals(root))
+            return false;
+        return prunes(root, directory, root.relativize(directory).getNameCount());
+    }
+
+    /**
+     * @return The rules as text, that is the same for any {@code DirectoryPruning} with the same rules
+     */
+    @Override
+    public String toString() {
+        List<String> sortedGlobs = new ArrayList<>(excludedGlobs);
+        Collections.sort(sortedGlobs);
+        return "max depth " + maxDepth + ", excluded " + sortedGlobs;
+    }
+}
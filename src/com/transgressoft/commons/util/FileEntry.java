@@ -0,0 +1,120 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+
+/**
+ * Immutable representation of a regular file found while scanning a directory tree,
+ * carrying the attributes read during the walk so that they don't have to be
+ * requested to the file system again.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class FileEntry {
+
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+    private final Object fileKey;
+    private final boolean hidden;
+    private String name;
+
+    /**
+     * Constructor from the attributes read during the walk
+     *
+     * @param path       The {@code Path} of the file
+     * @param attributes The {@code BasicFileAttributes} of the file
+     * @param hidden     Whether the file is considered hidden
+     */
+    public FileEntry(Path path, BasicFileAttributes attributes, boolean hidden) {
+        this(path, attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey(), hidden);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param path         The {@code Path} of the file
+     * @param size         The size of the file in bytes
+     * @param lastModified The last modified time in milliseconds since the epoch
+     * @param fileKey      The object that uniquely identifies the file, or {@code null} if not available
+     * @param hidden       Whether the file is considered hidden
+     */
+    public FileEntry(Path path, long size, long lastModified, Object fileKey, boolean hidden) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.fileKey = fileKey;
+        this.hidden = hidden;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return The name of the file, that is computed from its path only the first time
+     */
+    public String getName() {
+        String fileName = name;
+        if (fileName == null)
+            name = fileName = path.getFileName().toString();
+        return fileName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public Object getFileKey() {
+        return fileKey;
+    }
+
+    public boolean isHidden() {
+        return hidden;
+    }
+
+    public File toFile() {
+        return path.toFile();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        return path.equals(((FileEntry) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path.toString() + " [" + size + " B]";
+    }
+}
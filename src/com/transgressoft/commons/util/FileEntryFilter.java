@@ -0,0 +1,51 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+/**
+ * A filter for {@link FileEntry} objects. Unlike {@link java.io.FileFilter} it is evaluated
+ * against the attributes already read during the directory walk, so implementations
+ * should not access the file system.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+@FunctionalInterface
+public interface FileEntryFilter {
+
+    /**
+     * Tests whether or not the given file entry should be included
+     *
+     * @param entry The {@code FileEntry} to be tested
+     *
+     * @return {@code true} if and only if {@code entry} should be included
+     */
+    boolean accept(FileEntry entry);
+
+    /**
+     * Tells if a file with the given extension may be accepted, allowing to discard files
+     * before reading them into a {@link FileEntry}. Returns {@code true} unless the filter
+     * rejects every file with that extension.
+     *
+     * @param extension The extension of a file without the dot, or {@code null} if its name has no dot
+     *
+     * @return {@code false} if no file with the given extension is accepted, {@code true} otherwise
+     */
+    default boolean acceptsExtension(String extension) {
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.nio.file.*;
+
+/**
+ * A collection of files whose attributes can be read by the position of each
+ * file in it, without materialising a {@link FileEntry} until it is requested.
+ * The directory and the extension of each file are given by ids, so that the
+ * files can be grouped by them reading each directory path and extension once.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public interface FileIndex {
+
+    /**
+     * The extension id of the files whose name has no dot
+     */
+    int NO_EXTENSION = - 1;
+
+    /**
+     * @return The number of files in the index
+     */
+    int size();
+
+    /**
+     * @param index The position of a file, between 0 and {@code size() - 1}
+     *
+     * @return The size in bytes of the file
+     */
+    long sizeOf(int index);
+
+    /**
+     * @param index The position of a file, between 0 and {@code size() - 1}
+     *
+     * @return The last modified time of the file in milliseconds since the epoch
+     */
+    long lastModifiedOf(int index);
+
+    /**
+     * @param index The position of a file, between 0 and {@code size() - 1}
+     *
+     * @return The {@code FileEntry} of the file
+     */
+    FileEntry entry(int index);
+
+    /**
+     * @return The number of directories of the files in the index
+     */
+    int directories();
+
+    /**
+     * @param index The position of a file, between 0 and {@code size() - 1}
+     *
+     * @return The id of the directory of the file, between 0 and {@code directories() - 1}
+     */
+    int directoryOf(int index);
+
+    /**
+     * @param directory The id of a directory, between 0 and {@code directories() - 1}
+     *
+     * @return The {@code Path} of the directory
+     */
+    Path directoryPath(int directory);
+
+    /**
+     * @return The number of different extensions of the files in the index
+     */
+    int extensions();
+
+    /**
+     * @param index The position of a file, between 0 and {@code size() - 1}
+     *
+     * @return The id of the extension of the file, between 0 and {@code extensions() - 1},
+     *         or {@link #NO_EXTENSION} if its name has no dot
+     */
+    int extensionIdOf(int index);
+
+    /**
+     * @param extension The id of an extension, between 0 and {@code extensions() - 1}
+     *
+     * @return The extension, as it is in the names of the files, without the dot
+     */
+    String extensionName(int extension);
+}
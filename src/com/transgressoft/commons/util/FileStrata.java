@@ -0,0 +1,242 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Groups the files of a directory tree in strata, either by their directory up to a given depth or by
+ * their extension, and counts the files and the bytes in each stratum. A directory at the given depth
+ * or above is a stratum with the files in it and in all its subdirectories, so that a depth of 1 groups
+ * the files by top-level directory, with the files in the root directory in a stratum of their own.
+ * Extensions are compared ignoring the case, and the files without extension are a stratum too.
+ * <p>
+ * The strata of the files are given by their position in a {@link FileIndex}, and are usually gathered
+ * while the directory tree is scanned by {@link FilesInDirectory}, so that no other pass over the files is
+ * needed. Files can be added concurrently.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class FileStrata {
+
+    /**
+     * The stratum of the files that are not in any stratum
+     */
+    public static final int NONE = - 1;
+
+    private final boolean byExtension;
+    private final int directoryDepth;
+    private final Map<String, Integer> stratumIds;
+    private final List<String> stratumNames;
+    private int[] stratumFiles;
+    private long[] stratumBytes;
+    private int[] fileStrata;
+    private int fileCount;
+
+    private FileStrata(boolean byExtension, int directoryDepth) {
+        this.byExtension = byExtension;
+        this.directoryDepth = directoryDepth;
+        stratumIds = new HashMap<>();
+        stratumNames = new ArrayList<>();
+        stratumFiles = new int[16];
+        stratumBytes = new long[16];
+        fileStrata = new int[64];
+    }
+
+    /**
+     * Creates strata of the files by the directory where they are, up to a depth
+     *
+     * @param directoryDepth The depth of the directories of the strata, greater than zero
+     *
+     * @return The empty {@code FileStrata}
+     */
+    public static FileStrata byDirectory(int directoryDepth) {
+        if (directoryDepth < 1)
+            throw new IllegalArgumentException("Directory depth must be greater than zero");
+        return new FileStrata(false, directoryDepth);
+    }
+
+    /**
+     * Creates strata of the files by their extension
+     *
+     * @return The empty {@code FileStrata}
+     */
+    public static FileStrata byExtension() {
+        return new FileStrata(true, 0);
+    }
+
+    /**
+     * @return Empty strata of the files with the same rules as these
+     */
+    public FileStrata emptyCopy() {
+        return new FileStrata(byExtension, directoryDepth);
+    }
+
+    public boolean isByExtension() {
+        return byExtension;
+    }
+
+    public int getDirectoryDepth() {
+        return directoryDepth;
+    }
+
+    /**
+     * Builds the key of the stratum of a directory: the names of its path relative to the
+     * root, up to the depth of the strata, separated by <tt>/</tt>
+     *
+     * @param root      The root of the directory tree
+     * @param directory The directory, under the root
+     *
+     * @return The key of the stratum
+     */
+    public String directoryKey(Path root, Path directory) {
+        Path relativePath = root.relativize(directory);
+        StringBuilder key = new StringBuilder();
+        int depth = relativePath.toString().isEmpty() ? 0 : Math.min(relativePath.getNameCount(), directoryDepth);
+        for (int name = 0; name < depth; name++) {
+            if (name > 0)
+                key.append('/');
+            key.append(relativePath.getName(name));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Gives the id of the stratum with a key, creating it if there was none
+     *
+     * @param key The key of the stratum, a directory path or an extension
+     *
+     * @return The id of the stratum
+     */
+    public synchronized int stratum(String key) {
+        Integer id = stratumIds.get(key);
+        if (id == null) {
+            id = stratumNames.size();
+            stratumIds.put(key, id);
+            stratumNames.add(key);
+            if (id == stratumFiles.length) {
+                stratumFiles = Arrays.copyOf(stratumFiles, id * 2);
+                stratumBytes = Arrays.copyOf(stratumBytes, id * 2);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Adds the files of a directory, that take consecutive positions in the {@link FileIndex}
+     *
+     * @param firstFile         The position of the first file
+     * @param entries           The {@code FileEntry} objects of the files
+     * @param directoryStratum  The stratum of the directory, only used if the strata are by directory
+     */
+    public synchronized void addFiles(int firstFile, List<FileEntry> entries, int directoryStratum) {
+        for (int i = 0; i < entries.size(); i++) {
+            FileEntry entry = entries.get(i);
+            int stratum = byExtension ? stratum(extensionKey(entry.getName())) : directoryStratum;
+            setStratum(firstFile + i, stratum, entry.getSize());
+        }
+    }
+
+    /**
+     * Adds all the eligible files of a {@link FileIndex}, grouping them by the ids of their directories or
+     * extensions, so that the key of each stratum is worked out once and no entry is read
+     *
+     * @param files         The {@code FileIndex}
+     * @param eligible      The condition that a file must satisfy to be in a stratum, given its position
+     * @param rootDirectory The root of the directory tree of the files
+     */
+    public synchronized void addAll(FileIndex files, IntPredicate eligible, Path rootDirectory) {
+        Path root = rootDirectory.toAbsolutePath().normalize();
+        int[] strataOfIds = new int[byExtension ? files.extensions() + 1 : files.directories()];
+        Arrays.fill(strataOfIds, NONE);
+        for (int index = 0; index < files.size(); index++) {
+            int stratum = NONE;
+            if (eligible.test(index)) {
+                int id = byExtension ? files.extensionIdOf(index) + 1 : files.directoryOf(index);     // NO_EXTENSION goes first
+                if (strataOfIds[id] == NONE) {
+                    if (byExtension)
+                        strataOfIds[id] = stratum(id == 0 ? "" : files.extensionName(id - 1).toLowerCase());
+                    else
+                        strataOfIds[id] = stratum(directoryKey(root, files.directoryPath(id).toAbsolutePath().normalize()));
+                }
+                stratum = strataOfIds[id];
+            }
+            setStratum(index, stratum, files.sizeOf(index));
+        }
+    }
+
+    private void setStratum(int file, int stratum, long size) {
+        if (file >= fileStrata.length)
+            fileStrata = Arrays.copyOf(fileStrata, Math.max(file + 1, fileStrata.length + (fileStrata.length >> 1)));
+        for (int unassigned = fileCount; unassigned < file; unassigned++)
+            fileStrata[unassigned] = NONE;
+        fileStrata[file] = stratum;
+        fileCount = Math.max(fileCount, file + 1);
+        if (stratum != NONE) {
+            stratumFiles[stratum]++;
+            stratumBytes[stratum] += size;
+        }
+    }
+
+    private static String extensionKey(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot == - 1 ? "" : fileName.substring(dot + 1).toLowerCase();
+    }
+
+    /**
+     * @return The number of strata
+     */
+    public synchronized int size() {
+        return stratumNames.size();
+    }
+
+    /**
+     * @param stratum The id of a stratum
+     *
+     * @return The key of the stratum, a directory path relative to the root or an extension
+     */
+    public synchronized String nameOf(int stratum) {
+        return stratumNames.get(stratum);
+    }
+
+    public synchronized int filesIn(int stratum) {
+        return stratumFiles[stratum];
+    }
+
+    public synchronized long bytesIn(int stratum) {
+        return stratumBytes[stratum];
+    }
+
+    /**
+     * @param file The position of a file
+     *
+     * @return The id of the stratum of the file, or {@link #NONE}
+     */
+    public synchronized int stratumOf(int file) {
+        return file < fileCount ? fileStrata[file] : NONE;
+    }
+
+    /**
+     * @return The ids of the strata of the files, by their position
+     */
+    public synchronized int[] strataOfFiles() {
+        return Arrays.copyOf(fileStrata, fileCount);
+    }
+}
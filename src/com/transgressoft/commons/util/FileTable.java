@@ -0,0 +1,337 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Compact table of the files in a directory tree. Instead of a {@link Path} with the whole path
+ * of each file, each directory is stored once as a node with its parent and its name, and each
+ * file with its directory and its name. The names are stored as UTF-8 bytes in shared pages, and
+ * the sizes and modification times in primitive arrays, so that each file takes 20 bytes plus its
+ * name. A {@link Path} is only built when the {@link FileEntry} of a file is requested.
+ * <p>
+ * The modification times are stored with a precision of seconds. Files and directories can be
+ * added concurrently, which makes the table suitable to be filled by a parallel directory scan.
+ * The ids of the extensions are only worked out, from the stored names, once they are requested.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class FileTable implements FileIndex {
+
+    /**
+     * The index of the root directory node
+     */
+    public static final int ROOT = 0;
+
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Path rootDirectory;
+    private final List<byte[]> namePages;
+    private int namesPosition;
+    private int directoryCount;
+    private int[] directoryParent;
+    private int[] directoryName;
+    private int fileCount;
+    private int[] fileDirectory;
+    private int[] fileName;
+    private long[] fileSize;
+    private int[] fileLastModified;
+    private final Map<String, Integer> extensionIds;
+    private final List<String> extensionNames;
+    private int[] fileExtension;
+    private volatile int extensionsIndexed;
+
+    /**
+     * Constructor of an empty table
+     *
+     * @param rootDirectory The directory of the root node of the table
+     */
+    public FileTable(Path rootDirectory) {
+        this.rootDirectory = rootDirectory;
+        namePages = new ArrayList<>();
+        namePages.add(new byte[PAGE_SIZE]);
+        directoryParent = new int[INITIAL_CAPACITY];
+        directoryName = new int[INITIAL_CAPACITY];
+        fileDirectory = new int[INITIAL_CAPACITY];
+        fileName = new int[INITIAL_CAPACITY];
+        fileSize = new long[INITIAL_CAPACITY];
+        fileLastModified = new int[INITIAL_CAPACITY];
+        extensionIds = new HashMap<>();
+        extensionNames = new ArrayList<>();
+        fileExtension = new int[0];
+        addDirectory(- 1, "");
+    }
+
+    public Path getRootDirectory() {
+        return rootDirectory;
+    }
+
+    /**
+     * Adds a directory node to the table
+     *
+     * @param parent The index of the parent directory node
+     * @param name   The name of the directory
+     *
+     * @return The index of the new directory node
+     */
+    public synchronized int addDirectory(int parent, String name) {
+        if (directoryCount == directoryParent.length) {
+            int capacity = grownCapacity(directoryCount);
+            directoryParent = Arrays.copyOf(directoryParent, capacity);
+            directoryName = Arrays.copyOf(directoryName, capacity);
+        }
+        directoryParent[directoryCount] = parent;
+        directoryName[directoryCount] = addName(name);
+        return directoryCount++;
+    }
+
+    /**
+     * Adds a file to the table
+     *
+     * @param directory    The index of the directory node of the file
+     * @param name         The name of the file
+     * @param size         The size of the file in bytes
+     * @param lastModified The last modified time of the file in milliseconds since the epoch
+     */
+    public synchronized void addFile(int directory, String name, long size, long lastModified) {
+        if (fileCount == fileSize.length) {
+            int capacity = grownCapacity(fileCount);
+            fileDirectory = Arrays.copyOf(fileDirectory, capacity);
+            fileName = Arrays.copyOf(fileName, capacity);
+            fileSize = Arrays.copyOf(fileSize, capacity);
+            fileLastModified = Arrays.copyOf(fileLastModified, capacity);
+        }
+        fileDirectory[fileCount] = directory;
+        fileName[fileCount] = addName(name);
+        fileSize[fileCount] = size;
+        fileLastModified[fileCount] = (int) (Math.max(0, lastModified) / 1000);
+        fileCount++;
+    }
+
+    /**
+     * Adds several files of the same directory to the table at once
+     *
+     * @param directory The index of the directory node of the files
+     * @param entries   The {@code FileEntry} objects of the files
+     *
+     * @return The index of the first file added, the others following it
+     */
+    public synchronized int addFiles(int directory, List<FileEntry> entries) {
+        int firstFile = fileCount;
+        for (FileEntry entry : entries)
+            addFile(directory, entry.getName(), entry.getSize(), entry.getLastModified());
+        return firstFile;
+    }
+
+    private static int grownCapacity(int capacity) {
+        return capacity + (capacity >> 1) + 1;
+    }
+
+    /**
+     * Writes a name in the current page prefixed by its length, or in a new page if it doesn't fit
+     *
+     * @return The offset of the name, with the index of its page in the upper bits
+     */
+    private int addName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > PAGE_SIZE - Short.BYTES)
+            throw new IllegalArgumentException("Name too long: " + name);
+
+        byte[] page = namePages.get(namePages.size() - 1);
+        if (namesPosition + Short.BYTES + bytes.length > page.length) {
+            page = new byte[PAGE_SIZE];
+            namePages.add(page);
+            namesPosition = 0;
+        }
+        int offset = ((namePages.size() - 1) << PAGE_BITS) | namesPosition;
+        page[namesPosition++] = (byte) (bytes.length >>> 8);
+        page[namesPosition++] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, page, namesPosition, bytes.length);
+        namesPosition += bytes.length;
+        return offset;
+    }
+
+    private String name(int offset) {
+        byte[] page = namePages.get(offset >>> PAGE_BITS);
+        int position = offset & (PAGE_SIZE - 1);
+        int length = ((page[position] & 0xFF) << 8) | (page[position + 1] & 0xFF);
+        return new String(page, position + Short.BYTES, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Releases the capacity of the arrays that was reserved for more files or directories
+     */
+    public synchronized void trimToSize() {
+        directoryParent = Arrays.copyOf(directoryParent, directoryCount);
+        directoryName = Arrays.copyOf(directoryName, directoryCount);
+        fileDirectory = Arrays.copyOf(fileDirectory, fileCount);
+        fileName = Arrays.copyOf(fileName, fileCount);
+        fileSize = Arrays.copyOf(fileSize, fileCount);
+        fileLastModified = Arrays.copyOf(fileLastModified, fileCount);
+        int lastPage = namePages.size() - 1;
+        namePages.set(lastPage, Arrays.copyOf(namePages.get(lastPage), namesPosition));
+    }
+
+    /**
+     * @return The approximate number of bytes used by the arrays of the table
+     */
+    public synchronized long memoryFootprint() {
+        long bytes = (long) directoryParent.length * Integer.BYTES + (long) directoryName.length * Integer.BYTES;
+        bytes += (long) fileDirectory.length * Integer.BYTES + (long) fileName.length * Integer.BYTES;
+        bytes += (long) fileSize.length * Long.BYTES + (long) fileLastModified.length * Integer.BYTES;
+        bytes += (long) fileExtension.length * Integer.BYTES;
+        for (byte[] page : namePages)
+            bytes += page.length;
+        return bytes;
+    }
+
+    @Override
+    public synchronized int directories() {
+        return directoryCount;
+    }
+
+    @Override
+    public synchronized int size() {
+        return fileCount;
+    }
+
+    @Override
+    public long sizeOf(int index) {
+        return fileSize[index];
+    }
+
+    @Override
+    public long lastModifiedOf(int index) {
+        return (fileLastModified[index] & 0xFFFFFFFFL) * 1000;
+    }
+
+    /**
+     * @param index The index of a file
+     *
+     * @return The index of the directory node of the file
+     */
+    @Override
+    public int directoryOf(int index) {
+        return fileDirectory[index];
+    }
+
+    /**
+     * @param directory The index of a directory node
+     *
+     * @return The index of the parent directory node, or -1 for the root
+     */
+    public int parentOf(int directory) {
+        return directoryParent[directory];
+    }
+
+    /**
+     * @param index The index of a file
+     *
+     * @return The name of the file
+     */
+    public String nameOf(int index) {
+        return name(fileName[index]);
+    }
+
+    /**
+     * Builds the {@link Path} of a directory node following its parents up to the root
+     *
+     * @param directory The index of a directory node
+     *
+     * @return The {@code Path} of the directory
+     */
+    @Override
+    public Path directoryPath(int directory) {
+        Deque<String> names = new ArrayDeque<>();
+        for (int node = directory; node != ROOT; node = directoryParent[node])
+            names.push(name(directoryName[node]));
+        Path path = rootDirectory;
+        for (String name : names)
+            path = path.resolve(name);
+        return path;
+    }
+
+    /**
+     * @param index The index of a file
+     *
+     * @return The {@code Path} of the file
+     */
+    public Path path(int index) {
+        return directoryPath(fileDirectory[index]).resolve(nameOf(index));
+    }
+
+    @Override
+    public synchronized int extensions() {
+        indexExtensions();
+        return extensionNames.size();
+    }
+
+    @Override
+    public int extensionIdOf(int index) {
+        if (index >= extensionsIndexed)
+            indexExtensions();
+        return fileExtension[index];
+    }
+
+    @Override
+    public synchronized String extensionName(int extension) {
+        return extensionNames.get(extension);
+    }
+
+    /**
+     * Works out the extension ids of the files added since the last time, reading only the bytes
+     * of their names after the last dot
+     */
+    private synchronized void indexExtensions() {
+        if (extensionsIndexed == fileCount)
+            return;
+        if (fileExtension.length < fileCount)
+            fileExtension = Arrays.copyOf(fileExtension, fileCount);
+        for (int index = extensionsIndexed; index < fileCount; index++) {
+            byte[] page = namePages.get(fileName[index] >>> PAGE_BITS);
+            int start = (fileName[index] & (PAGE_SIZE - 1)) + Short.BYTES;
+            int end = start + (((page[start - 2] & 0xFF) << 8) | (page[start - 1] & 0xFF));
+            int dot = end - 1;
+            while (dot >= start && page[dot] != '.')
+                dot--;
+            if (dot < start)
+                fileExtension[index] = NO_EXTENSION;
+            else {
+                String extension = new String(page, dot + 1, end - dot - 1, StandardCharsets.UTF_8);
+                Integer id = extensionIds.get(extension);
+                if (id == null) {
+                    id = extensionNames.size();
+                    extensionIds.put(extension, id);
+                    extensionNames.add(extension);
+                }
+                fileExtension[index] = id;
+            }
+        }
+        extensionsIndexed = fileCount;
+    }
+
+    @Override
+    public FileEntry entry(int index) {
+        return new FileEntry(path(index), sizeOf(index), lastModifiedOf(index), null, false);
+    }
+}
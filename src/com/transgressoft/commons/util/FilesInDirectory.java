@@ -17,12 +17,27 @@
 package com.transgressoft.commons.util;
 
 import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import java.util.stream.*;
 
 /**
  * Retrieves a {@link List} of files that are in a directory and any of the subdirectories
  * in that directory satisfying a condition specified by a {@link FileFilter}.
  * If {@code maxFilesRequired} is 0 all the files will be retrieved.
+ * <p>
+ * The directory tree is walked by a {@link ForkJoinPool}, forking a task for each
+ * subdirectory so that idle workers can steal the pending ones. Each directory is read
+ * with a {@link DirectoryStream} and the {@link BasicFileAttributes} of its files are
+ * collected into {@link FileEntry} objects, so that the size or the modification time
+ * of the files can be used afterwards without accessing the file system again.
+ * Subdirectories pruned by the {@link DirectoryPruning} rules are skipped before
+ * they are listed, so nothing beneath them is ever read. When the files are collected
+ * into a {@link FileTable}, they can be grouped in {@link FileStrata} during the same scan.
  *
  * @author Octavio Calleya
  * @version 0.2.6
@@ -30,17 +45,55 @@ import java.util.*;
 public class FilesInDirectory {
 
     private File rootDirectory;
-    private int maxFilesRequired;
-    private FileFilter filter;
-    private List<File> files;
+    private Path rootPath;
+    private int parallelism;
+    private DirectoryPruning pruning;
+    private FileEntryFilter filter;
+    private AtomicInteger remainingFiles;
+    private Consumer<FileEntry> entryConsumer;
+    private FileTable fileTable;
+    private FileStrata fileStrata;
+    private LongAdder acceptedEntries;
+    private Thread callerThread;
 
     /**
-     * Default constructor
+     * Default constructor, walks the directory tree with as many workers as available processors
      *
      * @param rootDirectory The directory from within to find the files
      */
     public FilesInDirectory(File rootDirectory) {
+        this(rootDirectory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor with a given number of workers to walk the directory tree
+     *
+     * @param rootDirectory The directory from within to find the files
+     * @param parallelism   The number of threads that scan the subdirectories concurrently
+     *
+     * @throws IllegalArgumentException Thrown if {@code parallelism} is less than one
+     */
+    public FilesInDirectory(File rootDirectory, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism argument less than one");
         this.rootDirectory = rootDirectory;
+        this.parallelism = parallelism;
+        pruning = new DirectoryPruning();
+    }
+
+    public DirectoryPruning getPruning() {
+        return pruning;
+    }
+
+    /**
+     * Sets the rules of the subdirectories that are not descended into
+     *
+     * @param pruning The {@code DirectoryPruning} rules
+     */
+    public void setPruning(DirectoryPruning pruning) {
+        if (pruning == null)
+            throw new IllegalArgumentException("pruning null");
+        this.pruning = pruning;
     }
 
     public List<File> filtered(FileFilter filter) {
@@ -50,7 +103,8 @@ public class FilesInDirectory {
     /**
      * Retrieves a {@link List} with at most {@code maxFilesRequired} files that are in a directory or
      * any of the subdirectories in that directory satisfying a condition specified by a {@link FileFilter}.
-     * If {@code maxFilesRequired} is 0 all the files will be retrieved.
+     * If {@code maxFilesRequired} is 0 all the files will be retrieved. The scan stops as soon as the
+     * calling thread is interrupted.
      *
      * @param filter           The {@code FileFilter} condition
      * @param maxFilesRequired Maximum number of files required. 0 means no maximum
@@ -60,78 +114,233 @@ public class FilesInDirectory {
      * @throws IllegalArgumentException Thrown if {@code maxFilesRequired} argument is less than zero
      */
     public List<File> filteredAndBounded(FileFilter filter, int maxFilesRequired) {
-        this.filter = filter;
-        this.maxFilesRequired = maxFilesRequired;
-        files = new ArrayList<>();
+        if (filter == null)
+            throw new IllegalArgumentException("directory or filter null");
+        return entriesBounded(entry -> filter.accept(entry.toFile()), maxFilesRequired)
+                .stream().map(FileEntry::toFile).collect(Collectors.toList());
+    }
+
+    public List<FileEntry> entries(FileEntryFilter filter) {
+        return entriesBounded(filter, 0);
+    }
+
+    /**
+     * Retrieves a {@link List} with at most {@code maxFilesRequired} {@link FileEntry} objects of the
+     * files that are in a directory or any of the subdirectories in that directory satisfying a
+     * condition specified by a {@link FileEntryFilter}. Directories are never included.
+     * If {@code maxFilesRequired} is 0 all the files will be retrieved. The scan stops as soon as the
+     * calling thread is interrupted.
+     *
+     * @param filter           The {@code FileEntryFilter} condition
+     * @param maxFilesRequired Maximum number of files required. 0 means no maximum
+     *
+     * @return The list containing the entries of all the files
+     *
+     * @throws IllegalArgumentException Thrown if {@code maxFilesRequired} argument is less than zero
+     */
+    public List<FileEntry> entriesBounded(FileEntryFilter filter, int maxFilesRequired) {
+        List<FileEntry> entries = new ArrayList<>();
         if (! Thread.currentThread().isInterrupted()) {
             if (maxFilesRequired < 0)
                 throw new IllegalArgumentException("maxFilesRequired argument less than zero");
-            if (rootDirectory == null || filter == null)
-                throw new IllegalArgumentException("directory or filter null");
-            if (! rootDirectory.exists() || ! rootDirectory.isDirectory())
-                throw new IllegalArgumentException("Provided root directory is a file or does not exist");
-
-            int remainingFiles = addFilesRegardingMaxRequired(rootDirectory.listFiles(filter));
+            entries = walk(filter, maxFilesRequired, null);
+        }
+        return entries;
+    }
 
-            if (maxFilesRequired == 0 || remainingFiles > 0) {
-                File[] rootSubdirectories = rootDirectory.listFiles(File::isDirectory);
-                addFilesFromDirectories(rootSubdirectories, remainingFiles);
-            }
+    /**
+     * Walks the directory tree handing each file accepted by the given {@link FileEntryFilter}
+     * to a {@link Consumer} as soon as it is found, without retaining any of them. The consumer
+     * is called concurrently from the scanning threads so it must be thread safe.
+     * The scan stops as soon as the calling thread is interrupted.
+     *
+     * @param filter   The {@code FileEntryFilter} condition
+     * @param consumer The {@code Consumer} that receives the accepted entries
+     *
+     * @return The number of entries that were accepted by the filter
+     */
+    public long scan(FileEntryFilter filter, Consumer<FileEntry> consumer) {
+        long accepted = 0;
+        if (! Thread.currentThread().isInterrupted()) {
+            if (consumer == null)
+                throw new IllegalArgumentException("consumer null");
+            walk(filter, 0, consumer);
+            accepted = acceptedEntries.sum();
         }
-        return files;
+        return accepted;
     }
 
     /**
-     * Add files to the {@link List} regarding the maximum required.
-     * <ul>
-     * <li>
-     * If it's 0, all files are added.
-     * </li>
-     * <li>
-     * If it's greater than the actual number of files, all files are added too.
-     * </li>
-     * <li>
-     * If it's less than the actual number of files, the required number
-     * of files are added
-     * </li>
-     * </ul>
-     *
-     * @param subFiles A {@code File} {@code Array} to add to the collection
-     *
-     * @return The number of files that were not added from the {@code Array}
+     * Retrieves a {@link FileTable} with the files that are in a directory or any of the subdirectories
+     * in that directory satisfying a condition specified by a {@link FileEntryFilter}. The table stores each
+     * directory once and the attributes of the files in primitive arrays, taking much less memory than a
+     * {@link List} of entries. The scan stops as soon as the calling thread is interrupted.
+     *
+     * @param filter The {@code FileEntryFilter} condition
+     *
+     * @return The {@code FileTable} containing the files
      */
-    private int addFilesRegardingMaxRequired(File[] subFiles) {
-        int remainingFiles = maxFilesRequired;
-        if (maxFilesRequired == 0)                              // No max = add all files
-            files.addAll(Arrays.asList(subFiles));
-        else if (maxFilesRequired < subFiles.length) {          // There are more valid files than the required
-            files.addAll(Arrays.asList(Arrays.copyOfRange(subFiles, 0, maxFilesRequired)));
-            remainingFiles -= files.size();                     // Zero files remaining in the directory
+    public FileTable table(FileEntryFilter filter) {
+        return table(filter, null);
+    }
+
+    /**
+     * Retrieves a {@link FileTable} with the files that satisfy a condition specified by a {@link FileEntryFilter},
+     * adding them to the given {@link FileStrata} as they are found. The stratum of each directory is worked
+     * out once, when it is forked, and its files are counted in it along with their bytes, so that the strata
+     * are complete once the scan ends without going over the files again.
+     *
+     * @param filter The {@code FileEntryFilter} condition
+     * @param strata The empty {@code FileStrata} of the files, or {@code null} to not group them
+     *
+     * @return The {@code FileTable} containing the files
+     */
+    public FileTable table(FileEntryFilter filter, FileStrata strata) {
+        FileTable table = new FileTable(rootDirectory == null ? null : rootDirectory.toPath());
+        if (! Thread.currentThread().isInterrupted()) {
+            fileStrata = strata;
+            walk(filter, 0, null, table);
+            fileStrata = null;
+            table.trimToSize();
+        }
+        return table;
+    }
+
+    private List<FileEntry> walk(FileEntryFilter filter, int maxFilesRequired, Consumer<FileEntry> consumer) {
+        return walk(filter, maxFilesRequired, consumer, null);
+    }
+
+    private List<FileEntry> walk(FileEntryFilter filter, int maxFilesRequired, Consumer<FileEntry> consumer, FileTable table) {
+        if (rootDirectory == null || filter == null)
+            throw new IllegalArgumentException("directory or filter null");
+        if (! rootDirectory.exists() || ! rootDirectory.isDirectory())
+            throw new IllegalArgumentException("Provided root directory is a file or does not exist");
+
+        this.filter = filter;
+        rootPath = rootDirectory.toPath();
+        remainingFiles = maxFilesRequired == 0 ? null : new AtomicInteger(maxFilesRequired);
+        entryConsumer = consumer;
+        fileTable = table;
+        acceptedEntries = new LongAdder();
+        callerThread = Thread.currentThread();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int rootStratum = FileStrata.NONE;
+            if (fileTable != null && fileStrata != null && ! fileStrata.isByExtension())
+                rootStratum = fileStrata.stratum("");
+            return pool.invoke(new DirectoryScan(rootPath, 0, FileTable.ROOT, rootStratum));
         }
-        else if (subFiles.length > 0) {
-            files.addAll(Arrays.asList(subFiles));             // Add all valid files
-            remainingFiles -= files.size();
+        finally {
+            pool.shutdownNow();
         }
-        return remainingFiles;
+    }
+
+    private boolean isScanCancelled() {
+        return callerThread.isInterrupted() || (remainingFiles != null && remainingFiles.get() <= 0);
     }
 
     /**
-     * Adds files to the {@link List} from several directories regarding the remaining required
+     * Claims a slot for a file regarding the maximum required. If there is no maximum
+     * all files are accepted.
      *
-     * @param directories    The folders where the files are
-     * @param remainingFiles The remaining number of files to add
+     * @return {@code true} if the file can be added, {@code false} otherwise
+     */
+    private boolean claimFile() {
+        return remainingFiles == null || remainingFiles.getAndDecrement() > 0;
+    }
+
+    /**
+     * Lists a single directory once, keeping the files accepted by the filter, handing them
+     * to the consumer or adding them to the table if there is one, and forking a new task
+     * for each subdirectory that is not pruned. The stratum of a subdirectory is its own if it is not deeper
+     * than the depth of the strata, or the one of its parent otherwise. The files of the directory come first in the resulting
+     * {@link List}, followed by the ones of each subdirectory in the order they were listed.
      */
-    private void addFilesFromDirectories(File[] directories, int remainingFiles) {
-        int subdirectoriesCount = 0;
-        int remaining = remainingFiles;
-        while ((subdirectoriesCount < directories.length) && ! Thread.currentThread().isInterrupted()) {
-            File subdirectory = directories[subdirectoriesCount++];
-            List<File> subdirectoryFiles = new FilesInDirectory(subdirectory).filteredAndBounded(filter, remaining);
-            files.addAll(subdirectoryFiles);
-            if (remaining > 0)
-                remaining = maxFilesRequired - files.size();
-            if (maxFilesRequired > 0 && remaining == 0)
-                break;
+    private class DirectoryScan extends RecursiveTask<List<FileEntry>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final int depth;
+        private final int tableDirectory;
+        private final int stratum;
+
+        DirectoryScan(Path directory, int depth, int tableDirectory, int stratum) {
+            this.directory = directory;
+            this.depth = depth;
+            this.tableDirectory = tableDirectory;
+            this.stratum = stratum;
+        }
+
+        @Override
+        protected List<FileEntry> compute() {
+            List<FileEntry> directoryEntries = new ArrayList<>();
+            if (isScanCancelled())
+                return directoryEntries;
+
+            List<DirectoryScan> subdirectoryScans = new ArrayList<>();
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+                for (Path path : directoryStream) {
+                    BasicFileAttributes attributes = readAttributes(path);
+                    if (attributes == null)
+                        continue;
+                    if (attributes.isDirectory()) {
+                        if (! pruning.prunes(rootPath, path, depth + 1))
+                            subdirectoryScans.add(subdirectoryScan(path));
+                    }
+                    else {
+                        FileEntry entry = new FileEntry(path, attributes, Files.isHidden(path));
+                        if (filter.accept(entry) && claimFile())
+                            addEntry(entry, directoryEntries);
+                    }
+                }
+            }
+            catch (IOException | DirectoryIteratorException exception) {
+                // Not readable or removed during the scan, keep what was listed
+            }
+
+            if (fileTable != null && ! directoryEntries.isEmpty()) {
+                int firstFile = fileTable.addFiles(tableDirectory, directoryEntries);
+                if (fileStrata != null)
+                    fileStrata.addFiles(firstFile, directoryEntries, stratum);
+                directoryEntries = new ArrayList<>();
+            }
+
+            if (! subdirectoryScans.isEmpty() && ! isScanCancelled()) {
+                invokeAll(subdirectoryScans);
+                for (DirectoryScan subdirectoryScan : subdirectoryScans)
+                    directoryEntries.addAll(subdirectoryScan.join());
+            }
+            return directoryEntries;
+        }
+
+        private DirectoryScan subdirectoryScan(Path subdirectory) {
+            int subdirectoryNode = - 1;
+            int subdirectoryStratum = stratum;
+            if (fileTable != null) {
+                subdirectoryNode = fileTable.addDirectory(tableDirectory, subdirectory.getFileName().toString());
+                if (fileStrata != null && ! fileStrata.isByExtension() && depth < fileStrata.getDirectoryDepth())
+                    subdirectoryStratum = fileStrata.stratum(fileStrata.directoryKey(rootPath, subdirectory));
+            }
+            return new DirectoryScan(subdirectory, depth + 1, subdirectoryNode, subdirectoryStratum);
+        }
+
+        private void addEntry(FileEntry entry, List<FileEntry> directoryEntries) {
+            acceptedEntries.increment();
+            if (entryConsumer == null)
+                directoryEntries.add(entry);
+            else
+                entryConsumer.accept(entry);
+        }
+
+        private BasicFileAttributes readAttributes(Path path) {
+            try {
+                return Files.readAttributes(path, BasicFileAttributes.class);
+            }
+            catch (IOException exception) {
+                return null;                                            // Broken link or removed file
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,610 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * In-memory index of the files in a directory tree that is kept up to date by a {@link WatchService}.
+ * Every directory of the tree is registered, and a background thread applies the creation, deletion
+ * and modification events to the index as they arrive. When the watch service reports that some events
+ * were lost, the directory where it happened is scanned again. This way, once started, the files of
+ * the directory tree can be requested without accessing the file system.
+ * <p>
+ * The files are indexed by their directory, each directory keeping the names of its files sorted next
+ * to their sizes, modification times, extension ids and hidden flags in primitive arrays, and the directories
+ * it contains.
+ * This way a file is found by its name without a map entry for each file, and a deleted directory is
+ * removed from the index visiting only its own tree. A {@link FileEntry} is only built when it is requested.
+ * <p>
+ * The index can be {@link #read(Consumer) read} in place while the updates wait, or copied to a
+ * {@link #snapshot()} that is not affected by them.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class LiveSourceIndex implements Closeable {
+
+    private final Path sourceDirectory;
+    private final DirectoryPruning pruning;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories;
+    private final Map<Path, DirectoryFiles> directories;
+    private final List<DirectoryFiles> directoryList;
+    private final Map<String, Integer> extensionIds;
+    private final List<String> extensionNames;
+    private final ReadWriteLock lock;
+    private final Thread watcherThread;
+    private int fileCount;
+    private long generation;
+
+    private LiveSourceIndex(Path sourceDirectory, DirectoryPruning pruning) throws IOException {
+        this.sourceDirectory = sourceDirectory;
+        this.pruning = pruning;
+        watchService = sourceDirectory.getFileSystem().newWatchService();
+        watchedDirectories = new HashMap<>();
+        directories = new HashMap<>();
+        directoryList = new ArrayList<>();
+        extensionIds = new HashMap<>();
+        extensionNames = new ArrayList<>();
+        lock = new ReentrantReadWriteLock();
+        watcherThread = new Thread(this::processEvents, "live-source-index");
+        watcherThread.setDaemon(true);
+    }
+
+    /**
+     * Scans a directory tree registering all its directories and starts watching them for changes
+     *
+     * @param sourceDirectory The directory whose files are indexed
+     *
+     * @return The started {@code LiveSourceIndex}
+     *
+     * @throws IOException If the directory can't be watched
+     */
+    public static LiveSourceIndex start(Path sourceDirectory) throws IOException {
+        return start(sourceDirectory, new DirectoryPruning());
+    }
+
+    /**
+     * Scans a directory tree registering all its directories that are not pruned by the given
+     * {@link DirectoryPruning} rules and starts watching them for changes. The pruned directories
+     * are neither indexed nor watched.
+     *
+     * @param sourceDirectory The directory whose files are indexed
+     * @param pruning         The rules of the subdirectories that are not descended into
+     *
+     * @return The started {@code LiveSourceIndex}
+     *
+     * @throws IOException If the directory can't be watched
+     */
+    public static LiveSourceIndex start(Path sourceDirectory, DirectoryPruning pruning) throws IOException {
+        if (! Files.isDirectory(sourceDirectory))
+            throw new IllegalArgumentException("Provided source directory is a file or does not exist");
+        if (pruning == null)
+            throw new IllegalArgumentException("pruning null");
+
+        LiveSourceIndex liveIndex = new LiveSourceIndex(sourceDirectory.toAbsolutePath().normalize(), pruning);
+        liveIndex.scanDirectory(liveIndex.sourceDirectory);
+        liveIndex.watcherThread.start();
+        return liveIndex;
+    }
+
+    public Path getSourceDirectory() {
+        return sourceDirectory;
+    }
+
+    /**
+     * @return The number of files currently in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return fileCount;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of changes applied to the index since it was started, so that what is computed
+     *         from its files can be kept until they change
+     */
+    public long generation() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the files currently in the index in place, without copying them. The index is not updated
+     * until the reader returns, and the {@link FileIndex} given to it must not be used afterwards.
+     *
+     * @param reader The function that reads the {@code FileIndex} with the files in the index
+     */
+    public void read(Consumer<FileIndex> reader) {
+        lock.readLock().lock();
+        try {
+            reader.accept(new IndexView(directoryList, extensionNames));
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the files currently in the index to a {@link FileIndex} that is not affected by later changes
+     *
+     * @return The {@code FileIndex} with the files in the index
+     */
+    public FileIndex snapshot() {
+        lock.readLock().lock();
+        try {
+            IndexView view = new IndexView(directoryList, extensionNames);
+            FileEntry[] entries = new FileEntry[view.size()];
+            int[] fileDirectories = new int[entries.length];
+            int[] fileExtensions = new int[entries.length];
+            for (int index = 0; index < entries.length; index++) {
+                entries[index] = view.entry(index);
+                fileDirectories[index] = view.directoryOf(index);
+                fileExtensions[index] = view.extensionIdOf(index);
+            }
+            Path[] directoryPaths = new Path[view.directories()];
+            for (int directory = 0; directory < directoryPaths.length; directory++)
+                directoryPaths[directory] = view.directoryPath(directory);
+            return new Snapshot(entries, fileDirectories, directoryPaths, fileExtensions, extensionNames.toArray(new String[0]));
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registers a directory and all its subdirectories that are not pruned in the watch service, adding their files to the index
+     */
+    private void scanDirectory(Path directory) {
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                    if (pruning.prunes(sourceDirectory, dir))
+                        return FileVisitResult.SKIP_SUBTREE;
+                    WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                    synchronized (watchedDirectories) {
+                        watchedDirectories.put(key, dir);
+                    }
+                    addDirectory(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    if (! attributes.isDirectory())
+                        putFile(file, attributes, Files.isHidden(file));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (IOException | ClosedWatchServiceException exception) {
+            // Removed while it was scanned, its deletion event removes what was added
+        }
+    }
+
+    private void processEvents() {
+        try {
+            while (! Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                Path directory;
+                synchronized (watchedDirectories) {
+                    directory = watchedDirectories.get(key);
+                }
+                if (directory != null)
+                    for (WatchEvent<?> event : key.pollEvents())
+                        applyEvent(directory, event);
+
+                if (! key.reset()) {
+                    synchronized (watchedDirectories) {
+                        watchedDirectories.remove(key);
+                    }
+                    if (directory != null && ! Files.isDirectory(directory))
+                        removeEntriesUnder(directory);
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException exception) {
+            // The index was closed
+        }
+    }
+
+    private void applyEvent(Path directory, WatchEvent<?> event) {
+        if (event.kind() == OVERFLOW) {
+            removeEntriesUnder(directory);
+            scanDirectory(directory);
+            return;
+        }
+
+        Path path = directory.resolve((Path) event.context());
+        if (event.kind() == ENTRY_DELETE)
+            removeEntriesUnder(path);
+        else {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (! attributes.isDirectory())
+                    putFile(path, attributes, Files.isHidden(path));
+                else if (event.kind() == ENTRY_CREATE)
+                    scanDirectory(path);
+            }
+            catch (IOException exception) {
+                removeEntriesUnder(path);                               // Deleted right after the event
+            }
+        }
+    }
+
+    private void addDirectory(Path directory) {
+        lock.writeLock().lock();
+        try {
+            if (! directories.containsKey(directory)) {
+                DirectoryFiles directoryFiles = new DirectoryFiles(directory, directoryList.size());
+                directories.put(directory, directoryFiles);
+                directoryList.add(directoryFiles);
+                DirectoryFiles parent = directories.get(directory.getParent());
+                if (parent != null)
+                    parent.subdirectories.add(directoryFiles);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putFile(Path file, BasicFileAttributes attributes, boolean hidden) {
+        lock.writeLock().lock();
+        try {
+            DirectoryFiles directoryFiles = directories.get(file.getParent());
+            if (directoryFiles != null) {
+                generation++;
+                String name = file.getFileName().toString();
+                fileCount += directoryFiles.put(name, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                                                extensionId(name), hidden);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gives the id of the extension of a file name, adding the extension if it is new. The ids of the
+     * extensions of removed files are kept, since they are few.
+     */
+    private int extensionId(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot == - 1)
+            return FileIndex.NO_EXTENSION;
+        String extension = name.substring(dot + 1);
+        Integer id = extensionIds.get(extension);
+        if (id == null) {
+            id = extensionNames.size();
+            extensionIds.put(extension, id);
+            extensionNames.add(extension);
+        }
+        return id;
+    }
+
+    /**
+     * Removes the entry of a file, or a directory with all the directories and files in its tree
+     */
+    private void removeEntriesUnder(Path path) {
+        lock.writeLock().lock();
+        try {
+            DirectoryFiles parent = directories.get(path.getParent());
+            DirectoryFiles removedDirectory = directories.get(path);
+            generation++;
+            if (removedDirectory == null) {
+                if (parent != null)
+                    fileCount -= parent.remove(path.getFileName().toString());
+                return;
+            }
+
+            if (parent != null)
+                parent.subdirectories.remove(removedDirectory);
+            Deque<DirectoryFiles> pendingDirectories = new ArrayDeque<>();
+            pendingDirectories.push(removedDirectory);
+            while (! pendingDirectories.isEmpty()) {
+                DirectoryFiles directoryFiles = pendingDirectories.pop();
+                directoryFiles.subdirectories.forEach(pendingDirectories::push);
+                removeDirectory(directoryFiles);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a directory moving the last one of the list to its position, so that the removal does not shift the rest
+     */
+    private void removeDirectory(DirectoryFiles directoryFiles) {
+        directories.remove(directoryFiles.directory);
+        fileCount -= directoryFiles.count;
+        DirectoryFiles last = directoryList.remove(directoryList.size() - 1);
+        if (last != directoryFiles) {
+            directoryList.set(directoryFiles.position, last);
+            last.position = directoryFiles.position;
+        }
+    }
+
+    /**
+     * Stops watching the directory tree
+     *
+     * @throws IOException If the watch service can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        watcherThread.interrupt();
+    }
+
+    /**
+     * The files of a directory, sorted by their names
+     */
+    private static class DirectoryFiles {
+
+        private static final int INITIAL_CAPACITY = 4;
+
+        private final Path directory;
+        private final List<DirectoryFiles> subdirectories;
+        private String[] names;
+        private long[] sizes;
+        private long[] lastModifiedTimes;
+        private int[] extensions;
+        private boolean[] hidden;
+        private int count;
+        private int position;
+
+        DirectoryFiles(Path directory, int position) {
+            this.directory = directory;
+            this.position = position;
+            subdirectories = new ArrayList<>();
+            names = new String[INITIAL_CAPACITY];
+            sizes = new long[INITIAL_CAPACITY];
+            lastModifiedTimes = new long[INITIAL_CAPACITY];
+            extensions = new int[INITIAL_CAPACITY];
+            hidden = new boolean[INITIAL_CAPACITY];
+        }
+
+        /**
+         * @return 1 if the file was added, or 0 if it was already there and it was updated
+         */
+        int put(String name, long size, long lastModified, int extension, boolean isHidden) {
+            int file = Arrays.binarySearch(names, 0, count, name);
+            int added = 0;
+            if (file < 0) {
+                file = - file - 1;
+                if (count == names.length) {
+                    int capacity = count * 2;
+                    names = Arrays.copyOf(names, capacity);
+                    sizes = Arrays.copyOf(sizes, capacity);
+                    lastModifiedTimes = Arrays.copyOf(lastModifiedTimes, capacity);
+                    extensions = Arrays.copyOf(extensions, capacity);
+                    hidden = Arrays.copyOf(hidden, capacity);
+                }
+                shift(file, file + 1, count - file);
+                names[file] = name;
+                count++;
+                added = 1;
+            }
+            sizes[file] = size;
+            lastModifiedTimes[file] = lastModified;
+            extensions[file] = extension;
+            hidden[file] = isHidden;
+            return added;
+        }
+
+        /**
+         * @return 1 if the file was removed, or 0 if it was not there
+         */
+        int remove(String name) {
+            int file = Arrays.binarySearch(names, 0, count, name);
+            if (file < 0)
+                return 0;
+            shift(file + 1, file, count - file - 1);
+            names[-- count] = null;
+            return 1;
+        }
+
+        private void shift(int from, int to, int files) {
+            System.arraycopy(names, from, names, to, files);
+            System.arraycopy(sizes, from, sizes, to, files);
+            System.arraycopy(lastModifiedTimes, from, lastModifiedTimes, to, files);
+            System.arraycopy(extensions, from, extensions, to, files);
+            System.arraycopy(hidden, from, hidden, to, files);
+        }
+
+        FileEntry entry(int file) {
+            return new FileEntry(directory.resolve(names[file]), sizes[file], lastModifiedTimes[file], null, hidden[file]);
+        }
+    }
+
+    /**
+     * The files of the index numbered one directory after the other, which is only valid while the index is not updated
+     */
+    private static class IndexView implements FileIndex {
+
+        private final DirectoryFiles[] directories;
+        private final int[] firstFiles;
+        private final List<String> extensionNames;
+
+        IndexView(List<DirectoryFiles> directoryList, List<String> extensionNames) {
+            this.extensionNames = extensionNames;
+            directories = directoryList.stream().filter(directoryFiles -> directoryFiles.count > 0).toArray(DirectoryFiles[]::new);
+            firstFiles = new int[directories.length + 1];
+            for (int directory = 0; directory < directories.length; directory++)
+                firstFiles[directory + 1] = firstFiles[directory] + directories[directory].count;
+        }
+
+        /**
+         * @return The position in {@code directories} of the directory of a file, looked up by binary search
+         */
+        @Override
+        public int directoryOf(int index) {
+            int low = 0;
+            int high = directories.length - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (firstFiles[middle] <= index)
+                    low = middle;
+                else
+                    high = middle - 1;
+            }
+            return low;
+        }
+
+        @Override
+        public int size() {
+            return firstFiles[directories.length];
+        }
+
+        @Override
+        public long sizeOf(int index) {
+            int directory = directoryOf(index);
+            return directories[directory].sizes[index - firstFiles[directory]];
+        }
+
+        @Override
+        public long lastModifiedOf(int index) {
+            int directory = directoryOf(index);
+            return directories[directory].lastModifiedTimes[index - firstFiles[directory]];
+        }
+
+        @Override
+        public FileEntry entry(int index) {
+            int directory = directoryOf(index);
+            return directories[directory].entry(index - firstFiles[directory]);
+        }
+
+        @Override
+        public int directories() {
+            return directories.length;
+        }
+
+        @Override
+        public Path directoryPath(int directory) {
+            return directories[directory].directory;
+        }
+
+        @Override
+        public int extensions() {
+            return extensionNames.size();
+        }
+
+        @Override
+        public int extensionIdOf(int index) {
+            int directory = directoryOf(index);
+            return directories[directory].extensions[index - firstFiles[directory]];
+        }
+
+        @Override
+        public String extensionName(int extension) {
+            return extensionNames.get(extension);
+        }
+    }
+
+    private static class Snapshot implements FileIndex {
+
+        private final FileEntry[] entries;
+        private final int[] fileDirectories;
+        private final Path[] directoryPaths;
+        private final int[] fileExtensions;
+        private final String[] extensionNames;
+
+        Snapshot(FileEntry[] entries, int[] fileDirectories, Path[] directoryPaths, int[] fileExtensions, String[] extensionNames) {
+            this.entries = entries;
+            this.fileDirectories = fileDirectories;
+            this.directoryPaths = directoryPaths;
+            this.fileExtensions = fileExtensions;
+            this.extensionNames = extensionNames;
+        }
+
+        @Override
+        public int size() {
+            return entries.length;
+        }
+
+        @Override
+        public long sizeOf(int index) {
+            return entries[index].getSize();
+        }
+
+        @Override
+        public long lastModifiedOf(int index) {
+            return entries[index].getLastModified();
+        }
+
+        @Override
+        public FileEntry entry(int index) {
+            return entries[index];
+        }
+
+        @Override
+        public int directories() {
+            return directoryPaths.length;
+        }
+
+        @Override
+        public int directoryOf(int index) {
+            return fileDirectories[index];
+        }
+
+        @Override
+        public Path directoryPath(int directory) {
+            return directoryPaths[directory];
+        }
+
+        @Override
+        public int extensions() {
+            return extensionNames.length;
+        }
+
+        @Override
+        public int extensionIdOf(int index) {
+            return fileExtensions[index];
+        }
+
+        @Override
+        public String extensionName(int extension) {
+            return extensionNames[extension];
+        }
+    }
+}
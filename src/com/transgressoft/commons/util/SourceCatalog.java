@@ -0,0 +1,681 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.*;
+import java.util.*;
+import java.util.function.*;
+
+import static java.nio.file.StandardCopyOption.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Persistent catalog of the files in a directory tree, stored in a binary file in a cache
+ * directory, holding the path, size, modification time and extension of each file.
+ * <p>
+ * The catalog file has a fixed layout of columns that is mapped in memory with {@link FileChannel#map},
+ * so opening it does not depend on the number of files in it, and the entries are only read when they
+ * are requested. After a small header come the columns with the modification time and the path of each
+ * directory, the size, modification time and name of each file, the extensions table, the index of the
+ * first file of each directory, the extension id and the flags of each file and finally a blob with all
+ * the strings. The files of each directory are contiguous, and the strings are stored once, prefixed with
+ * their length in bytes and referenced from the columns by their offset in the blob.
+ * <p>
+ * The catalog is refreshed incrementally: the modification time of every directory is compared
+ * with the one stored in the catalog, and only the directories whose modification time changed
+ * are listed again. Since the modification time of a directory changes when entries are created,
+ * deleted or renamed in it, but not when the content of a file is modified in place, the size of
+ * a file rewritten in place is only updated once its directory is listed again.
+ * Subdirectories pruned by the {@link DirectoryPruning} rules are left out of the catalog, and the rules
+ * are stored in it, so that every directory is listed again once they change and the subdirectories that
+ * are not pruned anymore are cataloged.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class SourceCatalog implements FileIndex {
+
+    private static final int MAGIC = 0x52464343;
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER_SIZE = 48;
+    private static final int STRINGS_WINDOW_BITS = 30;
+    private static final long STRINGS_WINDOW_SIZE = 1L << STRINGS_WINDOW_BITS;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int HIDDEN_FLAG = 1;
+
+    private final Path sourceDirectory;
+    private final Path catalogFile;
+    private Columns columns;
+    private DirectoryPruning pruning;
+    private long generation;
+
+    private SourceCatalog(Path sourceDirectory, Path catalogFile) {
+        this.sourceDirectory = sourceDirectory;
+        this.catalogFile = catalogFile;
+        columns = Columns.EMPTY;
+        pruning = new DirectoryPruning();
+    }
+
+    /**
+     * Opens the catalog of a source directory kept in the given cache directory, mapping its file in memory.
+     * If there is no catalog yet, or it can't be read, an empty catalog is returned that will be filled
+     * on {@link #refresh()}.
+     *
+     * @param sourceDirectory The directory whose files are cataloged
+     * @param cacheDirectory  The directory where the catalog file is stored
+     *
+     * @return The {@code SourceCatalog}
+     *
+     * @throws IOException If the cache directory can't be created
+     */
+    public static SourceCatalog open(Path sourceDirectory, Path cacheDirectory) throws IOException {
+        Path absoluteSource = sourceDirectory.toAbsolutePath().normalize();
+        Files.createDirectories(cacheDirectory);
+        SourceCatalog catalog = new SourceCatalog(absoluteSource, cacheDirectory.resolve(catalogFileName(absoluteSource)));
+        if (Files.exists(catalog.catalogFile)) {
+            try {
+                catalog.map();
+            }
+            catch (IOException | RuntimeException exception) {
+                catalog.columns = Columns.EMPTY;                        // Corrupted or outdated, rebuilt on refresh
+            }
+        }
+        return catalog;
+    }
+
+    private static String catalogFileName(Path sourceDirectory) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(sourceDirectory.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder("catalog-");
+            for (int i = 0; i < 8; i++)
+                name.append(String.format("%02x", hash[i]));
+            return name.append(".bin").toString();
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private void map() throws IOException {
+        try (FileChannel channel = FileChannel.open(catalogFile, READ)) {
+            Columns mappedColumns = Columns.map(channel);
+            if (! sourceDirectory.toString().equals(mappedColumns.string(mappedColumns.sourceDirectoryOffset)))
+                throw new IOException("The catalog belongs to another source directory");
+            columns = mappedColumns;
+        }
+    }
+
+    public Path getSourceDirectory() {
+        return sourceDirectory;
+    }
+
+    public Path getCatalogFile() {
+        return catalogFile;
+    }
+
+    /**
+     * @return The number of times the catalog was written since it was opened, which changes whenever its files change
+     */
+    public long generation() {
+        return generation;
+    }
+
+    public DirectoryPruning getPruning() {
+        return pruning;
+    }
+
+    /**
+     * Sets the rules of the subdirectories that are not descended into on {@link #refresh()}.
+     * The subdirectories that were cataloged before and are pruned now are removed from the catalog,
+     * and the ones that were pruned before and are not pruned now are added to it.
+     *
+     * @param pruning The {@code DirectoryPruning} rules
+     */
+    public void setPruning(DirectoryPruning pruning) {
+        if (pruning == null)
+            throw new IllegalArgumentException("pruning null");
+        this.pruning = pruning;
+    }
+
+    /**
+     * @return The number of files in the catalog
+     */
+    @Override
+    public int size() {
+        return columns.fileCount;
+    }
+
+    /**
+     * @param index The index of a file in the catalog
+     *
+     * @return The size in bytes of the file
+     */
+    @Override
+    public long sizeOf(int index) {
+        return columns.fileSize.get(index);
+    }
+
+    /**
+     * @param index The index of a file in the catalog
+     *
+     * @return The last modified time of the file in milliseconds since the epoch
+     */
+    @Override
+    public long lastModifiedOf(int index) {
+        return columns.fileLastModified.get(index);
+    }
+
+    /**
+     * @param index The index of a file in the catalog
+     *
+     * @return The extension of the file, or {@code null} if its name has no dot
+     */
+    public String extensionOf(int index) {
+        int extensionId = columns.fileExtension.get(index);
+        return extensionId == NO_EXTENSION ? null : columns.string(columns.extensionName.get(extensionId));
+    }
+
+    @Override
+    public int directories() {
+        return columns.directoryCount;
+    }
+
+    @Override
+    public int directoryOf(int index) {
+        return columns.directoryOf(index);
+    }
+
+    @Override
+    public Path directoryPath(int directory) {
+        return sourceDirectory.resolve(columns.string(columns.directoryPath.get(directory)));
+    }
+
+    @Override
+    public int extensions() {
+        return columns.extensionCount;
+    }
+
+    @Override
+    public int extensionIdOf(int index) {
+        return columns.fileExtension.get(index);
+    }
+
+    @Override
+    public String extensionName(int extension) {
+        return columns.string(columns.extensionName.get(extension));
+    }
+
+    /**
+     * Reads a file of the catalog into a {@link FileEntry}
+     *
+     * @param index The index of a file in the catalog
+     *
+     * @return The {@code FileEntry}
+     */
+    @Override
+    public FileEntry entry(int index) {
+        Path path = directoryPath(directoryOf(index)).resolve(columns.string(columns.fileName.get(index)));
+        boolean hidden = (columns.fileFlags.get(index) & HIDDEN_FLAG) != 0;
+        return new FileEntry(path, sizeOf(index), lastModifiedOf(index), null, hidden);
+    }
+
+    /**
+     * Returns a condition that tells if a file of the catalog, given its index, satisfies a filter.
+     * The extension of the files is checked first against the extensions table, so that only
+     * the files whose extension may be accepted are read to be tested by the filter.
+     *
+     * @param filter The {@code FileEntryFilter} condition
+     *
+     * @return The {@code IntPredicate} on the indexes of the files
+     */
+    public IntPredicate eligibility(FileEntryFilter filter) {
+        boolean[] extensionMayBeAccepted = new boolean[columns.extensionCount];
+        for (int id = 0; id < extensionMayBeAccepted.length; id++)
+            extensionMayBeAccepted[id] = filter.acceptsExtension(columns.string(columns.extensionName.get(id)));
+        boolean noExtensionMayBeAccepted = filter.acceptsExtension(null);
+
+        return index -> {
+            int extensionId = columns.fileExtension.get(index);
+            boolean mayBeAccepted = extensionId == NO_EXTENSION ? noExtensionMayBeAccepted : extensionMayBeAccepted[extensionId];
+            return mayBeAccepted && filter.accept(entry(index));
+        };
+    }
+
+    /**
+     * Retrieves the {@link FileEntry} objects of the cataloged files that satisfy a condition
+     *
+     * @param filter The {@code FileEntryFilter} condition
+     *
+     * @return The list containing the entries
+     */
+    public List<FileEntry> entries(FileEntryFilter filter) {
+        List<FileEntry> entries = new ArrayList<>();
+        IntPredicate eligible = eligibility(filter);
+        for (int index = 0; index < size(); index++)
+            if (eligible.test(index))
+                entries.add(entry(index));
+        return entries;
+    }
+
+    /**
+     * Brings the catalog up to date with the source directory, listing again only the directories
+     * whose modification time changed since they were cataloged, or all of them if the pruning rules
+     * changed since the catalog was written. If anything changed, the catalog
+     * file is written again, replacing the previous one atomically, and mapped in memory.
+     *
+     * @return {@code true} if the catalog changed, {@code false} otherwise
+     *
+     * @throws IOException If the catalog file can't be written
+     */
+    public boolean refresh() throws IOException {
+        Map<String, Integer> catalogedDirectories = new HashMap<>();
+        Map<String, List<String>> catalogedSubdirectories = new HashMap<>();
+        for (int directory = 0; directory < columns.directoryCount; directory++) {
+            String relativePath = columns.string(columns.directoryPath.get(directory));
+            catalogedDirectories.put(relativePath, directory);
+            if (! relativePath.isEmpty()) {
+                int separator = relativePath.lastIndexOf('/');
+                String parent = separator == - 1 ? "" : relativePath.substring(0, separator);
+                catalogedSubdirectories.computeIfAbsent(parent, p -> new ArrayList<>()).add(relativePath.substring(separator + 1));
+            }
+        }
+
+        if (! pruning.toString().equals(columns.pruningRules())) {
+            catalogedDirectories.clear();
+            catalogedSubdirectories.clear();                            // Pruned subdirectories were never cataloged
+        }
+
+        List<DirectoryState> directories = new ArrayList<>();
+        boolean changed = refreshDirectory("", sourceDirectory, 0, catalogedDirectories, catalogedSubdirectories, directories);
+        changed |= directories.size() != columns.directoryCount;
+        if (changed)
+            write(directories);
+        return changed;
+    }
+
+    /**
+     * Checks the modification time of a directory and its subdirectories that are not pruned, listing
+     * them only if they changed, and adds their state to the given {@link List} in depth-first order
+     */
+    private boolean refreshDirectory(String relativePath, Path directory, int depth, Map<String, Integer> catalogedDirectories,
+                                     Map<String, List<String>> catalogedSubdirectories, List<DirectoryState> directories) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(directory, BasicFileAttributes.class);
+        }
+        catch (IOException exception) {
+            return true;                                                // Removed since it was cataloged
+        }
+
+        boolean changed = false;
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        Integer catalogedDirectory = catalogedDirectories.get(relativePath);
+        DirectoryState directoryState;
+        if (catalogedDirectory != null && columns.directoryLastModified.get(catalogedDirectory) == lastModified) {
+            List<String> subdirectories = catalogedSubdirectories.getOrDefault(relativePath, Collections.emptyList());
+            directoryState = new DirectoryState(relativePath, lastModified, catalogedDirectory, subdirectories);
+        }
+        else {
+            directoryState = listDirectory(relativePath, directory, lastModified);
+            changed = true;
+        }
+        directories.add(directoryState);
+
+        for (String subdirectory : directoryState.subdirectories) {
+            Path subdirectoryFile = directory.resolve(subdirectory);
+            if (pruning.prunes(sourceDirectory, subdirectoryFile, depth + 1))
+                continue;
+            String subdirectoryPath = relativePath.isEmpty() ? subdirectory : relativePath + "/" + subdirectory;
+            changed |= refreshDirectory(subdirectoryPath, subdirectoryFile, depth + 1, catalogedDirectories,
+                                        catalogedSubdirectories, directories);
+        }
+        return changed;
+    }
+
+    private DirectoryState listDirectory(String relativePath, Path directory, long lastModified) {
+        DirectoryState directoryState = new DirectoryState(relativePath, lastModified, - 1, new ArrayList<>());
+        directoryState.listedFiles = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+            for (Path path : directoryStream) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isDirectory())
+                        directoryState.subdirectories.add(path.getFileName().toString());
+                    else
+                        directoryState.listedFiles.add(new FileEntry(path, attributes, Files.isHidden(path)));
+                }
+                catch (IOException exception) {
+                    // Broken link or removed file
+                }
+            }
+        }
+        catch (IOException | DirectoryIteratorException exception) {
+            // Not readable or removed, keep what was listed
+        }
+        return directoryState;
+    }
+
+    private void write(List<DirectoryState> directories) throws IOException {
+        Path temporaryFile = Files.createTempFile(catalogFile.getParent(), "catalog", ".tmp");
+        try (CatalogWriter writer = new CatalogWriter(catalogFile.getParent())) {
+            writer.addString(sourceDirectory.toString());
+            writer.setPruningRules(pruning.toString());
+            for (DirectoryState directory : directories) {
+                writer.addDirectory(directory.relativePath, directory.lastModified);
+                if (directory.listedFiles != null)
+                    for (FileEntry file : directory.listedFiles)
+                        writer.addFile(file.getName(), file.getSize(), file.getLastModified(), file.isHidden());
+                else
+                    for (int file = columns.firstFileOf(directory.catalogedIndex);
+                         file < columns.firstFileOf(directory.catalogedIndex + 1); file++)
+                        writer.addFile(columns.string(columns.fileName.get(file)), sizeOf(file), lastModifiedOf(file),
+                                       (columns.fileFlags.get(file) & HIDDEN_FLAG) != 0);
+            }
+            writer.writeTo(temporaryFile);
+            Files.move(temporaryFile, catalogFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        map();
+        generation++;
+    }
+
+    private static String extension(String fileName) {
+        int pos = fileName.lastIndexOf('.');
+        return pos == - 1 ? null : fileName.substring(pos + 1);
+    }
+
+    private static class DirectoryState {
+
+        final String relativePath;
+        final long lastModified;
+        final int catalogedIndex;
+        final List<String> subdirectories;
+        List<FileEntry> listedFiles;
+
+        DirectoryState(String relativePath, long lastModified, int catalogedIndex, List<String> subdirectories) {
+            this.relativePath = relativePath;
+            this.lastModified = lastModified;
+            this.catalogedIndex = catalogedIndex;
+            this.subdirectories = subdirectories;
+        }
+    }
+
+    /**
+     * The columns of a catalog file mapped in memory
+     */
+    private static class Columns {
+
+        static final Columns EMPTY = new Columns();
+
+        int directoryCount;
+        int fileCount;
+        int extensionCount;
+        long sourceDirectoryOffset;
+        long pruningRulesOffset = - 1;
+        LongBuffer directoryLastModified;
+        LongBuffer directoryPath;
+        LongBuffer fileSize;
+        LongBuffer fileLastModified;
+        LongBuffer fileName;
+        LongBuffer extensionName;
+        IntBuffer directoryFirstFile;
+        IntBuffer fileExtension;
+        ByteBuffer fileFlags;
+        ByteBuffer[] strings;
+        int lastDirectory;
+
+        private Columns() {
+            directoryFirstFile = IntBuffer.wrap(new int[]{0});
+        }
+
+        static Columns map(FileChannel channel) throws IOException {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION)
+                throw new IOException("Not a catalog file or unsupported format version");
+
+            Columns columns = new Columns();
+            columns.directoryCount = header.getInt();
+            columns.fileCount = header.getInt();
+            columns.extensionCount = header.getInt();
+            header.getInt();
+            long stringsLength = header.getLong();
+            columns.sourceDirectoryOffset = header.getLong();
+            columns.pruningRulesOffset = header.getLong();
+
+            long position = HEADER_SIZE;
+            columns.directoryLastModified = mapColumn(channel, position, columns.directoryCount, Long.BYTES).asLongBuffer();
+            position += (long) columns.directoryCount * Long.BYTES;
+            columns.directoryPath = mapColumn(channel, position, columns.directoryCount, Long.BYTES).asLongBuffer();
+            position += (long) columns.directoryCount * Long.BYTES;
+            columns.fileSize = mapColumn(channel, position, columns.fileCount, Long.BYTES).asLongBuffer();
+            position += (long) columns.fileCount * Long.BYTES;
+            columns.fileLastModified = mapColumn(channel, position, columns.fileCount, Long.BYTES).asLongBuffer();
+            position += (long) columns.fileCount * Long.BYTES;
+            columns.fileName = mapColumn(channel, position, columns.fileCount, Long.BYTES).asLongBuffer();
+            position += (long) columns.fileCount * Long.BYTES;
+            columns.extensionName = mapColumn(channel, position, columns.extensionCount, Long.BYTES).asLongBuffer();
+            position += (long) columns.extensionCount * Long.BYTES;
+            columns.directoryFirstFile = mapColumn(channel, position, columns.directoryCount + 1, Integer.BYTES).asIntBuffer();
+            position += (long) (columns.directoryCount + 1) * Integer.BYTES;
+            columns.fileExtension = mapColumn(channel, position, columns.fileCount, Integer.BYTES).asIntBuffer();
+            position += (long) columns.fileCount * Integer.BYTES;
+            columns.fileFlags = mapColumn(channel, position, columns.fileCount, Byte.BYTES);
+            position += columns.fileCount;
+
+            if (position + stringsLength != channel.size())
+                throw new IOException("Truncated catalog file");
+            int windows = (int) ((stringsLength + STRINGS_WINDOW_SIZE - 1) >>> STRINGS_WINDOW_BITS);
+            columns.strings = new ByteBuffer[windows];
+            for (int window = 0; window < windows; window++) {
+                long windowLength = Math.min(STRINGS_WINDOW_SIZE, stringsLength - ((long) window << STRINGS_WINDOW_BITS));
+                columns.strings[window] = channel.map(FileChannel.MapMode.READ_ONLY, position + ((long) window << STRINGS_WINDOW_BITS), windowLength);
+            }
+            return columns;
+        }
+
+        private static ByteBuffer mapColumn(FileChannel channel, long position, int count, int bytes) throws IOException {
+            long length = (long) count * bytes;
+            if (count < 0 || length > Integer.MAX_VALUE)
+                throw new IOException("Column too large to be mapped");
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+
+        String string(long offset) {
+            ByteBuffer window = strings[(int) (offset >>> STRINGS_WINDOW_BITS)].duplicate();
+            window.position((int) (offset & (STRINGS_WINDOW_SIZE - 1)));
+            byte[] bytes = new byte[window.getShort() & 0xFFFF];
+            window.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return The pruning rules the catalog was written with, or {@code null} if it is empty
+         */
+        String pruningRules() {
+            return pruningRulesOffset == - 1 ? null : string(pruningRulesOffset);
+        }
+
+        int firstFileOf(int directory) {
+            return directoryFirstFile.get(directory);
+        }
+
+        /**
+         * Finds the directory of a file with a binary search, since the files of each directory are contiguous,
+         * unless it is the directory found last time or the next one, as when the files are read in order
+         */
+        int directoryOf(int file) {
+            int hint = lastDirectory;
+            for (int directory = hint; directory < Math.min(hint + 2, directoryCount); directory++)
+                if (firstFileOf(directory) <= file && file < firstFileOf(directory + 1))
+                    return lastDirectory = directory;
+            int low = 0;
+            int high = directoryCount - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (firstFileOf(middle) <= file)
+                    low = middle;
+                else
+                    high = middle - 1;
+            }
+            return lastDirectory = low;
+        }
+    }
+
+    /**
+     * Accumulates the columns of a catalog in memory, while the strings are written to a temporary
+     * file, padding them so that no string crosses the boundary of a mapped window
+     */
+    private static class CatalogWriter implements Closeable {
+
+        private final Path stringsFile;
+        private final DataOutputStream strings;
+        private final Map<String, Integer> extensionIds = new HashMap<>();
+        private long stringsLength;
+        private long pruningRulesOffset;
+        private int directoryCount;
+        private int fileCount;
+        private long[] directoryLastModified = new long[16];
+        private long[] directoryPath = new long[16];
+        private int[] directoryFirstFile = new int[16];
+        private long[] fileSize = new long[1024];
+        private long[] fileLastModified = new long[1024];
+        private long[] fileName = new long[1024];
+        private int[] fileExtension = new int[1024];
+        private byte[] fileFlags = new byte[1024];
+        private long[] extensionName = new long[16];
+
+        CatalogWriter(Path temporaryDirectory) throws IOException {
+            stringsFile = Files.createTempFile(temporaryDirectory, "strings", ".tmp");
+            strings = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(stringsFile), BUFFER_SIZE));
+        }
+
+        long addString(String string) throws IOException {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF)
+                throw new IOException("Name too long to be cataloged: " + string);
+            long windowEnd = (stringsLength | (STRINGS_WINDOW_SIZE - 1)) + 1;
+            if (stringsLength + Short.BYTES + bytes.length > windowEnd) {
+                while (stringsLength < windowEnd) {
+                    strings.write(0);
+                    stringsLength++;
+                }
+            }
+            long offset = stringsLength;
+            strings.writeShort(bytes.length);
+            strings.write(bytes);
+            stringsLength += Short.BYTES + bytes.length;
+            return offset;
+        }
+
+        void setPruningRules(String pruningRules) throws IOException {
+            pruningRulesOffset = addString(pruningRules);
+        }
+
+        void addDirectory(String relativePath, long lastModified) throws IOException {
+            if (directoryCount + 1 >= directoryFirstFile.length) {
+                directoryLastModified = Arrays.copyOf(directoryLastModified, directoryLastModified.length * 2);
+                directoryPath = Arrays.copyOf(directoryPath, directoryPath.length * 2);
+                directoryFirstFile = Arrays.copyOf(directoryFirstFile, directoryFirstFile.length * 2);
+            }
+            directoryLastModified[directoryCount] = lastModified;
+            directoryPath[directoryCount] = addString(relativePath);
+            directoryFirstFile[directoryCount] = fileCount;
+            directoryCount++;
+        }
+
+        void addFile(String name, long size, long lastModified, boolean hidden) throws IOException {
+            if (fileCount == fileSize.length) {
+                int length = fileCount + (fileCount >> 1);
+                fileSize = Arrays.copyOf(fileSize, length);
+                fileLastModified = Arrays.copyOf(fileLastModified, length);
+                fileName = Arrays.copyOf(fileName, length);
+                fileExtension = Arrays.copyOf(fileExtension, length);
+                fileFlags = Arrays.copyOf(fileFlags, length);
+            }
+            fileSize[fileCount] = size;
+            fileLastModified[fileCount] = lastModified;
+            fileName[fileCount] = addString(name);
+            fileExtension[fileCount] = extensionId(extension(name));
+            fileFlags[fileCount] = (byte) (hidden ? HIDDEN_FLAG : 0);
+            fileCount++;
+        }
+
+        private int extensionId(String extension) throws IOException {
+            if (extension == null)
+                return NO_EXTENSION;
+            Integer id = extensionIds.get(extension);
+            if (id == null) {
+                id = extensionIds.size();
+                if (id == extensionName.length)
+                    extensionName = Arrays.copyOf(extensionName, id * 2);
+                extensionName[id] = addString(extension);
+                extensionIds.put(extension, id);
+            }
+            return id;
+        }
+
+        void writeTo(Path file) throws IOException {
+            directoryFirstFile[directoryCount] = fileCount;
+            strings.close();
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeInt(directoryCount);
+                output.writeInt(fileCount);
+                output.writeInt(extensionIds.size());
+                output.writeInt(0);
+                output.writeLong(stringsLength);
+                output.writeLong(0);                                    // The source directory is the first string
+                output.writeLong(pruningRulesOffset);
+
+                writeColumn(output, directoryLastModified, directoryCount);
+                writeColumn(output, directoryPath, directoryCount);
+                writeColumn(output, fileSize, fileCount);
+                writeColumn(output, fileLastModified, fileCount);
+                writeColumn(output, fileName, fileCount);
+                writeColumn(output, extensionName, extensionIds.size());
+                for (int i = 0; i <= directoryCount; i++)
+                    output.writeInt(directoryFirstFile[i]);
+                for (int i = 0; i < fileCount; i++)
+                    output.writeInt(fileExtension[i]);
+                output.write(fileFlags, 0, fileCount);
+                Files.copy(stringsFile, output);
+            }
+        }
+
+        private void writeColumn(DataOutputStream output, long[] column, int count) throws IOException {
+            for (int i = 0; i < count; i++)
+                output.writeLong(column[i]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            strings.close();
+            Files.deleteIfExists(stringsFile);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.util.*;
+
+/**
+ * Table to draw random indexes with probabilities proportional to a set of weights in O(1), built with
+ * Vose's alias method in O(n). Each column of the table holds an index, the probability of drawing it
+ * when the column is chosen, and an alias index that is drawn otherwise.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class AliasTable {
+
+    private final double[] probabilities;
+    private final int[] aliases;
+    private final double totalWeight;
+
+    /**
+     * Builds the table for the given weights. Indexes with weight 0 are never drawn.
+     *
+     * @param weights The weights of the indexes, not negative and with a positive sum
+     *
+     * @throws IllegalArgumentException If a weight is negative or not finite, or all of them are 0
+     */
+    public AliasTable(double[] weights) {
+        int columns = weights.length;
+        double sum = 0;
+        int weighted = - 1;
+        for (int i = 0; i < columns; i++) {
+            if (weights[i] < 0 || Double.isNaN(weights[i]) || Double.isInfinite(weights[i]))
+                throw new IllegalArgumentException("Weights must be finite and not negative");
+            sum += weights[i];
+            if (weights[i] > 0)
+                weighted = i;
+        }
+        if (sum <= 0)
+            throw new IllegalArgumentException("The sum of the weights must be greater than zero");
+        totalWeight = sum;
+        probabilities = new double[columns];
+        aliases = new int[columns];
+
+        int[] small = new int[columns];
+        int[] large = new int[columns];
+        int smallCount = 0;
+        int largeCount = 0;
+        double[] scaled = new double[columns];
+        for (int i = 0; i < columns; i++) {
+            scaled[i] = weights[i] * columns / sum;
+            if (scaled[i] < 1)
+                small[smallCount++] = i;
+            else
+                large[largeCount++] = i;
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[-- smallCount];
+            int more = large[-- largeCount];
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1)
+                small[smallCount++] = more;
+            else
+                large[largeCount++] = more;
+        }
+        while (largeCount > 0)
+            probabilities[large[-- largeCount]] = 1;
+        while (smallCount > 0) {                                        // Only left by rounding errors
+            int less = small[-- smallCount];
+            probabilities[less] = weights[less] > 0 ? 1 : 0;
+            aliases[less] = weighted;
+        }
+    }
+
+    public int size() {
+        return probabilities.length;
+    }
+
+    public double getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Draws a random index with a probability proportional to its weight
+     *
+     * @param random The {@code Random} source
+     *
+     * @return The index drawn
+     */
+    public int sample(Random random) {
+        int column = random.nextInt(probabilities.length);
+        return random.nextDouble() < probabilities[column] ? column : aliases[column];
+    }
+}
@@ -0,0 +1,64 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * The formats of the archives in which {@link RandomFileCopier} can write the selected files
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public enum ArchiveFormat {
+
+    TAR("tar") {
+        @Override
+        public ArchiveWriter newWriter(Path archiveFile) throws IOException {
+            return new TarArchiveWriter(archiveFile);
+        }
+    },
+
+    ZIP("zip") {
+        @Override
+        public ArchiveWriter newWriter(Path archiveFile) throws IOException {
+            return new ZipArchiveWriter(archiveFile);
+        }
+    };
+
+    private final String extension;
+
+    ArchiveFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Creates a new archive file of this format
+     *
+     * @param archiveFile The path of the archive, that is overwritten if it exists
+     *
+     * @return The {@code ArchiveWriter} to add the files to the archive
+     *
+     * @throws IOException If the archive can't be created
+     */
+    public abstract ArchiveWriter newWriter(Path archiveFile) throws IOException;
+}
@@ -0,0 +1,98 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Writes files into archives of an {@link ArchiveFormat}. If a split size is given, a new archive,
+ * or volume, is started whenever the next file would make the current one exceed it. A file bigger
+ * than the split size goes alone into its volume. Only the bytes already written and the size of the
+ * next file are compared, so the headers and the end of the archive can take a volume slightly over it.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class ArchiveSink implements Closeable {
+
+    private final ArchiveFormat format;
+    private final long splitSize;
+    private final VolumePaths volumePaths;
+    private ArchiveWriter currentVolume;
+    private int volumes;
+
+    /**
+     * @param format      The {@code ArchiveFormat} of the volumes
+     * @param splitSize   The maximum bytes of each volume, or 0 to write a single one
+     * @param volumePaths Gives the path of each volume from its number, starting at 1
+     */
+    public ArchiveSink(ArchiveFormat format, long splitSize, VolumePaths volumePaths) {
+        if (splitSize < 0)
+            throw new IllegalArgumentException("splitSize argument less than zero");
+        this.format = format;
+        this.splitSize = splitSize;
+        this.volumePaths = volumePaths;
+    }
+
+    /**
+     * Adds a file to the current volume, starting a new one if it would exceed the split size
+     *
+     * @param entry     The {@code FileEntry} of the file to add
+     * @param entryName The name of the file in the archive
+     *
+     * @throws IOException If the file can't be read or the archive written
+     */
+    public void add(FileEntry entry, String entryName) throws IOException {
+        if (currentVolume == null || exceedsSplitSize(entry.getSize())) {
+            close();
+            currentVolume = format.newWriter(volumePaths.volumePath(++ volumes));
+        }
+        currentVolume.write(entry.getPath(), entryName, entry.getSize(), entry.getLastModified());
+    }
+
+    private boolean exceedsSplitSize(long size) {
+        long written = currentVolume.getWrittenBytes();
+        return splitSize > 0 && written > 0 && written + size > splitSize;
+    }
+
+    /**
+     * @return The number of volumes started
+     */
+    public int getVolumes() {
+        return volumes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (currentVolume != null) {
+            currentVolume.close();
+            currentVolume = null;
+        }
+    }
+
+    /**
+     * Gives the path where each volume is written, that can be a file reserved for it
+     */
+    @FunctionalInterface
+    public interface VolumePaths {
+
+        Path volumePath(int volume) throws IOException;
+    }
+}
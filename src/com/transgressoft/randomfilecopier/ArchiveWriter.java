@@ -0,0 +1,47 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Writes files as entries of a single archive file
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public interface ArchiveWriter extends Closeable {
+
+    /**
+     * Appends the content of a file to the archive. The file is opened before anything of its entry is written,
+     * so that the archive is left as it was if it can't be.
+     *
+     * @param source       The file to add
+     * @param entryName    The name of the entry in the archive
+     * @param size         The size of the file in bytes
+     * @param lastModified The last modified time of the file in milliseconds
+     *
+     * @throws IOException If the file can't be read or the archive written
+     */
+    void write(Path source, String entryName, long size, long lastModified) throws IOException;
+
+    /**
+     * @return The number of bytes written to the archive file so far
+     */
+    long getWrittenBytes();
+}
@@ -0,0 +1,206 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * {@link CopyStrategy} that copies the files with {@link AsynchronousFileChannel}, reading the
+ * next chunk of the file while the current one is being written. The two buffers of each copy
+ * are taken from a {@link DirectBufferPool}, and the reads and writes of all the chunks of a file
+ * complete on the same two {@link CompletionHandler} instances, so that once the pool is warm the
+ * copy of each chunk allocates nothing but what the channel itself does for each operation.
+ * The target is created with the last modified time of the source, and it is deleted if the copy fails.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class AsyncCopy implements CopyStrategy {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final DirectBufferPool bufferPool;
+
+    /**
+     * Default constructor, with buffers of 1 MB for as many concurrent copies as available processors
+     */
+    public AsyncCopy() {
+        this(new DirectBufferPool(DEFAULT_BUFFER_SIZE, 2 * Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param bufferPool The {@code DirectBufferPool} from where the buffers are taken, two for each copy
+     */
+    public AsyncCopy(DirectBufferPool bufferPool) {
+        if (bufferPool == null)
+            throw new IllegalArgumentException("bufferPool null");
+        this.bufferPool = bufferPool;
+    }
+
+    public DirectBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    @Override
+    public void copy(Path source, Path target) throws IOException {
+        try (AsynchronousFileChannel sourceChannel = AsynchronousFileChannel.open(source, READ);
+             AsynchronousFileChannel targetChannel = AsynchronousFileChannel.open(target, CREATE_NEW, WRITE)) {
+            transfer(sourceChannel, targetChannel, sourceChannel.size());
+        }
+        catch (IOException | RuntimeException exception) {
+            if (! (exception instanceof FileAlreadyExistsException))
+                Files.deleteIfExists(target);
+            throw exception;
+        }
+        Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+    }
+
+    /**
+     * Alternates two buffers: while one of them is written to the target, the next chunk is read into the
+     * other. The buffers go back to the pool only if the copy completes, since after a failure an operation
+     * could still be using them.
+     */
+    private void transfer(AsynchronousFileChannel source, AsynchronousFileChannel target, long size) throws IOException {
+        ByteBuffer[] buffers = {bufferPool.acquire(), bufferPool.acquire()};
+        int current = 0;
+        long readPosition = 0;
+        Completion pendingRead = new Completion();
+        PendingWrite pendingWrite = new PendingWrite(target);
+        boolean reading = size > 0;
+        if (reading)
+            readChunk(source, buffers[current], readPosition, size, pendingRead);
+        while (reading) {
+            int read = pendingRead.await();
+            if (read < 0)
+                throw new EOFException("Source file truncated during the copy");
+
+            ByteBuffer buffer = buffers[current];
+            buffer.flip();
+            long writePosition = readPosition;
+            readPosition += read;
+            pendingWrite.complete();
+
+            current = 1 - current;
+            reading = readPosition < size;
+            if (reading)
+                readChunk(source, buffers[current], readPosition, size, pendingRead);
+            pendingWrite.start(buffer, writePosition);
+        }
+        pendingWrite.complete();
+
+        bufferPool.release(buffers[0]);
+        bufferPool.release(buffers[1]);
+    }
+
+    private void readChunk(AsynchronousFileChannel source, ByteBuffer buffer, long position, long size, Completion read) {
+        buffer.clear();
+        if (buffer.remaining() > size - position)
+            buffer.limit((int) (size - position));
+        read.reset();
+        source.read(buffer, position, null, read);
+    }
+
+    /**
+     * A {@link CompletionHandler} that is waited on for the result of one operation at a time,
+     * and reset to be given to the next one
+     */
+    private static class Completion implements CompletionHandler<Integer, Void> {
+
+        private boolean done;
+        private int result;
+        private Throwable failure;
+
+        synchronized void reset() {
+            done = false;
+            failure = null;
+        }
+
+        @Override
+        public synchronized void completed(Integer result, Void attachment) {
+            this.result = result;
+            done = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void failed(Throwable failure, Void attachment) {
+            this.failure = failure;
+            done = true;
+            notifyAll();
+        }
+
+        synchronized int await() throws IOException {
+            try {
+                while (! done)
+                    wait();
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Copy of the file interrupted");
+            }
+            if (failure instanceof IOException)
+                throw (IOException) failure;
+            if (failure != null)
+                throw new IOException(failure);
+            return result;
+        }
+    }
+
+    /**
+     * The write of a buffer to the target, that is issued again with the remaining bytes if it is partial.
+     * The same instance is started again with the next buffer once the previous write is complete.
+     */
+    private static class PendingWrite {
+
+        private final AsynchronousFileChannel target;
+        private final Completion operation;
+        private ByteBuffer buffer;
+        private long position;
+
+        PendingWrite(AsynchronousFileChannel target) {
+            this.target = target;
+            operation = new Completion();
+        }
+
+        void start(ByteBuffer buffer, long position) {
+            this.buffer = buffer;
+            this.position = position;
+            write();
+        }
+
+        private void write() {
+            operation.reset();
+            target.write(buffer, position, null, operation);
+        }
+
+        void complete() throws IOException {
+            if (buffer == null)
+                return;
+            position += operation.await();
+            while (buffer.hasRemaining()) {
+                write();
+                position += operation.await();
+            }
+            buffer = null;
+        }
+    }
+}
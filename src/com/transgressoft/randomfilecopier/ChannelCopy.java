@@ -0,0 +1,106 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Base of the {@link CopyStrategy} implementations that move the content of the files between
+ * two {@link FileChannel} objects. The target is created with the last modified time of the source,
+ * and it is deleted if the copy fails.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public abstract class ChannelCopy implements CopyStrategy {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Override
+    public void copy(Path source, Path target) throws IOException {
+        try (FileChannel sourceChannel = FileChannel.open(source, READ);
+             FileChannel targetChannel = FileChannel.open(target, CREATE_NEW, READ, WRITE)) {
+            transfer(sourceChannel, targetChannel, sourceChannel.size());
+        }
+        catch (IOException | RuntimeException exception) {
+            if (! (exception instanceof FileAlreadyExistsException))
+                Files.deleteIfExists(target);
+            throw exception;
+        }
+        Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+    }
+
+    /**
+     * Copies the content of the source channel to the empty target channel
+     *
+     * @param source The channel of the source file
+     * @param target The channel of the target file
+     * @param size   The size of the source file
+     *
+     * @throws IOException If the content can't be copied
+     */
+    protected abstract void transfer(FileChannel source, FileChannel target, long size) throws IOException;
+
+    /**
+     * Copies the bytes of the source channel from a position until {@code size} to the same
+     * positions of the target channel, through a buffer
+     *
+     * @param source   The channel of the source file
+     * @param target   The channel of the target file
+     * @param position The first position to copy
+     * @param size     The position where the copy ends
+     *
+     * @throws IOException If the content can't be copied
+     */
+    protected void bufferedTransfer(FileChannel source, FileChannel target, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(BUFFER_SIZE, Math.max(size - position, 1)));
+        bufferedTransfer(source, target, position, size, buffer);
+    }
+
+    /**
+     * Copies the bytes of the source channel from a position until {@code size} to the same
+     * positions of the target channel, through the given buffer. Only positional reads and writes
+     * are used, so that several ranges of the same channels can be copied concurrently.
+     *
+     * @param source   The channel of the source file
+     * @param target   The channel of the target file
+     * @param position The first position to copy
+     * @param size     The position where the copy ends
+     * @param buffer   The buffer through which the bytes are copied
+     *
+     * @throws IOException If the content can't be copied
+     */
+    protected void bufferedTransfer(FileChannel source, FileChannel target, long position, long size, ByteBuffer buffer)
+            throws IOException {
+        while (position < size) {
+            buffer.clear();
+            if (buffer.remaining() > size - position)
+                buffer.limit((int) (size - position));
+            int read = source.read(buffer, position);
+            if (read < 0)
+                throw new EOFException("Source file truncated during the copy");
+            buffer.flip();
+            while (buffer.hasRemaining())
+                position += target.write(buffer, position);
+        }
+    }
+}
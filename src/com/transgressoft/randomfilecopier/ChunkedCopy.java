@@ -0,0 +1,111 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * {@link CopyStrategy} that splits each file in chunks that are copied concurrently by several threads,
+ * with positional reads and writes of the same {@link FileChannel} objects. The target file is extended
+ * to its final size before the chunks are copied, so that every chunk is written in place. This way a
+ * single huge file can use the bandwidth of storage that serves several requests at the same time.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class ChunkedCopy extends ChannelCopy {
+
+    public static final long DEFAULT_CHUNK_SIZE = 64L << 20;
+
+    private static final int CHUNK_BUFFER_SIZE = 1 << 20;
+
+    private final int parallelism;
+    private final long chunkSize;
+
+    /**
+     * Default constructor, copies the chunks of 64 MB with as many threads as available processors
+     */
+    public ChunkedCopy() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param parallelism The number of chunks copied at the same time
+     * @param chunkSize   The size of each chunk in bytes
+     *
+     * @throws IllegalArgumentException Thrown if {@code parallelism} or {@code chunkSize} are less than one
+     */
+    public ChunkedCopy(int parallelism, long chunkSize) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism argument less than one");
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize argument less than one");
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    protected void transfer(FileChannel source, FileChannel target, long size) throws IOException {
+        if (size <= chunkSize || parallelism == 1) {
+            bufferedTransfer(source, target, 0, size);
+            return;
+        }
+
+        target.write(ByteBuffer.allocate(1), size - 1);                // Extends the target to its final size
+
+        List<Callable<Void>> chunkCopies = new ArrayList<>();
+        for (long chunkStart = 0; chunkStart < size; chunkStart += chunkSize) {
+            long start = chunkStart;
+            long end = Math.min(chunkStart + chunkSize, size);
+            chunkCopies.add(() -> {
+                int bufferSize = (int) Math.min(CHUNK_BUFFER_SIZE, end - start);
+                bufferedTransfer(source, target, start, end, ByteBuffer.allocateDirect(bufferSize));
+                return null;
+            });
+        }
+
+        ExecutorService chunkExecutor = Executors.newFixedThreadPool(Math.min(parallelism, chunkCopies.size()));
+        try {
+            for (Future<Void> chunkCopy : chunkExecutor.invokeAll(chunkCopies))
+                chunkCopy.get();
+        }
+        catch (ExecutionException exception) {
+            if (exception.getCause() instanceof IOException)
+                throw (IOException) exception.getCause();
+            throw new IOException(exception.getCause());
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Copy of the chunks interrupted");
+        }
+        finally {
+            chunkExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+/**
+ * The {@link CopyStrategy} implementations that can be chosen to copy the files
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public enum CopyMode {
+
+    /**
+     * Copies the files with {@link java.nio.file.Files#copy}
+     */
+    FILES {
+        @Override
+        public CopyStrategy newStrategy() {
+            return new FilesCopy();
+        }
+    },
+
+    /**
+     * Copies the files with {@link java.nio.channels.FileChannel#transferTo}
+     */
+    TRANSFER {
+        @Override
+        public CopyStrategy newStrategy() {
+            return new TransferCopy();
+        }
+    },
+
+    /**
+     * Copies the files mapping them in memory with {@link java.nio.channels.FileChannel#map}
+     */
+    MAPPED {
+        @Override
+        public CopyStrategy newStrategy() {
+            return new MappedCopy();
+        }
+    },
+
+    /**
+     * Copies several chunks of each file at the same time with positional reads and writes
+     */
+    CHUNKED {
+        @Override
+        public CopyStrategy newStrategy() {
+            return new ChunkedCopy();
+        }
+    },
+
+    /**
+     * Copies the files with {@link java.nio.channels.AsynchronousFileChannel}, reading
+     * and writing at the same time with pooled buffers
+     */
+    ASYNC {
+        @Override
+        public CopyStrategy newStrategy() {
+            return new AsyncCopy();
+        }
+    },
+
+    /**
+     * Creates a hard link to each file, copying it with {@link FilesCopy} if it is in another file store
+     */
+    HARDLINK {
+        @Override
+        public CopyStrategy newStrategy() {
+            return new LinkCopy(false, new FilesCopy());
+        }
+    },
+
+    /**
+     * Creates a symbolic link to each file, copying it with {@link FilesCopy} if the link can't be created
+     */
+    SYMLINK {
+        @Override
+        public CopyStrategy newStrategy() {
+            return new LinkCopy(true, new FilesCopy());
+        }
+    };
+
+    public abstract CopyStrategy newStrategy();
+
+    /**
+     * Creates the strategy of this mode for the files of at least {@code threshold} bytes,
+     * copying the smaller ones with {@link FilesCopy}
+     *
+     * @param threshold The size in bytes from which a file is copied with this mode
+     *
+     * @return The {@code CopyStrategy}
+     */
+    public CopyStrategy newStrategy(long threshold) {
+        return this == FILES || threshold <= 0 ? newStrategy() : new ThresholdCopy(new FilesCopy(), newStrategy(), threshold);
+    }
+}
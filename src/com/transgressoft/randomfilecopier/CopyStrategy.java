@@ -0,0 +1,55 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * The way in which {@link RandomFileCopier} copies each selected file to the destination.
+ * The target file must not exist, and the last modified time of the source is kept in the copy.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+@FunctionalInterface
+public interface CopyStrategy {
+
+    /**
+     * Copies a file to a target path
+     *
+     * @param source The file to copy
+     * @param target The path of the copy, that must not exist
+     *
+     * @throws IOException If the file can't be copied
+     */
+    void copy(Path source, Path target) throws IOException;
+
+    /**
+     * Copies a file whose size is already known to a target path, so that a strategy
+     * that depends on it doesn't have to read it again from the file system
+     *
+     * @param source The file to copy
+     * @param target The path of the copy, that must not exist
+     * @param size   The size of the file in bytes
+     *
+     * @throws IOException If the file can't be copied
+     */
+    default void copy(Path source, Path target, long size) throws IOException {
+        copy(source, target);
+    }
+}
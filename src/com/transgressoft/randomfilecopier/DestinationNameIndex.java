@@ -0,0 +1,139 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Index of the file names taken in a destination directory, used to give unique names to the copied
+ * files without checking the file system for every candidate. The directory is listed once, and the
+ * names given are added to the index. Names that are taken are renamed appending (1), (2)... (n+1)
+ * before the extension, and the last number given to each name is kept so that the next file with
+ * the same name continues from it.
+ * <p>
+ * Other processes may create files in the destination after it was listed, so the files are reserved
+ * by creating an empty placeholder with the unique name, which fails atomically if it already exists.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class DestinationNameIndex {
+
+    private final Path directory;
+    private final Set<String> takenNames;
+    private final Map<String, Integer> nextNumbers;
+
+    /**
+     * Creates an empty index that is not backed by a directory, for instance for the entries of an archive
+     */
+    public DestinationNameIndex() {
+        this(null);
+    }
+
+    private DestinationNameIndex(Path directory) {
+        this.directory = directory;
+        takenNames = new HashSet<>();
+        nextNumbers = new HashMap<>();
+    }
+
+    /**
+     * Creates an index with the names of the files that are in a directory
+     *
+     * @param directory The destination directory
+     *
+     * @return The {@code DestinationNameIndex}
+     *
+     * @throws IOException If the directory can't be listed
+     */
+    public static DestinationNameIndex load(Path directory) throws IOException {
+        DestinationNameIndex nameIndex = new DestinationNameIndex(directory);
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+            for (Path path : directoryStream)
+                nameIndex.takenNames.add(path.getFileName().toString());
+        }
+        return nameIndex;
+    }
+
+    /**
+     * Gives a name that is not taken in the destination, the given one if possible, and marks it as taken
+     *
+     * @param fileName The name of the file to copy
+     *
+     * @return The unique name
+     */
+    public synchronized String reserve(String fileName) {
+        String uniqueName = fileName;
+        if (takenNames.contains(fileName)) {
+            int number = nextNumbers.getOrDefault(fileName, 1);
+            while (takenNames.contains(uniqueName = numberedName(fileName, number)))
+                number++;
+            nextNumbers.put(fileName, number + 1);
+        }
+        takenNames.add(uniqueName);
+        return uniqueName;
+    }
+
+    /**
+     * Reserves a unique name in the directory of the index creating an empty file with it. If a file with that
+     * name was created by someone else after the directory was listed, the next unique name is tried.
+     *
+     * @param fileName The name of the file to copy
+     *
+     * @return The path of the empty file created with the unique name
+     *
+     * @throws IOException If the file can't be created
+     */
+    public Path reserveFile(String fileName) throws IOException {
+        if (directory == null)
+            throw new IllegalStateException("Name index without directory");
+        while (true) {
+            Path reservedFile = directory.resolve(reserve(fileName));
+            try {
+                return Files.createFile(reservedFile);
+            }
+            catch (FileAlreadyExistsException exception) {
+                // Created by another writer, the name is already marked as taken
+            }
+        }
+    }
+
+    /**
+     * @param fileName The name of a file
+     *
+     * @return {@code true} if the name is taken in the destination
+     */
+    public synchronized boolean isTaken(String fileName) {
+        return takenNames.contains(fileName);
+    }
+
+    /**
+     * Appends a number between parentheses to a file name, before the extension if it has one
+     *
+     * @param fileName The name of a file
+     * @param number   The number to append
+     *
+     * @return The numbered name, for instance <tt>cover(2).jpg</tt>
+     */
+    public static String numberedName(String fileName, int number) {
+        int pos = fileName.lastIndexOf('.');
+        if (pos < 0)
+            return fileName + "(" + number + ")";
+        return fileName.substring(0, pos) + "(" + number + ")." + fileName.substring(pos + 1);
+    }
+}
@@ -0,0 +1,161 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+/**
+ * Accounts the space available in a destination directory without asking the file system for it every
+ * time. The usable space of its {@link FileStore} is sampled, and the bytes reserved and written by the
+ * copies since then are subtracted from it, until the sample gets older than a second and is taken again.
+ * The sample is only taken again when no reservation is open, since the bytes that the copies in progress
+ * have already written would be subtracted twice, in the new sample and in their reservations.
+ * <p>
+ * The sizes of the files are rounded up to the block size of the file store, since that is what they take
+ * on disk. The block size is only available from Java 10, otherwise 4096 bytes blocks are assumed.
+ * Several copy workers can reserve space at the same time, each reservation fails if there is not space
+ * left for it.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class DestinationSpace {
+
+    private static final long DEFAULT_BLOCK_SIZE = 4096;
+    private static final long SAMPLE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path directory;
+    private FileStore fileStore;
+    private long blockSize;
+    private long sampledUsableSpace;
+    private long sampleTime;
+    private boolean sampled;
+    private long reservedBytes;
+    private long writtenBytes;
+
+    public DestinationSpace(Path directory) {
+        this.directory = directory;
+        blockSize = DEFAULT_BLOCK_SIZE;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return The block size of the file store of the directory, once its space was sampled
+     */
+    public synchronized long getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Rounds up a file size to the block size of the file store of the directory
+     *
+     * @param size The size of a file in bytes
+     *
+     * @return The bytes that the file takes on disk
+     */
+    public synchronized long sizeOnDisk(long size) {
+        long remainder = size % blockSize;
+        return remainder == 0 ? size : size + blockSize - remainder;
+    }
+
+    /**
+     * @return The bytes that are available in the directory, sampling its usable space if the sample is too old
+     *         and there are no copies in progress
+     */
+    public synchronized long available() {
+        if (! sampled || (reservedBytes == 0 && System.nanoTime() - sampleTime > SAMPLE_INTERVAL))
+            sample();
+        return Math.max(0, sampledUsableSpace - writtenBytes - reservedBytes);
+    }
+
+    /**
+     * Samples again the usable space of the directory, forgetting the bytes written since the previous sample
+     *
+     * @throws IllegalStateException If there is space reserved for copies in progress
+     */
+    public synchronized void sample() {
+        if (reservedBytes > 0)
+            throw new IllegalStateException("The space can't be sampled while there are copies in progress");
+        try {
+            if (fileStore == null) {
+                fileStore = Files.getFileStore(directory);
+                blockSize = blockSizeOf(fileStore);
+            }
+            sampledUsableSpace = fileStore.getUsableSpace();
+        }
+        catch (IOException exception) {
+            sampledUsableSpace = 0;                                     // The directory does not exist
+        }
+        sampleTime = System.nanoTime();
+        sampled = true;
+        writtenBytes = 0;
+    }
+
+    /**
+     * Reserves the space of a file that is about to be written
+     *
+     * @param size The size of the file in bytes
+     *
+     * @return {@code true} if there was space available for it, {@code false} otherwise
+     */
+    public synchronized boolean reserve(long size) {
+        long bytesOnDisk = sizeOnDisk(size);
+        if (bytesOnDisk > available())
+            return false;
+        reservedBytes += bytesOnDisk;
+        return true;
+    }
+
+    /**
+     * Marks the space reserved for a file as written
+     *
+     * @param size The size of the file in bytes
+     */
+    public synchronized void written(long size) {
+        long bytesOnDisk = sizeOnDisk(size);
+        reservedBytes -= bytesOnDisk;
+        writtenBytes += bytesOnDisk;
+        if (reservedBytes == 0 && System.nanoTime() - sampleTime > SAMPLE_INTERVAL)
+            sample();
+    }
+
+    /**
+     * Frees the space reserved for a file that was not written
+     *
+     * @param size The size of the file in bytes
+     */
+    public synchronized void release(long size) {
+        reservedBytes -= sizeOnDisk(size);
+    }
+
+    private static long blockSizeOf(FileStore fileStore) {
+        try {
+            Method getBlockSize = FileStore.class.getMethod("getBlockSize");
+            long blockSize = (long) getBlockSize.invoke(fileStore);
+            return blockSize > 0 ? blockSize : DEFAULT_BLOCK_SIZE;
+        }
+        catch (ReflectiveOperationException | UnsupportedOperationException exception) {
+            return DEFAULT_BLOCK_SIZE;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.nio.*;
+import java.util.concurrent.*;
+
+/**
+ * Pool of direct {@link ByteBuffer} objects of the same size, so that copying many files
+ * does not allocate new buffers once the pool is warm. At most {@code maxBuffers} buffers are
+ * retained; if more are acquired at the same time, the additional ones are allocated and
+ * dropped when they are released.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+
+    /**
+     * @param bufferSize The capacity of each buffer in bytes
+     * @param maxBuffers The maximum number of buffers retained in the pool
+     *
+     * @throws IllegalArgumentException Thrown if {@code bufferSize} or {@code maxBuffers} are less than one
+     */
+    public DirectBufferPool(int bufferSize, int maxBuffers) {
+        if (bufferSize < 1 || maxBuffers < 1)
+            throw new IllegalArgumentException("bufferSize and maxBuffers must be greater than zero");
+        this.bufferSize = bufferSize;
+        freeBuffers = new ArrayBlockingQueue<>(maxBuffers);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return A cleared buffer from the pool, or a new one if all of them are in use
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null)
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. It must not be used afterwards.
+     *
+     * @param buffer The buffer that was acquired from this pool
+     */
+    public void release(ByteBuffer buffer) {
+        freeBuffers.offer(buffer);
+    }
+
+    /**
+     * @return The number of buffers ready to be acquired without allocating a new one
+     */
+    public int available() {
+        return freeBuffers.size();
+    }
+}
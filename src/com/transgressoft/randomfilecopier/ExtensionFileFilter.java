@@ -16,6 +16,8 @@
 
 package com.transgressoft.randomfilecopier;
 
+import com.transgressoft.commons.util.*;
+
 import java.io.*;
 import java.util.*;
 
@@ -23,14 +25,22 @@ import java.util.*;
  * This class implements <code>{@link java.io.FileFilter}</code> to
  * accept a file with some of the given extensionsToFilter. If no extensionsToFilter are given
  * the file is accepted. The extensionsToFilter must be given without the dot.
+ * It also implements <code>{@link FileEntryFilter}</code>, evaluating the same condition
+ * on the attributes already read during a directory scan.
+ * <p>
+ * The extensions are compiled into a trie of their reversed characters, so the end of each
+ * file name is matched in place, without allocating a substring or comparing it with every
+ * extension. Extensions of several parts, like <tt>tar.gz</tt>, are supported.
  *
  * @author Octavio Calleya
  * @version 0.2.6
  */
-public class ExtensionFileFilter implements FileFilter {
+public class ExtensionFileFilter implements FileFilter, FileEntryFilter {
 
     private String[] extensionsToFilter;
     private int numExtensions;
+    private boolean ignoreCase;
+    private volatile SuffixTrie suffixTrie;
 
     public ExtensionFileFilter(String... extensionsToFilter) {
         this.extensionsToFilter = extensionsToFilter;
@@ -51,6 +61,7 @@ public class ExtensionFileFilter implements FileFilter {
         if (! contains) {
             ensureArrayLength();
             extensionsToFilter[numExtensions++] = extension;
+            suffixTrie = null;
         }
     }
 
@@ -68,6 +79,7 @@ public class ExtensionFileFilter implements FileFilter {
                 numExtensions--;
             }
         extensionsToFilter = Arrays.copyOf(extensionsToFilter, numExtensions);
+        suffixTrie = null;
     }
 
     public String[] getExtensionsToFilter() {
@@ -82,31 +94,159 @@ public class ExtensionFileFilter implements FileFilter {
             this.extensionsToFilter = extensionsToFilter;
         }
         numExtensions = this.extensionsToFilter.length;
+        suffixTrie = null;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * Sets if the extensions of the files are compared with the given ones ignoring the case
+     *
+     * @param ignoreCase {@code true} to ignore the case, {@code false} otherwise
+     */
+    public void setIgnoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        suffixTrie = null;
     }
 
     @Override
     public boolean accept(File pathname) {
-        boolean res = false;
-        if (! pathname.isDirectory() && ! pathname.isHidden()) {
-            int pos = pathname.getName().lastIndexOf('.');
-            if (pos != - 1) {
-                String extension = pathname.getName().substring(pos + 1);
-                if (numExtensions == 0) {
-                    res = true;
-                }
-                else {
-                    res = hasExtension(extension);
+        return ! pathname.isDirectory() && ! pathname.isHidden() && acceptsName(pathname.getName());
+    }
+
+    @Override
+    public boolean accept(FileEntry entry) {
+        return ! entry.isHidden() && acceptsName(entry.getName());
+    }
+
+    @Override
+    public boolean acceptsExtension(String extension) {
+        return extension != null && (numExtensions == 0 || suffixTrie().endsExtension(extension));
+    }
+
+    private boolean acceptsName(String fileName) {
+        if (numExtensions == 0)
+            return fileName.lastIndexOf('.') != - 1;
+        return suffixTrie().matchesName(fileName);
+    }
+
+    public boolean hasExtension(String extension) {
+        return suffixTrie().isExtension(extension);
+    }
+
+    private SuffixTrie suffixTrie() {
+        SuffixTrie trie = suffixTrie;
+        if (trie == null)
+            suffixTrie = trie = new SuffixTrie(extensionsToFilter, ignoreCase);
+        return trie;
+    }
+
+    /**
+     * Trie of the characters of the extensions from the last to the first one. Each node keeps the characters
+     * that follow it in two parallel arrays, and whether an extension ends on it. A file name matches when, walking
+     * its characters backwards, a dot is found right after the node where an extension ends.
+     */
+    private static class SuffixTrie {
+
+        private static final int ROOT = 0;
+
+        private char[][] labels;
+        private int[][] children;
+        private boolean[] extensionEnds;
+        private int size;
+        private final boolean ignoreCase;
+
+        SuffixTrie(String[] extensions, boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+            labels = new char[8][];
+            children = new int[8][];
+            extensionEnds = new boolean[8];
+            newNode();
+            for (String extension : extensions)
+                if (extension != null)
+                    add(extension);
+        }
+
+        private int newNode() {
+            if (size == labels.length) {
+                labels = Arrays.copyOf(labels, 2 * size);
+                children = Arrays.copyOf(children, 2 * size);
+                extensionEnds = Arrays.copyOf(extensionEnds, 2 * size);
+            }
+            labels[size] = new char[0];
+            children[size] = new int[0];
+            return size++;
+        }
+
+        private void add(String extension) {
+            int node = ROOT;
+            for (int i = extension.length() - 1; i >= 0; i--) {
+                char c = fold(extension.charAt(i));
+                int child = child(node, c);
+                if (child == - 1) {
+                    child = newNode();
+                    int fanOut = labels[node].length;
+                    labels[node] = Arrays.copyOf(labels[node], fanOut + 1);
+                    children[node] = Arrays.copyOf(children[node], fanOut + 1);
+                    labels[node][fanOut] = c;
+                    children[node][fanOut] = child;
                 }
+                node = child;
             }
+            extensionEnds[node] = true;
         }
-        return res;
-    }
 
-    public boolean hasExtension(String extension) {
-        for (String someExtension : extensionsToFilter)
-            if (extension.equals(someExtension)) {
-                return true;
+        private char fold(char c) {
+            return ignoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+        }
+
+        private int child(int node, char c) {
+            char[] nodeLabels = labels[node];
+            for (int i = 0; i < nodeLabels.length; i++)
+                if (nodeLabels[i] == c)
+                    return children[node][i];
+            return - 1;
+        }
+
+        /**
+         * Walks the characters of a file name backwards, returning {@code true}
+         * as soon as a dot follows a node where an extension ends
+         */
+        boolean matchesName(String fileName) {
+            int node = ROOT;
+            for (int i = fileName.length() - 1; i >= 0 && node != - 1; i--) {
+                char c = fold(fileName.charAt(i));
+                if (c == '.' && node != ROOT && extensionEnds[node])
+                    return true;
+                node = child(node, c);
             }
-        return false;
+            return false;
+        }
+
+        /**
+         * Returns {@code true} if the given string is one of the extensions
+         */
+        boolean isExtension(String extension) {
+            int node = walk(extension);
+            return node != - 1 && extensionEnds[node];
+        }
+
+        /**
+         * Returns {@code true} if the given string is the last part of any of the extensions,
+         * that is, if a file whose name ends with it can match one of them
+         */
+        boolean endsExtension(String lastPart) {
+            int node = walk(lastPart);
+            return node != - 1 && (extensionEnds[node] || child(node, '.') != - 1);
+        }
+
+        private int walk(String suffix) {
+            int node = ROOT;
+            for (int i = suffix.length() - 1; i >= 0 && node != - 1; i--)
+                node = child(node, fold(suffix.charAt(i)));
+            return node;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * The conditions that the files in the source directory must satisfy to be copied: their extensions, compared
+ * ignoring the case, globs or regular expressions matching their names, and ranges of their size and last
+ * modified time. Hidden files are never accepted. Several extensions, globs or regular expressions are
+ * alternatives, while the different kinds of conditions must be satisfied all together. Files without
+ * extension are not accepted, unless no extension is given and a glob or a regular expression decides
+ * which names are.
+ * <p>
+ * The conditions are compiled once into a {@link FileEntryFilter} that evaluates them on the attributes read
+ * during the directory walk, without accessing the file system, and checking the cheapest ones first.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class FileCriteria {
+
+    private final ExtensionFileFilter extensionFilter;
+    private final List<String> nameGlobs;
+    private final List<String> nameRegexes;
+    private long minSize;
+    private long maxSize;
+    private long modifiedFrom;
+    private long modifiedTo;
+
+    public FileCriteria() {
+        extensionFilter = new ExtensionFileFilter();
+        extensionFilter.setIgnoreCase(true);
+        nameGlobs = new ArrayList<>();
+        nameRegexes = new ArrayList<>();
+        minSize = 0;
+        maxSize = Long.MAX_VALUE;
+        modifiedFrom = Long.MIN_VALUE;
+        modifiedTo = Long.MAX_VALUE;
+    }
+
+    public String[] getExtensions() {
+        return extensionFilter.getExtensionsToFilter();
+    }
+
+    /**
+     * Sets the extensions of the files to accept, ignoring the case. If no extension is given,
+     * any file with an extension is accepted.
+     *
+     * @param extensions A String array containing the extensions without the initial dot '.'
+     */
+    public void setExtensions(String... extensions) {
+        extensionFilter.setExtensionsToFilter(extensions);
+    }
+
+    /**
+     * Adds a glob that the names of the files can match, with the syntax of {@link FileSystem#getPathMatcher}
+     *
+     * @param glob The glob, for instance <tt>*.{jpg,png}</tt>
+     */
+    public void addNameGlob(String glob) {
+        nameGlobs.add(glob);
+    }
+
+    /**
+     * Adds a regular expression that the whole names of the files can match
+     *
+     * @param regex The regular expression
+     */
+    public void addNameRegex(String regex) {
+        nameRegexes.add(regex);
+    }
+
+    /**
+     * Sets the range of sizes of the files to accept
+     *
+     * @param minSize The minimum size in bytes, inclusive
+     * @param maxSize The maximum size in bytes, inclusive
+     */
+    public void setSizeRange(long minSize, long maxSize) {
+        if (minSize > maxSize)
+            throw new IllegalArgumentException("Minimum size greater than maximum size");
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Sets the range of last modified times of the files to accept
+     *
+     * @param modifiedFrom The first time in milliseconds since the epoch, inclusive
+     * @param modifiedTo   The last time in milliseconds since the epoch, exclusive
+     */
+    public void setModifiedRange(long modifiedFrom, long modifiedTo) {
+        if (modifiedFrom > modifiedTo)
+            throw new IllegalArgumentException("Modified range starts after it ends");
+        this.modifiedFrom = modifiedFrom;
+        this.modifiedTo = modifiedTo;
+    }
+
+    /**
+     * Compiles the conditions into a {@link FileEntryFilter}, leaving out the ones that accept any file
+     *
+     * @return The {@code FileEntryFilter}
+     *
+     * @throws PatternSyntaxException If a glob or a regular expression is not valid
+     */
+    public FileEntryFilter compile() {
+        List<FileEntryFilter> conditions = new ArrayList<>();
+        conditions.add(entry -> ! entry.isHidden());
+        if (minSize > 0 || maxSize < Long.MAX_VALUE)
+            conditions.add(entry -> entry.getSize() >= minSize && entry.getSize() <= maxSize);
+        if (modifiedFrom > Long.MIN_VALUE || modifiedTo < Long.MAX_VALUE)
+            conditions.add(entry -> entry.getLastModified() >= modifiedFrom && entry.getLastModified() < modifiedTo);
+
+        boolean filtersExtensions = extensionFilter.getExtensionsToFilter().length > 0
+                || (nameGlobs.isEmpty() && nameRegexes.isEmpty());
+        if (filtersExtensions)
+            conditions.add(extensionFilter);
+
+        if (! nameGlobs.isEmpty()) {
+            FileSystem fileSystem = FileSystems.getDefault();
+            PathMatcher[] globMatchers = nameGlobs.stream().map(glob -> fileSystem.getPathMatcher("glob:" + glob))
+                                                  .toArray(PathMatcher[]::new);
+            conditions.add(entry -> {
+                Path fileName = entry.getPath().getFileName();
+                for (PathMatcher globMatcher : globMatchers)
+                    if (globMatcher.matches(fileName))
+                        return true;
+                return false;
+            });
+        }
+
+        if (! nameRegexes.isEmpty()) {
+            Pattern[] patterns = nameRegexes.stream().map(Pattern::compile).toArray(Pattern[]::new);
+            conditions.add(entry -> {
+                String fileName = entry.getName();
+                for (Pattern pattern : patterns)
+                    if (pattern.matcher(fileName).matches())
+                        return true;
+                return false;
+            });
+        }
+        return new CompiledFilter(conditions.toArray(new FileEntryFilter[0]), filtersExtensions ? extensionFilter : null);
+    }
+
+    private static class CompiledFilter implements FileEntryFilter {
+
+        private final FileEntryFilter[] conditions;
+        private final FileEntryFilter extensionCondition;
+
+        CompiledFilter(FileEntryFilter[] conditions, FileEntryFilter extensionCondition) {
+            this.conditions = conditions;
+            this.extensionCondition = extensionCondition;
+        }
+
+        @Override
+        public boolean accept(FileEntry entry) {
+            for (FileEntryFilter condition : conditions)
+                if (! condition.accept(entry))
+                    return false;
+            return true;
+        }
+
+        @Override
+        public boolean acceptsExtension(String extension) {
+            return extensionCondition == null || extensionCondition.acceptsExtension(extension);
+        }
+    }
+}
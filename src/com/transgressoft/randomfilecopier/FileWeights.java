@@ -0,0 +1,274 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * The weights that make some files in the source directory more likely to be selected than others: by their
+ * extension, compared ignoring the case, by their recency, by their size, or by the directory where they are.
+ * The weight of a file is the product of the weights of each kind, and 1 if no weight is set, so that all the
+ * files are equally likely.
+ * <p>
+ * The recency weight halves each time a given half-life passes since the file was modified, and the size
+ * weight is the size raised to a given exponent. The weight of a directory applies to all the files under it,
+ * unless a subdirectory has its own weight.
+ * <p>
+ * The weights of the files in an index are computed as logarithms and divided by the largest one, so that
+ * files modified many half-lives ago, or weighted by a large size exponent, neither underflow to 0 nor overflow.
+ * A file keeps a weight of at least {@link Double#MIN_NORMAL} unless one of its weights was set to 0, so that it
+ * can still be selected once the files with more weight are.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class FileWeights {
+
+    private final Map<String, Double> extensionWeights;
+    private final Map<Path, Double> directoryWeights;
+    private final Map<Path, Double> resolvedDirectoryWeights;
+    private long halfLife;
+    private double sizeExponent;
+    private int modifications;
+
+    public FileWeights() {
+        extensionWeights = new HashMap<>();
+        directoryWeights = new HashMap<>();
+        resolvedDirectoryWeights = new HashMap<>();
+        halfLife = 0;
+        sizeExponent = 0;
+    }
+
+    /**
+     * Sets the weight of the files with an extension
+     *
+     * @param extension The extension without the initial dot '.'
+     * @param weight    The weight, not negative
+     */
+    public void setExtensionWeight(String extension, double weight) {
+        extensionWeights.put(extension.toLowerCase(), checkedWeight(weight));
+        modifications++;
+    }
+
+    /**
+     * Sets the weight of the files under a directory
+     *
+     * @param directory The directory
+     * @param weight    The weight, not negative
+     */
+    public void setDirectoryWeight(Path directory, double weight) {
+        directoryWeights.put(directory.toAbsolutePath().normalize(), checkedWeight(weight));
+        resolvedDirectoryWeights.clear();
+        modifications++;
+    }
+
+    /**
+     * Reads the weights of directories from a file with a line <tt>directory=weight</tt> for each one. The
+     * directories are relative to the source directory, blank lines and lines starting with '#' are ignored.
+     *
+     * @param sourceDirectory The source directory
+     * @param weightFile      The file with the weights
+     *
+     * @throws IOException              If the file can't be read
+     * @throws IllegalArgumentException If a line is not valid
+     */
+    public void loadDirectoryWeights(Path sourceDirectory, Path weightFile) throws IOException {
+        List<String> lines = Files.readAllLines(weightFile, StandardCharsets.UTF_8);
+        for (int number = 1; number <= lines.size(); number++) {
+            String line = lines.get(number - 1).trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            int separator = line.lastIndexOf('=');
+            try {
+                if (separator == - 1)
+                    throw new NumberFormatException();
+                double weight = Double.parseDouble(line.substring(separator + 1).trim());
+                setDirectoryWeight(sourceDirectory.resolve(line.substring(0, separator).trim()), weight);
+            }
+            catch (NumberFormatException exception) {
+                throw new IllegalArgumentException("Invalid directory weight in line " + number + " of " + weightFile);
+            }
+        }
+    }
+
+    public long getHalfLife() {
+        return halfLife;
+    }
+
+    /**
+     * Sets the time after which the recency weight of a file halves
+     *
+     * @param halfLife The half-life in milliseconds, or 0 not to weight the files by their recency
+     */
+    public void setHalfLife(long halfLife) {
+        if (halfLife < 0)
+            throw new IllegalArgumentException("Half-life must not be negative");
+        this.halfLife = halfLife;
+        modifications++;
+    }
+
+    public double getSizeExponent() {
+        return sizeExponent;
+    }
+
+    /**
+     * Sets the exponent to which the size of a file is raised to give its size weight
+     *
+     * @param sizeExponent The exponent, or 0 not to weight the files by their size
+     */
+    public void setSizeExponent(double sizeExponent) {
+        if (Double.isNaN(sizeExponent) || Double.isInfinite(sizeExponent))
+            throw new IllegalArgumentException("Size exponent must be a finite number");
+        this.sizeExponent = sizeExponent;
+        modifications++;
+    }
+
+    /**
+     * @return The number of times the weights were set, so that the weights computed with them can be kept until they change
+     */
+    int modifications() {
+        return modifications;
+    }
+
+    /**
+     * @return {@code true} if no weight is set and all the files are equally likely, {@code false} otherwise
+     */
+    public boolean isUniform() {
+        return extensionWeights.isEmpty() && directoryWeights.isEmpty() && halfLife == 0 && sizeExponent == 0;
+    }
+
+    /**
+     * Computes the weights of all the files in a {@link FileIndex}, working out the weight of each directory
+     * and extension once, by their ids in the index, so that no entry is read
+     *
+     * @param files The {@code FileIndex}
+     * @param now   The current time in milliseconds, from which the recency is measured
+     *
+     * @return The weights of the files, by their position in the index
+     */
+    public double[] weightsOf(FileIndex files, long now) {
+        double[] extensionLogWeights = null;
+        if (! extensionWeights.isEmpty()) {
+            extensionLogWeights = new double[files.extensions()];
+            Arrays.fill(extensionLogWeights, Double.NaN);
+        }
+        double[] directoryLogWeights = null;
+        if (! directoryWeights.isEmpty()) {
+            directoryLogWeights = new double[files.directories()];
+            Arrays.fill(directoryLogWeights, Double.NaN);
+        }
+
+        double[] weights = new double[files.size()];
+        double largestLogWeight = Double.NEGATIVE_INFINITY;
+        for (int index = 0; index < weights.length; index++) {
+            weights[index] = logRecencyWeight(files.lastModifiedOf(index), now) + logSizeWeight(files.sizeOf(index));
+            if (extensionLogWeights != null) {
+                int extension = files.extensionIdOf(index);
+                if (extension != FileIndex.NO_EXTENSION) {
+                    if (Double.isNaN(extensionLogWeights[extension]))
+                        extensionLogWeights[extension] = Math.log(extensionWeight(files.extensionName(extension)));
+                    weights[index] += extensionLogWeights[extension];
+                }
+            }
+            if (directoryLogWeights != null) {
+                int directory = files.directoryOf(index);
+                if (Double.isNaN(directoryLogWeights[directory]))
+                    directoryLogWeights[directory] = Math.log(directoryWeight(files.directoryPath(directory).toAbsolutePath().normalize()));
+                weights[index] += directoryLogWeights[directory];
+            }
+            largestLogWeight = Math.max(largestLogWeight, weights[index]);
+        }
+        for (int index = 0; index < weights.length; index++) {
+            if (weights[index] == Double.NEGATIVE_INFINITY)
+                weights[index] = 0;
+            else
+                weights[index] = Math.max(Double.MIN_NORMAL, Math.exp(weights[index] - largestLogWeight));
+        }
+        return weights;
+    }
+
+    /**
+     * Computes the weight of a file
+     *
+     * @param entry The {@code FileEntry} of the file
+     * @param now   The current time in milliseconds, from which the recency is measured
+     *
+     * @return The weight of the file
+     */
+    public double weightOf(FileEntry entry, long now) {
+        return Math.exp(logWeightOf(entry, now));
+    }
+
+    /**
+     * Computes the natural logarithm of the weight of a file, adding the logarithms of the weights of each kind
+     */
+    private double logWeightOf(FileEntry entry, long now) {
+        double logWeight = logRecencyWeight(entry.getLastModified(), now) + logSizeWeight(entry.getSize());
+        if (! extensionWeights.isEmpty()) {
+            String name = entry.getName();
+            int dot = name.lastIndexOf('.');
+            if (dot != - 1)
+                logWeight += Math.log(extensionWeight(name.substring(dot + 1)));
+        }
+        if (! directoryWeights.isEmpty())
+            logWeight += Math.log(directoryWeight(entry.getPath().toAbsolutePath().getParent()));
+        return logWeight;
+    }
+
+    private double extensionWeight(String extension) {
+        return extensionWeights.getOrDefault(extension.toLowerCase(), 1.0);
+    }
+
+    private double logRecencyWeight(long lastModified, long now) {
+        if (halfLife == 0)
+            return 0;
+        return - Math.log(2) * Math.max(0, now - lastModified) / halfLife;
+    }
+
+    private double logSizeWeight(long size) {
+        if (sizeExponent == 0)
+            return 0;
+        return sizeExponent * Math.log(Math.max(1, size));
+    }
+
+    /**
+     * Finds the weight of the nearest directory with a weight up from the given one, caching it for the next files
+     */
+    private double directoryWeight(Path directory) {
+        if (directory == null)
+            return 1;
+        Double weight = resolvedDirectoryWeights.get(directory);
+        if (weight == null) {
+            weight = directoryWeights.get(directory);
+            if (weight == null)
+                weight = directoryWeight(directory.getParent());
+            resolvedDirectoryWeights.put(directory, weight);
+        }
+        return weight;
+    }
+
+    private static double checkedWeight(double weight) {
+        if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight))
+            throw new IllegalArgumentException("Weights must be finite and not negative");
+        return weight;
+    }
+}
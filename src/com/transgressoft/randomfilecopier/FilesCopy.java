@@ -0,0 +1,39 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+
+import static java.nio.file.StandardCopyOption.*;
+
+/**
+ * {@link CopyStrategy} that copies the files with {@link Files#copy(Path, Path, CopyOption...)},
+ * copying also their attributes.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class FilesCopy implements CopyStrategy {
+
+    private final CopyOption[] copyOptions = new CopyOption[]{COPY_ATTRIBUTES};
+
+    @Override
+    public void copy(Path source, Path target) throws IOException {
+        Files.copy(source, target, copyOptions);
+    }
+}
@@ -0,0 +1,111 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * {@link CopyStrategy} that creates a hard link, or a symbolic link, to the source file instead of copying
+ * its content. Hard links can only be created within the same {@link FileStore}, so when the source and the
+ * target are in different ones, or the link can't be created, the file is copied with a fallback strategy.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class LinkCopy implements CopyStrategy {
+
+    private final boolean symbolic;
+    private final CopyStrategy fallbackStrategy;
+    private final Map<Path, FileStore> directoryStores;
+
+    /**
+     * @param symbolic         {@code true} to create symbolic links, {@code false} to create hard links
+     * @param fallbackStrategy The {@code CopyStrategy} used when the link can't be created
+     */
+    public LinkCopy(boolean symbolic, CopyStrategy fallbackStrategy) {
+        if (fallbackStrategy == null)
+            throw new IllegalArgumentException("fallbackStrategy null");
+        this.symbolic = symbolic;
+        this.fallbackStrategy = fallbackStrategy;
+        directoryStores = new ConcurrentHashMap<>();
+    }
+
+    public boolean isSymbolic() {
+        return symbolic;
+    }
+
+    @Override
+    public void copy(Path source, Path target) throws IOException {
+        if (symbolic ? createSymbolicLink(source, target) : createHardLink(source, target))
+            return;
+        fallbackStrategy.copy(source, target);
+    }
+
+    @Override
+    public void copy(Path source, Path target, long size) throws IOException {
+        if (symbolic ? createSymbolicLink(source, target) : createHardLink(source, target))
+            return;
+        fallbackStrategy.copy(source, target, size);
+    }
+
+    private boolean createSymbolicLink(Path source, Path target) throws IOException {
+        try {
+            Files.createSymbolicLink(target, source.toAbsolutePath());
+            return true;
+        }
+        catch (FileAlreadyExistsException exception) {
+            throw exception;
+        }
+        catch (IOException | UnsupportedOperationException exception) {
+            return false;
+        }
+    }
+
+    private boolean createHardLink(Path source, Path target) throws IOException {
+        if (! sameFileStore(source, target))
+            return false;
+        try {
+            Files.createLink(target, source);
+            return true;
+        }
+        catch (FileAlreadyExistsException exception) {
+            throw exception;
+        }
+        catch (IOException | UnsupportedOperationException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Compares the {@link FileStore} of the directories of both files, looking up each directory only once
+     */
+    private boolean sameFileStore(Path source, Path target) throws IOException {
+        return fileStoreOf(source.toAbsolutePath().getParent()).equals(fileStoreOf(target.toAbsolutePath().getParent()));
+    }
+
+    private FileStore fileStoreOf(Path directory) throws IOException {
+        FileStore fileStore = directoryStores.get(directory);
+        if (fileStore == null) {
+            fileStore = Files.getFileStore(directory);
+            directoryStores.put(directory, fileStore);
+        }
+        return fileStore;
+    }
+}
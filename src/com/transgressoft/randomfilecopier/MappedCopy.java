@@ -0,0 +1,66 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * {@link CopyStrategy} that maps the source and the target files in memory, moving the content
+ * from one mapping to the other in windows of a fixed size, without read or write calls.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class MappedCopy extends ChannelCopy {
+
+    public static final long DEFAULT_WINDOW_SIZE = 256L << 20;
+
+    private final long windowSize;
+
+    public MappedCopy() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructor with the size of the windows in which the files are mapped
+     *
+     * @param windowSize The number of bytes mapped at once, up to {@link Integer#MAX_VALUE}
+     *
+     * @throws IllegalArgumentException Thrown if {@code windowSize} is not between 1 and {@code Integer.MAX_VALUE}
+     */
+    public MappedCopy(long windowSize) {
+        if (windowSize < 1 || windowSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Window size must be between 1 and " + Integer.MAX_VALUE);
+        this.windowSize = windowSize;
+    }
+
+    public long getWindowSize() {
+        return windowSize;
+    }
+
+    @Override
+    protected void transfer(FileChannel source, FileChannel target, long size) throws IOException {
+        for (long position = 0; position < size; position += windowSize) {
+            long length = Math.min(windowSize, size - position);
+            MappedByteBuffer sourceWindow = source.map(FileChannel.MapMode.READ_ONLY, position, length);
+            MappedByteBuffer targetWindow = target.map(FileChannel.MapMode.READ_WRITE, position, length);
+            targetWindow.put(sourceWindow);
+        }
+    }
+}
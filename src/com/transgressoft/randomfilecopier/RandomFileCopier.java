@@ -22,6 +22,9 @@ import java.io.*;
 import java.math.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
 
 import static java.nio.file.StandardCopyOption.*;
 
@@ -35,18 +38,38 @@ import static java.nio.file.StandardCopyOption.*;
  */
 public class RandomFileCopier {
 
+    public static final String ARCHIVE_NAME = "RandomFiles";
+
     private Path sourcePath;
     private Path destinationPath;
     private int maxFilesToCopy;
     private long maxBytesToCopy;
+    private DestinationSpace destinationSpace;
     private long copiedBytes;
-    private List<File> filesInSource;
-    private List<File> randomSelectedFiles;
-    private ExtensionFileFilter filter;
+    private FileIndex filesInSource;
+    private Object sourceOfIndex;
+    private long generationOfIndex;
+    private IndexWeights indexWeights;
+    private List<FileEntry> randomSelectedFiles;
+    private FileCriteria fileCriteria;
+    private FileEntryFilter filter;
+    private DirectoryPruning directoryPruning;
+    private FileWeights fileWeights;
+    private FileStrata fileStrata;
+    private FileStrata sourceStrata;
+    private StrataAllocation strataAllocation;
     private boolean verbose;
+    private int scanParallelism;
+    private int copyWorkers;
+    private SelectionMode selectionMode;
+    private Path catalogDirectory;
+    private SourceCatalog sourceCatalog;
+    private LiveSourceIndex liveIndex;
     private Random random;
     private PrintStream outStream;
-    private CopyOption[] copyOptions = new CopyOption[]{COPY_ATTRIBUTES};
+    private CopyStrategy copyStrategy;
+    private ArchiveFormat archiveFormat;
+    private long archiveSplitSize;
 
     /**
      * Constructor for a <tt>RandomFileCopier</tt> object
@@ -74,25 +97,113 @@ public class RandomFileCopier {
         destinationPath = destination;
         this.maxFilesToCopy = maxFilesToCopy;
         verbose = false;
+        scanParallelism = Runtime.getRuntime().availableProcessors();
+        copyWorkers = 1;
+        copyStrategy = new FilesCopy();
+        selectionMode = SelectionMode.UNIFORM;
         random = new Random();
         randomSelectedFiles = new ArrayList<>();
-        filesInSource = new ArrayList<>();
-        filter = new ExtensionFileFilter();
+        fileCriteria = new FileCriteria();
+        directoryPruning = new DirectoryPruning();
+        fileWeights = new FileWeights();
+        fileStrata = FileStrata.byDirectory(1);
+        strataAllocation = StrataAllocation.EVEN;
         copiedBytes = 0;
-        maxBytesToCopy = destinationPath.toFile().getUsableSpace();
+        destinationSpace = new DestinationSpace(destinationPath);
+        maxBytesToCopy = Long.MAX_VALUE;
     }
 
     public String[] getFilterExtensions() {
-        return filter.getExtensionsToFilter();
+        return fileCriteria.getExtensions();
     }
 
     /**
-     * Sets the extensions that the files must match to be copied
+     * Sets the extensions that the files must match to be copied, ignoring the case
      *
      * @param extensions A String array containing the extensions without the initial dot '.'
      */
     public void setFilterExtensions(String... extensions) {
-        filter.setExtensionsToFilter(extensions);
+        fileCriteria.setExtensions(extensions);
+    }
+
+    public FileCriteria getFileCriteria() {
+        return fileCriteria;
+    }
+
+    /**
+     * Sets the conditions that the files must satisfy to be copied, replacing the extensions set before
+     *
+     * @param fileCriteria The {@code FileCriteria}
+     */
+    public void setFileCriteria(FileCriteria fileCriteria) {
+        if (fileCriteria == null)
+            throw new IllegalArgumentException("File criteria null");
+        this.fileCriteria = fileCriteria;
+    }
+
+    public FileWeights getFileWeights() {
+        return fileWeights;
+    }
+
+    /**
+     * Sets the weights that make some files more likely to be selected than others. They are only
+     * used by the {@link SelectionMode#UNIFORM} selection, the other modes select the files ignoring them.
+     *
+     * @param fileWeights The {@code FileWeights}
+     */
+    public void setFileWeights(FileWeights fileWeights) {
+        if (fileWeights == null)
+            throw new IllegalArgumentException("File weights null");
+        this.fileWeights = fileWeights;
+    }
+
+    public FileStrata getFileStrata() {
+        return fileStrata;
+    }
+
+    /**
+     * Sets how the files are grouped in strata by the {@link SelectionMode#STRATIFIED} selection. Only the rules
+     * of the given {@link FileStrata} are used, the files are added to an empty copy of it on every copy.
+     *
+     * @param fileStrata The {@code FileStrata}, by top-level directory by default
+     */
+    public void setFileStrata(FileStrata fileStrata) {
+        if (fileStrata == null)
+            throw new IllegalArgumentException("File strata null");
+        this.fileStrata = fileStrata;
+    }
+
+    public StrataAllocation getStrataAllocation() {
+        return strataAllocation;
+    }
+
+    /**
+     * Sets how the maximum number of files and bytes are shared among the strata by the
+     * {@link SelectionMode#STRATIFIED} selection
+     *
+     * @param strataAllocation The {@code StrataAllocation}, even by default
+     */
+    public void setStrataAllocation(StrataAllocation strataAllocation) {
+        if (strataAllocation == null)
+            throw new IllegalArgumentException("Strata allocation null");
+        this.strataAllocation = strataAllocation;
+    }
+
+    public DirectoryPruning getDirectoryPruning() {
+        return directoryPruning;
+    }
+
+    /**
+     * Sets the rules of the subdirectories of the source folder that are not descended into, neither
+     * when it is scanned nor when its catalog is refreshed. A {@link LiveSourceIndex} must be started
+     * with the same rules.
+     *
+     * @param directoryPruning The {@code DirectoryPruning} rules
+     */
+    public void setDirectoryPruning(DirectoryPruning directoryPruning) {
+        if (directoryPruning == null)
+            throw new IllegalArgumentException("Directory pruning null");
+        this.directoryPruning = directoryPruning;
     }
 
     /**
@@ -104,6 +215,133 @@ public class RandomFileCopier {
         this.verbose = verbose;
     }
 
+    public int getScanParallelism() {
+        return scanParallelism;
+    }
+
+    /**
+     * Sets the number of threads that scan the source directory tree concurrently.
+     * By default it is the number of available processors.
+     *
+     * @param scanParallelism The number of scanning threads, greater than zero
+     */
+    public void setScanParallelism(int scanParallelism) {
+        if (scanParallelism < 1)
+            throw new IllegalArgumentException("Scan parallelism must be greater than zero");
+        this.scanParallelism = scanParallelism;
+    }
+
+    public int getCopyWorkers() {
+        return copyWorkers;
+    }
+
+    /**
+     * Sets the number of files that are copied to the destination concurrently.
+     * By default the files are copied one after another.
+     *
+     * @param copyWorkers The number of copying threads, greater than zero
+     */
+    public void setCopyWorkers(int copyWorkers) {
+        if (copyWorkers < 1)
+            throw new IllegalArgumentException("Copy workers must be greater than zero");
+        this.copyWorkers = copyWorkers;
+    }
+
+    public CopyStrategy getCopyStrategy() {
+        return copyStrategy;
+    }
+
+    /**
+     * Sets how each file is copied to the destination. By default the files
+     * are copied with {@link Files#copy(Path, Path, CopyOption...)}.
+     *
+     * @param copyStrategy The {@code CopyStrategy}
+     */
+    public void setCopyStrategy(CopyStrategy copyStrategy) {
+        if (copyStrategy == null)
+            throw new IllegalArgumentException("Copy strategy null");
+        this.copyStrategy = copyStrategy;
+    }
+
+    public ArchiveFormat getArchiveFormat() {
+        return archiveFormat;
+    }
+
+    /**
+     * Sets the format of an archive in the destination where the selected files are written, instead of copying
+     * them as individual files. The archive is named {@value #ARCHIVE_NAME} with the extension of the format.
+     *
+     * @param archiveFormat The {@code ArchiveFormat}, or {@code null} to copy the files individually
+     */
+    public void setArchiveFormat(ArchiveFormat archiveFormat) {
+        this.archiveFormat = archiveFormat;
+    }
+
+    public long getArchiveSplitSize() {
+        return archiveSplitSize;
+    }
+
+    /**
+     * Sets the maximum size of each archive when the files are written to archives. The following
+     * ones are named {@value #ARCHIVE_NAME}-2, {@value #ARCHIVE_NAME}-3 and so on.
+     *
+     * @param archiveSplitSize The maximum bytes of each archive, or 0 to write a single one
+     */
+    public void setArchiveSplitSize(long archiveSplitSize) {
+        if (archiveSplitSize < 0)
+            throw new IllegalArgumentException("Archive split size must not be negative");
+        this.archiveSplitSize = archiveSplitSize;
+    }
+
+    public SelectionMode getSelectionMode() {
+        return selectionMode;
+    }
+
+    /**
+     * Sets how the random files are selected. With {@link SelectionMode#STREAMING} the files
+     * are sampled during the scan of the source directory, so the memory used does not depend
+     * on the number of files in it. With {@link SelectionMode#PACK} the files are selected to fill
+     * the maximum bytes to copy as much as possible, which is reported once they are selected.
+     * With {@link SelectionMode#STRATIFIED} the files are grouped by the {@link FileStrata} rules during
+     * the scan, and selected from every stratum as given by the {@link StrataAllocation}.
+     *
+     * @param selectionMode The {@code SelectionMode}
+     */
+    public void setSelectionMode(SelectionMode selectionMode) {
+        this.selectionMode = selectionMode;
+    }
+
+    public Path getCatalogDirectory() {
+        return catalogDirectory;
+    }
+
+    /**
+     * Sets a directory where a catalog of the files in the source directory is kept between copies.
+     * When it is set, instead of scanning the whole source directory, the catalog is refreshed listing
+     * again only the folders that changed since the previous copy, and the files are selected from it.
+     *
+     * @param catalogDirectory The directory to store the catalog, or {@code null} to scan the source directory
+     */
+    public void setCatalogDirectory(Path catalogDirectory) {
+        this.catalogDirectory = catalogDirectory;
+        sourceCatalog = null;
+    }
+
+    public LiveSourceIndex getLiveIndex() {
+        return liveIndex;
+    }
+
+    /**
+     * Sets a {@link LiveSourceIndex} of the source directory that is kept up to date while the application
+     * runs. When it is set, the files are selected from the index without accessing the source directory,
+     * so that repeated copies don't need to scan it or to refresh its catalog.
+     *
+     * @param liveIndex The {@code LiveSourceIndex} of the source directory, or {@code null} to scan it
+     */
+    public void setLiveIndex(LiveSourceIndex liveIndex) {
+        this.liveIndex = liveIndex;
+    }
+
     /**
      * Copies random files from a source path to a destination path
      * up to a maximum number satisfying a file filter condition
@@ -112,39 +350,134 @@ public class RandomFileCopier {
      */
     public void randomCopy() throws IOException {
         random.setSeed(System.currentTimeMillis());
-        filesInSource.clear();
+        filter = fileCriteria.compile();
+        destinationSpace.sample();
         randomSelectedFiles.clear();
         copiedBytes = 0;
         getRandomFilesInFolderTree();
+        filesInSource = null;
+        sourceOfIndex = null;
+        sourceStrata = null;
         if (! randomSelectedFiles.isEmpty())
             copyRandomFilesToDestination();
     }
 
     /**
-     * Scans the source folder and its subfolders to collect the files satisfying
-     * the given conditions and selects randomly a certain number of them
+     * Scans the source folder and its subfolders, or its catalog, to collect the files
+     * satisfying the given conditions and selects randomly a certain number of them
+     *
+     * @throws IOException If the catalog can't be written
      */
-    private void getRandomFilesInFolderTree() {
+    private void getRandomFilesInFolderTree() throws IOException {
         randomSelectedFiles.clear();
 
+        if (liveIndex != null) {
+            selectFilesFromLiveIndex();
+            return;
+        }
+
+        if (catalogDirectory != null) {
+            selectFilesFromCatalog();
+            return;
+        }
+
         if (outStream != null)
             outStream.println("Scanning source directory...");
-        filesInSource = new FilesInDirectory(sourcePath.toFile()).filteredAndBounded(filter, 0);
+        long filesFound;
+        if (selectionMode == SelectionMode.STREAMING)
+            filesFound = sampleFilesInFolderTree();
+        else {
+            if (selectionMode == SelectionMode.STRATIFIED)
+                sourceStrata = fileStrata.emptyCopy();
+            filesInSource = sourceDirectoryScan().table(filter, sourceStrata);
+            filesFound = filesInSource.size();
+        }
 
-        if (filesInSource.isEmpty()) {
+        if (filesFound == 0) {
             if (outStream != null)
                 outStream.println("No files found with the given constraints");
         }
         else {
             if (outStream != null)
-                outStream.println(Integer.toString(filesInSource.size()) + " files found");
-            selectedFilesLimitingBytesAndNumber();
+                outStream.println(Long.toString(filesFound) + " files found");
+            if (selectionMode != SelectionMode.STREAMING)
+                selectedFilesLimitingBytesAndNumber(index -> true);
         }
     }
 
+    /**
+     * Refreshes the catalog of the source folder and selects the random files from it,
+     * reading only the entries of the files that are drawn
+     *
+     * @throws IOException If the catalog can't be written
+     */
+    private void selectFilesFromCatalog() throws IOException {
+        if (outStream != null)
+            outStream.println("Refreshing source catalog...");
+        if (sourceCatalog == null)
+            sourceCatalog = SourceCatalog.open(sourcePath, catalogDirectory);
+        SourceCatalog catalog = sourceCatalog;
+        catalog.setPruning(directoryPruning);
+        catalog.refresh();
+        filesInSource = catalog;
+        sourceOfIndex = catalog;
+        generationOfIndex = catalog.generation();
+
+        if (catalog.size() == 0) {
+            if (outStream != null)
+                outStream.println("No files found with the given constraints");
+        }
+        else {
+            if (outStream != null)
+                outStream.println(Integer.toString(catalog.size()) + " files in catalog");
+            selectedFilesLimitingBytesAndNumber(catalog.eligibility(filter));
+        }
+    }
+
+    /**
+     * Selects the random files reading the live index of the source folder in place, which
+     * is not updated meanwhile
+     */
+    private void selectFilesFromLiveIndex() {
+        liveIndex.read(filesInLiveIndex -> {
+            filesInSource = filesInLiveIndex;
+            sourceOfIndex = liveIndex;
+            generationOfIndex = liveIndex.generation();
+            if (filesInLiveIndex.size() == 0) {
+                if (outStream != null)
+                    outStream.println("No files found with the given constraints");
+            }
+            else {
+                if (outStream != null)
+                    outStream.println(Integer.toString(filesInLiveIndex.size()) + " files in live index");
+                selectedFilesLimitingBytesAndNumber(index -> filter.accept(filesInLiveIndex.entry(index)));
+            }
+        });
+    }
+
+    private FilesInDirectory sourceDirectoryScan() {
+        FilesInDirectory filesInDirectory = new FilesInDirectory(sourcePath.toFile(), scanParallelism);
+        filesInDirectory.setPruning(directoryPruning);
+        return filesInDirectory;
+    }
+
+    /**
+     * Selects the random files while the source folder is scanned, using reservoir sampling
+     *
+     * @return The number of files found that satisfy the given conditions
+     */
+    private long sampleFilesInFolderTree() {
+        ReservoirSelection reservoir = new ReservoirSelection(maxFilesToCopy, getMaxBytesToCopy(), random);
+        long filesFound = sourceDirectoryScan().scan(filter, reservoir);
+        randomSelectedFiles.addAll(reservoir.getSelectedFiles());
+        copiedBytes = reservoir.getSelectedBytes();
+        return filesFound;
+    }
+
     /**
      * Copies the randomly selected files to the destination path
-     * Renames duplicated files to ensure that files with the same name are not overwritten
+     * Renames duplicated files to ensure that files with the same name are not overwritten.
+     * Files that are no longer in the source are skipped.
      *
      * @throws IOException
      */
@@ -152,37 +485,250 @@ public class RandomFileCopier {
         if (outStream != null)
             outStream.println("Copying files to the destination directory...");
 
-        for (File randomFileToCopy : randomSelectedFiles)
-            copyFile(randomFileToCopy);
+        LongAdder filesCopied = new LongAdder();
+        LongAdder bytesCopied = new LongAdder();
+        DestinationNameIndex destinationNames = DestinationNameIndex.load(destinationPath);
+        if (archiveFormat != null)
+            writeRandomFilesToArchive(destinationNames, filesCopied, bytesCopied);
+        else if (copyWorkers == 1)
+            for (FileEntry randomFileToCopy : randomSelectedFiles) {
+                if (copyFile(randomFileToCopy, destinationNames.reserveFile(randomFileToCopy.getName()))) {
+                    filesCopied.increment();
+                    bytesCopied.add(randomFileToCopy.getSize());
+                }
+            }
+        else
+            copyRandomFilesConcurrently(destinationNames, filesCopied, bytesCopied);
+        copiedBytes = bytesCopied.sum();
 
-        int numFilesCopied = randomSelectedFiles.size();
+        int numFilesCopied = filesCopied.intValue();
         ByteSizeRepresentation byteSizeRepresentation = new ByteSizeRepresentation(copiedBytes);
         String sizeCopied = byteSizeRepresentation.withMaximumDecimals(4, RoundingMode.CEILING);
         if (outStream != null)
             outStream.println("Done. " + numFilesCopied + " files, " + sizeCopied + " copied");
     }
 
-    private void selectedFilesLimitingBytesAndNumber() {
-        while (continueFileSelection()) {
-            File randomSourceFile = filesInSource.get(random.nextInt(filesInSource.size()));
-            long fileLength = randomSourceFile.length();
+    /**
+     * Writes the randomly selected files into one or more archives in the destination path.
+     * Entries with the same name are renamed as the copied files are.
+     *
+     * @param destinationNames The names taken in the destination path, to name the archives
+     * @param filesCopied      The counter of the files that are written
+     * @param bytesCopied      The counter of the bytes of the files that are written
+     *
+     * @throws IOException If any of the files can't be written
+     */
+    private void writeRandomFilesToArchive(DestinationNameIndex destinationNames, LongAdder filesCopied,
+                                           LongAdder bytesCopied) throws IOException {
+        DestinationNameIndex entryNames = new DestinationNameIndex();
+        ArchiveSink.VolumePaths volumePaths = volume -> destinationNames.reserveFile(archiveVolumeName(volume));
+        try (ArchiveSink archiveSink = new ArchiveSink(archiveFormat, archiveSplitSize, volumePaths)) {
+            for (FileEntry randomFileToCopy : randomSelectedFiles) {
+                reserveSpace(randomFileToCopy);
+                try {
+                    archiveSink.add(randomFileToCopy, entryNames.reserve(randomFileToCopy.getName()));
+                }
+                catch (IOException exception) {
+                    destinationSpace.release(randomFileToCopy.getSize());
+                    if (isMissing(randomFileToCopy, exception)) {
+                        printSkipped(randomFileToCopy);
+                        continue;
+                    }
+                    throw exception;
+                }
+                destinationSpace.written(randomFileToCopy.getSize());
+                filesCopied.increment();
+                bytesCopied.add(randomFileToCopy.getSize());
+                printCopied(randomFileToCopy);
+            }
+        }
+    }
+
+    private String archiveVolumeName(int volume) {
+        return ARCHIVE_NAME + (volume == 1 ? "" : "-" + volume) + "." + archiveFormat.getExtension();
+    }
 
-            if (fileLength <= getMaxBytesToCopy() - copiedBytes) {
-                randomSelectedFiles.add(randomSourceFile);
-                copiedBytes += fileLength;
+    /**
+     * Copies the randomly selected files with a pool of {@code copyWorkers} threads. Each worker reserves the
+     * name of its file in the destination before copying it, so that two files with the same name copied at the
+     * same time do not end up with the same one. If a copy fails the pending ones are cancelled and its exception
+     * is thrown.
+     *
+     * @param destinationNames The names taken in the destination path
+     * @param filesCopied      The counter of the files that are copied
+     * @param bytesCopied      The counter of the bytes of the files that are copied
+     *
+     * @throws IOException If any of the files can't be copied
+     */
+    private void copyRandomFilesConcurrently(DestinationNameIndex destinationNames, LongAdder filesCopied,
+                                             LongAdder bytesCopied) throws IOException {
+        List<Callable<Void>> copies = new ArrayList<>(randomSelectedFiles.size());
+        for (FileEntry randomFileToCopy : randomSelectedFiles) {
+            copies.add(() -> {
+                if (copyFile(randomFileToCopy, destinationNames.reserveFile(randomFileToCopy.getName()))) {
+                    filesCopied.increment();
+                    bytesCopied.add(randomFileToCopy.getSize());
+                }
+                return null;
+            });
+        }
+
+        ExecutorService copyExecutor = Executors.newFixedThreadPool(Math.min(copyWorkers, copies.size()));
+        try {
+            List<Future<Void>> pendingCopies = new ArrayList<>(copies.size());
+            for (Callable<Void> copy : copies)
+                pendingCopies.add(copyExecutor.submit(copy));
+            for (Future<Void> pendingCopy : pendingCopies)
+                pendingCopy.get();
+        }
+        catch (ExecutionException exception) {
+            if (exception.getCause() instanceof IOException)
+                throw (IOException) exception.getCause();
+            throw new IOException(exception.getCause());
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Copy of the files interrupted");
+        }
+        finally {
+            copyExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Selects the random files from the files in source. If the space available in the destination is smaller
+     * than the maximum bytes to copy, the sizes of the files are rounded up to the block size of the destination,
+     * since that is the space they take on it. Unless the files were grouped in strata during the scan,
+     * the stratified selection groups the eligible ones first.
+     */
+    private void selectedFilesLimitingBytesAndNumber(IntPredicate eligible) {
+        long maxBytes = getMaxBytesToCopy();
+        IntToLongFunction sizeOf = filesInSource::sizeOf;
+        if (maxBytes < maxBytesToCopy)
+            sizeOf = index -> destinationSpace.sizeOnDisk(filesInSource.sizeOf(index));
+        int candidates = filesInSource.size();
+        int[] selectedIndexes;
+        if (selectionMode == SelectionMode.UNIFORM && ! fileWeights.isUniform()) {
+            IndexWeights weights = indexWeights;
+            if (weights == null || ! weights.areFor(sourceOfIndex, generationOfIndex, fileWeights)) {
+                weights = new IndexWeights(sourceOfIndex, generationOfIndex, fileWeights,
+                                           fileWeights.weightsOf(filesInSource, System.currentTimeMillis()));
+                indexWeights = sourceOfIndex == null ? null : weights;
             }
+            if (weights.aliasTable == null)
+                selectedIndexes = new int[0];
+            else
+                selectedIndexes = new WeightedSelection(random).select(weights.weights, weights.aliasTable, eligible,
+                                                                       sizeOf, maxFilesToCopy, maxBytes);
+        }
+        else if (selectionMode == SelectionMode.PACK)
+            selectedIndexes = new RandomSelection(random).pack(candidates, eligible, sizeOf, maxFilesToCopy, maxBytes);
+        else if (selectionMode == SelectionMode.STRATIFIED) {
+            if (sourceStrata == null) {
+                sourceStrata = fileStrata.emptyCopy();
+                sourceStrata.addAll(filesInSource, eligible, sourcePath);
+            }
+            StratifiedSelection selection = new StratifiedSelection(random, strataAllocation);
+            selectedIndexes = selection.select(sourceStrata, eligible, sizeOf, maxFilesToCopy, maxBytes);
+        }
+        else
+            selectedIndexes = new RandomSelection(random).select(candidates, eligible, sizeOf, maxFilesToCopy, maxBytes);
+        for (int index : selectedIndexes) {
+            randomSelectedFiles.add(filesInSource.entry(index));
+            copiedBytes += filesInSource.sizeOf(index);
+        }
+        if (selectionMode == SelectionMode.PACK && outStream != null)
+            outStream.println(packedBytesReport(copiedBytes, maxBytes));
+    }
 
-            filesInSource.remove(randomSourceFile);
+    private static String packedBytesReport(long packedBytes, long maxBytes) {
+        String packedSize = new ByteSizeRepresentation(packedBytes).withMaximumDecimals(4, RoundingMode.CEILING);
+        String maxSize = new ByteSizeRepresentation(maxBytes).withMaximumDecimals(4, RoundingMode.CEILING);
+        double fillRatio = maxBytes == 0 ? 1 : (double) packedBytes / maxBytes;
+        return "Packed " + packedSize + " of " + maxSize + String.format(Locale.US, " (%.2f%% full)", fillRatio * 100);
+    }
+
+    /**
+     * Copies a file to a partial file next to the one reserved for it, and then renames the partial file
+     * atomically to the reserved one. This way the reserved name is never free while the file is copied,
+     * and other writers to the destination never see an incomplete copy with it.
+     *
+     * @param fileToCopy   The {@code FileEntry} of the file to copy
+     * @param reservedFile The empty file reserved for the copy in the destination
+     *
+     * @return {@code true} if the file was copied, {@code false} if it is no longer in the source,
+     *         in which case the reserved file is deleted
+     *
+     * @throws IOException If the file can't be copied or there is no space left for it in the destination,
+     *                     in which case the reserved file is deleted
+     */
+    private boolean copyFile(FileEntry fileToCopy, Path reservedFile) throws IOException {
+        Path partialFile = reservedFile.resolveSibling("." + reservedFile.getFileName() + ".part");
+        boolean takesSpace = ! linksFiles();
+        try {
+            if (takesSpace)
+                reserveSpace(fileToCopy);
+            try {
+                copyStrategy.copy(fileToCopy.getPath(), partialFile, fileToCopy.getSize());
+                try {
+                    Files.move(partialFile, reservedFile, ATOMIC_MOVE, REPLACE_EXISTING);
+                }
+                catch (AtomicMoveNotSupportedException exception) {
+                    Files.move(partialFile, reservedFile, REPLACE_EXISTING);
+                }
+            }
+            catch (IOException exception) {
+                if (takesSpace)
+                    destinationSpace.release(fileToCopy.getSize());
+                throw exception;
+            }
+            if (takesSpace)
+                destinationSpace.written(fileToCopy.getSize());
+        }
+        catch (IOException exception) {
+            Files.deleteIfExists(partialFile);
+            Files.deleteIfExists(reservedFile);
+            if (isMissing(fileToCopy, exception)) {
+                printSkipped(fileToCopy);
+                return false;
+            }
+            throw exception;
         }
+        printCopied(fileToCopy);
+        return true;
+    }
+
+    /**
+     * A file that was deleted from the source after it was selected can't be opened, which doesn't
+     * mean that the copy can't go on with the rest of the selected files.
+     */
+    private static boolean isMissing(FileEntry file, IOException exception) {
+        return exception instanceof NoSuchFileException && Files.notExists(file.getPath(), LinkOption.NOFOLLOW_LINKS);
+    }
+
+    /**
+     * Links to the files don't take the space of their content in the destination, so neither
+     * is it reserved for them nor does it limit the bytes to copy
+     */
+    private boolean linksFiles() {
+        return archiveFormat == null && copyStrategy instanceof LinkCopy;
     }
 
-    private void copyFile(File fileToCopy) throws IOException {
-        Path filePath = fileToCopy.toPath();
+    private void reserveSpace(FileEntry fileToCopy) throws IOException {
+        if (! destinationSpace.reserve(fileToCopy.getSize()))
+            throw new IOException("Not enough space in the destination for " + fileToCopy.getPath());
+    }
+
+    private void printSkipped(FileEntry fileToSkip) {
+        if (outStream != null)
+            outStream.println("Skipped " + fileToSkip.getPath() + ", it is no longer in the source");
+    }
+
+    private void printCopied(FileEntry fileToCopy) {
+        Path filePath = fileToCopy.getPath();
         String path = filePath.subpath(filePath.getNameCount() - 3, filePath.getNameCount()).toString();
-        String ensuredFileName = ensuredFileNameOnPath(destinationPath, fileToCopy.getName());
-        Files.copy(filePath, destinationPath.resolve(ensuredFileName), copyOptions);
         if (verbose) {
-            ByteSizeRepresentation byteSizeRepresentation = new ByteSizeRepresentation(fileToCopy.length());
+            ByteSizeRepresentation byteSizeRepresentation = new ByteSizeRepresentation(fileToCopy.getSize());
             String sizeString = byteSizeRepresentation.withMaximumDecimals(2, RoundingMode.CEILING);
             if (outStream != null)
                 outStream.println("Copied " + ".../" + path + " [" + sizeString + "]");
@@ -200,42 +746,67 @@ public class RandomFileCopier {
      */
     public String ensuredFileNameOnPath(Path targetPath, String fileName) {
         String newName = fileName;
-        if (targetPath.resolve(fileName).toFile().exists()) {
-            int pos = fileName.lastIndexOf('.');
-            newName = fileName.substring(0, pos) + "(1)." + fileName.substring(pos + 1);
-        }
-        while (targetPath.resolve(newName).toFile().exists()) {
-            int posL = newName.lastIndexOf('(');
-            int posR = newName.lastIndexOf(')');
-            int num = Integer.parseInt(newName.substring(posL + 1, posR));
-            newName = newName.substring(0, posL + 1) + ++ num + newName.substring(posR);
-        }
+        int number = 0;
+        while (targetPath.resolve(newName).toFile().exists())
+            newName = DestinationNameIndex.numberedName(fileName, ++ number);
         return newName;
     }
 
-    private boolean continueFileSelection() {
-        boolean continueSelection;
-        if (filesInSource.size() < maxFilesToCopy || maxFilesToCopy == 0)
-            continueSelection = copiedBytes < getMaxBytesToCopy() && ! filesInSource.isEmpty();
-        else
-            continueSelection = randomSelectedFiles.size() < maxFilesToCopy;
-        return continueSelection;
-    }
-
+    /**
+     * @return The maximum bytes to copy, or the space available in the destination if it is smaller
+     *         and the files are not linked
+     */
     public long getMaxBytesToCopy() {
-        boolean areAvailableBytes = maxBytesToCopy <= destinationPath.toFile().getUsableSpace();
-        return areAvailableBytes ? maxBytesToCopy : destinationPath.toFile().getUsableSpace();
+        if (linksFiles())
+            return maxBytesToCopy;
+        return Math.min(maxBytesToCopy, destinationSpace.available());
     }
 
     /**
-     * Sets the maximum number of bytes that should be copied to the destination.
+     * Sets the maximum number of bytes that should be copied to the destination, adding up the sizes
+     * of the files. The copy is limited anyway by the space available in the destination, unless
+     * the files are linked with a {@link LinkCopy}.
      *
      * @param maxBytesToCopy The maximum number of bytes
      */
     public void setMaxBytesToCopy(long maxBytesToCopy) {
-        if (maxBytesToCopy < destinationPath.toFile().getUsableSpace())
-            this.maxBytesToCopy = maxBytesToCopy;
-        else
-            this.maxBytesToCopy = destinationPath.toFile().getUsableSpace();
+        this.maxBytesToCopy = maxBytesToCopy;
+    }
+
+    public DestinationSpace getDestinationSpace() {
+        return destinationSpace;
+    }
+
+    /**
+     * The weights of the files of an index and their {@link AliasTable}, which are kept while the index
+     * doesn't change, in repeated copies from a catalog or a live index, and the {@link FileWeights}
+     * are not set again. Since the weights are relative to the heaviest file, they don't change as time
+     * passes either.
+     */
+    private static class IndexWeights {
+
+        private final Object source;
+        private final long generation;
+        private final FileWeights fileWeights;
+        private final int modifications;
+        private final double[] weights;
+        private final AliasTable aliasTable;
+
+        IndexWeights(Object source, long generation, FileWeights fileWeights, double[] weights) {
+            this.source = source;
+            this.generation = generation;
+            this.fileWeights = fileWeights;
+            modifications = fileWeights.modifications();
+            this.weights = weights;
+            double weightSum = 0;
+            for (double weight : weights)
+                weightSum += weight;
+            aliasTable = weightSum > 0 ? new AliasTable(weights) : null;
+        }
+
+        boolean areFor(Object source, long generation, FileWeights fileWeights) {
+            return source != null && this.source == source && this.generation == generation && this.fileWeights == fileWeights
+                    && modifications == fileWeights.modifications();
+        }
     }
-}
\ No newline at end of file
+}
@@ -16,10 +16,17 @@
 
 package com.transgressoft.randomfilecopier;
 
+import com.transgressoft.commons.util.*;
 import org.docopt.*;
 
 import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.time.format.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.*;
+import java.util.stream.*;
 
 /**
  * Runner of the {@link RandomFileCopier} application from command line
@@ -37,22 +44,89 @@ public class RandomFileCopierRunner {
 	private static final String DOC = "Random File Copier.\n\n" +
 			"Usage:\n" +
 			"  RandomFileCopier <source_directory> <target_directory> <max_files> [-v] [-s=<maxbytes>] " +
-			"[-e=<extension>]...\n\n" +
+			"[-w=<workers>] [--copy-mode=<mode>] [--threshold=<bytes>] " +
+			"[-a=<format>] [--split=<bytes>] [-c=<directory>] [--watch] [--pack] [--strata=<strata>] [--allocation=<allocation>] " +
+			"[-e=<extension>]... " +
+			"[--name=<glob>]... [--regex=<regex>]... [--min-size=<bytes>] [--max-size=<bytes>] " +
+			"[--after=<date>] [--before=<date>] [--exclude-dir=<glob>]... [--max-depth=<depth>] " +
+			"[--weight-extension=<weight>]... [--half-life=<days>] [--size-exponent=<exponent>] [--weight-file=<file>]\n\n" +
 			"Options:\n" +
 			"  -h, --help                     Show this help text.\n" +
 			"  <max_files>                    The maximum number of files.\n" +
 			"  -v, --verbose                  Show some extra information of the process.\n" +
 			"  -e, --extension=<extension>    A required extension of a file to be copied\n" +
-			"  -s, --space=<maxbytes>         The maximum bytes to copy in the destination.\n";
+			"  --name=<glob>                  A glob that the name of a file to be copied matches.\n" +
+			"  --regex=<regex>                A regular expression that the name of a file to be\n" +
+			"                                 copied matches.\n" +
+			"  --min-size=<bytes>             The minimum size of a file to be copied.\n" +
+			"  --max-size=<bytes>             The maximum size of a file to be copied.\n" +
+			"  --after=<date>                 Copy files modified on or after the yyyy-MM-dd date.\n" +
+			"  --before=<date>                Copy files modified before the yyyy-MM-dd date.\n" +
+			"  --exclude-dir=<glob>           A glob of the directories that are not scanned.\n" +
+			"  --max-depth=<depth>            The deepest level of directories scanned, 0 scans\n" +
+			"                                 only the source directory.\n" +
+			"  --weight-extension=<weight>    The weight of the files with an extension, given\n" +
+			"                                 as extension:weight.\n" +
+			"  --half-life=<days>             Halve the weight of the files each time the days\n" +
+			"                                 pass since they were modified.\n" +
+			"  --size-exponent=<exponent>     Weight the files by their size raised to the exponent.\n" +
+			"  --weight-file=<file>           A file with a line directory=weight for each\n" +
+			"                                 directory whose files are weighted.\n" +
+			"  -s, --space=<maxbytes>         The maximum bytes to copy in the destination.\n" +
+			"  --pack                         Fill the maximum bytes as much as possible, choosing\n" +
+			"                                 the last files among the largest that fit.\n" +
+			"  --strata=<strata>              Select the files from every stratum, grouping them\n" +
+			"                                 by top, depth:<depth> directory or extension.\n" +
+			"  --allocation=<allocation>      How the files and bytes are shared among the\n" +
+			"                                 strata: even or proportional.\n" +
+			"  -w, --workers=<workers>        The number of files copied at the same time.\n" +
+			"  --copy-mode=<mode>             How the files are copied: files, transfer, mapped,\n" +
+			"                                 chunked, async, hardlink or symlink.\n" +
+			"  --threshold=<bytes>            The size from which files are copied with the copy\n" +
+			"                                 mode, copying the smaller ones with files.\n" +
+			"  -a, --archive=<format>         Write the files into a tar or zip archive.\n" +
+			"  --split=<bytes>                The maximum bytes of each archive.\n" +
+			"  -c, --catalog=<directory>      Keep a catalog of the source in the directory to\n" +
+			"                                 refresh it instead of scanning the whole source.\n" +
+			"  --watch                        Keep watching the source and copy again each time\n" +
+			"                                 a line is read from the standard input.\n";
 
 	private static File sourceFile;
 	private static File targetFile;
 	private static String sourceString;
 	private static String targetString;
 	private static String[] extensionsCmd;
+	private static List<String> nameGlobsCmd;
+	private static List<String> nameRegexesCmd;
+	private static String minSizeCmd;
+	private static String maxSizeCmd;
+	private static String afterDateCmd;
+	private static String beforeDateCmd;
+	private static FileCriteria fileCriteria;
+	private static List<String> excludedDirectoriesCmd;
+	private static int maxDepthCmd;
+	private static DirectoryPruning directoryPruning;
+	private static List<String> extensionWeightsCmd;
+	private static String halfLifeCmd;
+	private static String sizeExponentCmd;
+	private static String weightFileCmd;
+	private static FileWeights fileWeights;
 	private static int maxFilesCmd;
 	private static boolean verboseCmd;
 	private static long maxBytesCmd;
+	private static Integer copyWorkersCmd;
+	private static CopyMode copyModeCmd;
+	private static String copyThresholdCmd;
+	private static CopyStrategy copyStrategy;
+	private static ArchiveFormat archiveFormatCmd;
+	private static String archiveSplitCmd;
+	private static boolean validArchiveFormat;
+	private static Path catalogDirectoryCmd;
+	private static boolean watchCmd;
+	private static boolean packCmd;
+	private static String strataCmd;
+	private static StrataAllocation allocationCmd;
+	private static FileStrata fileStrata;
 
 	public static void main(String[] args) throws IOException {
 		parseArguments(args);
@@ -60,10 +134,49 @@ public class RandomFileCopierRunner {
 		if (validArguments()) {
 			RandomFileCopier copier = new RandomFileCopier(sourceFile.toPath(), targetFile.toPath(), maxFilesCmd);
 			copier.setVerbose(verboseCmd);
-			copier.setFilterExtensions(extensionsCmd);
+			copier.setFileCriteria(fileCriteria);
+			copier.setDirectoryPruning(directoryPruning);
+			copier.setFileWeights(fileWeights);
 			if (maxBytesCmd > 0)
 				copier.setMaxBytesToCopy(maxBytesCmd);
-			copier.randomCopy();
+			if (packCmd)
+				copier.setSelectionMode(SelectionMode.PACK);
+			if (strataCmd != null) {
+				copier.setSelectionMode(SelectionMode.STRATIFIED);
+				copier.setFileStrata(fileStrata);
+				copier.setStrataAllocation(allocationCmd);
+			}
+			if (copyWorkersCmd != null)
+				copier.setCopyWorkers(copyWorkersCmd);
+			copier.setCopyStrategy(copyStrategy);
+			copier.setArchiveFormat(archiveFormatCmd);
+			if (archiveSplitCmd != null)
+				copier.setArchiveSplitSize(Long.parseLong(archiveSplitCmd));
+			copier.setCatalogDirectory(catalogDirectoryCmd);
+			if (watchCmd)
+				watchAndCopy(copier);
+			else
+				copier.randomCopy();
+		}
+	}
+
+	/**
+	 * Keeps a live index of the source directory while the standard input is open,
+	 * copying random files again from it every time a line is entered.
+	 * A copy that fails is reported and the next line starts a new one.
+	 */
+	private static void watchAndCopy(RandomFileCopier copier) throws IOException {
+		try (LiveSourceIndex liveIndex = LiveSourceIndex.start(sourceFile.toPath(), directoryPruning)) {
+			copier.setLiveIndex(liveIndex);
+			BufferedReader input = new BufferedReader(new InputStreamReader(System.in));
+			do {
+				try {
+					copier.randomCopy();
+				}
+				catch (IOException exception) {
+					System.out.println("ERROR: " + exception.getMessage());
+				}
+			} while (input.readLine() != null);
 		}
 	}
 
@@ -73,16 +186,108 @@ public class RandomFileCopierRunner {
 		sourceString = (String) opts.get("<source_directory>");
 		targetString = (String) opts.get("<target_directory>");
 		verboseCmd = (Boolean) opts.get("--verbose");
+		watchCmd = (Boolean) opts.get("--watch");
+		packCmd = (Boolean) opts.get("--pack");
+		String strataString = (String) opts.get("--strata");
+		strataCmd = strataString == null ? null : optionArgument(strataString);
+		String allocationString = (String) opts.get("--allocation");
+		allocationCmd = StrataAllocation.EVEN;
+		if (allocationString != null) {
+			try {
+				allocationCmd = StrataAllocation.valueOf(optionArgument(allocationString).toUpperCase());
+			}
+			catch (IllegalArgumentException exception) {
+				allocationCmd = null;
+			}
+		}
 
 		List<String> extensionsList = (List<String>) opts.get("--extension");
 		extensionsCmd = Arrays.stream(extensionsList.toArray())
-							  .map(s -> ((String) s).substring(1))
+							  .map(s -> optionArgument((String) s))
 							  .toArray(String[]::new);
 
+		nameGlobsCmd = ((List<String>) opts.get("--name")).stream().map(s -> optionArgument(s)).collect(Collectors.toList());
+		nameRegexesCmd = ((List<String>) opts.get("--regex")).stream().map(s -> optionArgument(s)).collect(Collectors.toList());
+
+		String minSizeString = (String) opts.get("--min-size");
+		minSizeCmd = minSizeString == null ? null : optionArgument(minSizeString);
+		String maxSizeString = (String) opts.get("--max-size");
+		maxSizeCmd = maxSizeString == null ? null : optionArgument(maxSizeString);
+
+		String afterString = (String) opts.get("--after");
+		afterDateCmd = afterString == null ? null : optionArgument(afterString);
+		String beforeString = (String) opts.get("--before");
+		beforeDateCmd = beforeString == null ? null : optionArgument(beforeString);
+
+		excludedDirectoriesCmd = ((List<String>) opts.get("--exclude-dir")).stream().map(s -> optionArgument(s)).collect(Collectors.toList());
+		String maxDepthString = (String) opts.get("--max-depth");
+		maxDepthCmd = Integer.MAX_VALUE;
+		if (maxDepthString != null) {
+			try {
+				maxDepthCmd = Integer.parseInt(optionArgument(maxDepthString));
+			}
+			catch (NumberFormatException exception) {
+				maxDepthCmd = - 1;
+			}
+		}
+
+		extensionWeightsCmd = ((List<String>) opts.get("--weight-extension")).stream().map(s -> optionArgument(s)).collect(Collectors.toList());
+		String halfLifeString = (String) opts.get("--half-life");
+		halfLifeCmd = halfLifeString == null ? null : optionArgument(halfLifeString);
+		String sizeExponentString = (String) opts.get("--size-exponent");
+		sizeExponentCmd = sizeExponentString == null ? null : optionArgument(sizeExponentString);
+		String weightFileString = (String) opts.get("--weight-file");
+		weightFileCmd = weightFileString == null ? null : optionArgument(weightFileString);
+
 		String maxBytesString = (String) opts.get("--space");
 		maxBytesCmd = 0;
 		if (maxBytesString != null)
-			maxBytesCmd = Long.valueOf(maxBytesString.substring(1));
+			maxBytesCmd = Long.valueOf(optionArgument(maxBytesString));
+
+		String copyWorkersString = (String) opts.get("--workers");
+		copyWorkersCmd = null;
+		if (copyWorkersString != null) {
+			try {
+				copyWorkersCmd = Integer.parseInt(optionArgument(copyWorkersString));
+			}
+			catch (NumberFormatException exception) {
+				copyWorkersCmd = - 1;
+			}
+		}
+
+		String copyModeString = (String) opts.get("--copy-mode");
+		copyModeCmd = CopyMode.FILES;
+		if (copyModeString != null) {
+			try {
+				copyModeCmd = CopyMode.valueOf(optionArgument(copyModeString).toUpperCase());
+			}
+			catch (IllegalArgumentException exception) {
+				copyModeCmd = null;
+			}
+		}
+
+		String thresholdString = (String) opts.get("--threshold");
+		copyThresholdCmd = thresholdString == null ? null : optionArgument(thresholdString);
+
+		String archiveString = (String) opts.get("--archive");
+		archiveFormatCmd = null;
+		validArchiveFormat = true;
+		if (archiveString != null) {
+			try {
+				archiveFormatCmd = ArchiveFormat.valueOf(optionArgument(archiveString).toUpperCase());
+			}
+			catch (IllegalArgumentException exception) {
+				validArchiveFormat = false;
+			}
+		}
+
+		String splitString = (String) opts.get("--split");
+		archiveSplitCmd = splitString == null ? null : optionArgument(splitString);
+
+		String catalogString = (String) opts.get("--catalog");
+		catalogDirectoryCmd = null;
+		if (catalogString != null)
+			catalogDirectoryCmd = Paths.get(optionArgument(catalogString));
 
 		String maxFilesString = (String) opts.get("<max_files>");
 		try {
@@ -93,12 +298,33 @@ public class RandomFileCopierRunner {
 		}
 	}
 
+	/**
+	 * Short options given as <tt>-s=5000</tt> are parsed with the equals sign as part of the argument
+	 */
+	private static String optionArgument(String argument) {
+		return argument.startsWith("=") ? argument.substring(1) : argument;
+	}
+
 	private static boolean validArguments() {
 		boolean result = isValidSource();
 		if (result) {
 			result = isValidTarget();
 			if (result)
 				result = isValidMaxFilesString();
+			if (result)
+				result = isValidCopyWorkers();
+			if (result)
+				result = isValidCopyMode();
+			if (result)
+				result = isValidArchiveFormat();
+			if (result)
+				result = isValidFileCriteria();
+			if (result)
+				result = isValidDirectoryPruning();
+			if (result)
+				result = isValidFileWeights();
+			if (result)
+				result = isValidStratification();
 		}
 
 		if (result) {
@@ -146,6 +372,157 @@ public class RandomFileCopierRunner {
 		return res;
 	}
 
+	private static boolean isValidCopyWorkers() {
+		boolean res = copyWorkersCmd == null || copyWorkersCmd > 0;
+		if (! res)
+			printUsage("Workers must be a number greater than zero");
+		return res;
+	}
+
+	private static boolean isValidCopyMode() {
+		boolean res = false;
+		if (copyModeCmd == null)
+			printUsage("Copy mode must be one of " + Arrays.toString(CopyMode.values()).toLowerCase());
+		else {
+			try {
+				copyStrategy = copyModeCmd.newStrategy(copyThresholdCmd == null ? 0 : Long.parseLong(copyThresholdCmd));
+				res = true;
+			}
+			catch (NumberFormatException exception) {
+				printUsage("Threshold must be a number of bytes");
+			}
+		}
+		return res;
+	}
+
+	private static boolean isValidArchiveFormat() {
+		boolean res = false;
+		if (! validArchiveFormat)
+			printUsage("Archive format must be one of " + Arrays.toString(ArchiveFormat.values()).toLowerCase());
+		else {
+			try {
+				if (archiveSplitCmd != null && Long.parseLong(archiveSplitCmd) < 0)
+					throw new NumberFormatException();
+				res = true;
+			}
+			catch (NumberFormatException exception) {
+				printUsage("Split must be a number of bytes not less than zero");
+			}
+		}
+		return res;
+	}
+
+	private static boolean isValidFileCriteria() {
+		boolean res = false;
+		try {
+			fileCriteria = new FileCriteria();
+			fileCriteria.setExtensions(extensionsCmd);
+			nameGlobsCmd.forEach(fileCriteria::addNameGlob);
+			nameRegexesCmd.forEach(fileCriteria::addNameRegex);
+			fileCriteria.setSizeRange(minSizeCmd == null ? 0 : Long.parseLong(minSizeCmd),
+									  maxSizeCmd == null ? Long.MAX_VALUE : Long.parseLong(maxSizeCmd));
+			fileCriteria.setModifiedRange(startOfDate(afterDateCmd, Long.MIN_VALUE), startOfDate(beforeDateCmd, Long.MAX_VALUE));
+			fileCriteria.compile();
+			res = true;
+		}
+		catch (DateTimeParseException exception) {
+			printUsage("Dates must be given as yyyy-MM-dd");
+		}
+		catch (PatternSyntaxException exception) {
+			printUsage("Invalid name pattern " + exception.getPattern());
+		}
+		catch (NumberFormatException exception) {
+			printUsage("Sizes must be numbers of bytes");
+		}
+		catch (IllegalArgumentException exception) {
+			printUsage(exception.getMessage());
+		}
+		return res;
+	}
+
+	private static boolean isValidDirectoryPruning() {
+		boolean res = false;
+		try {
+			directoryPruning = new DirectoryPruning();
+			excludedDirectoriesCmd.forEach(directoryPruning::addExcludedGlob);
+			if (maxDepthCmd != Integer.MAX_VALUE)
+				directoryPruning.setMaxDepth(maxDepthCmd);
+			res = true;
+		}
+		catch (PatternSyntaxException exception) {
+			printUsage("Invalid directory pattern " + exception.getPattern());
+		}
+		catch (IllegalArgumentException exception) {
+			printUsage("Max depth must be a number not less than zero");
+		}
+		return res;
+	}
+
+	private static boolean isValidFileWeights() {
+		boolean res = false;
+		boolean weightsGiven = ! extensionWeightsCmd.isEmpty() || halfLifeCmd != null || sizeExponentCmd != null || weightFileCmd != null;
+		try {
+			if (weightsGiven && (packCmd || strataCmd != null))
+				throw new IllegalArgumentException("Weights can't be used with pack or strata");
+			fileWeights = new FileWeights();
+			for (String extensionWeight : extensionWeightsCmd) {
+				int separator = extensionWeight.lastIndexOf(':');
+				if (separator == - 1)
+					throw new NumberFormatException();
+				double weight = Double.parseDouble(extensionWeight.substring(separator + 1));
+				fileWeights.setExtensionWeight(extensionWeight.substring(0, separator), weight);
+			}
+			if (halfLifeCmd != null)
+				fileWeights.setHalfLife((long) (Double.parseDouble(halfLifeCmd) * TimeUnit.DAYS.toMillis(1)));
+			if (sizeExponentCmd != null)
+				fileWeights.setSizeExponent(Double.parseDouble(sizeExponentCmd));
+			if (weightFileCmd != null)
+				fileWeights.loadDirectoryWeights(sourceFile.toPath(), Paths.get(weightFileCmd));
+			res = true;
+		}
+		catch (NumberFormatException exception) {
+			printUsage("Weights must be numbers, given as extension:weight for the extensions");
+		}
+		catch (IOException exception) {
+			printUsage("Weight file can't be read");
+		}
+		catch (IllegalArgumentException exception) {
+			printUsage(exception.getMessage());
+		}
+		return res;
+	}
+
+	private static boolean isValidStratification() {
+		boolean res = false;
+		try {
+			if (allocationCmd == null)
+				printUsage("Allocation must be one of " + Arrays.toString(StrataAllocation.values()).toLowerCase());
+			else if (strataCmd != null && packCmd)
+				printUsage("Strata can't be used with pack");
+			else {
+				if (strataCmd == null || strataCmd.equals("top"))
+					fileStrata = FileStrata.byDirectory(1);
+				else if (strataCmd.equals("extension"))
+					fileStrata = FileStrata.byExtension();
+				else if (strataCmd.startsWith("depth:"))
+					fileStrata = FileStrata.byDirectory(Integer.parseInt(strataCmd.substring("depth:".length())));
+				else
+					throw new NumberFormatException();
+				res = true;
+			}
+		}
+		catch (IllegalArgumentException exception) {
+			printUsage("Strata must be top, depth:<depth> with a depth greater than zero, or extension");
+		}
+		return res;
+	}
+
+	private static long startOfDate(String date, long defaultTime) {
+		if (date == null)
+			return defaultTime;
+		return LocalDate.parse(date).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
 	private static void printUsage(String detail) {
 		System.out.println("ERROR: " + detail + "\n\n" + DOC);
 	}
@@ -0,0 +1,388 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Selects random candidates, identified by their index, limiting the number of
+ * them and the total bytes that they sum.
+ * <p>
+ * The candidates are drawn without replacement with a partial Fisher-Yates shuffle: each draw
+ * swaps the chosen index with the last one of the remaining range and shrinks the range, so that
+ * every draw costs O(1). When only a few candidates are required the shuffled positions are
+ * kept in a sparse map instead of an array, so that the cost does not depend on the number of
+ * candidates at all.
+ * <p>
+ * When the bytes remaining get so few that many consecutive draws don't fit, the remaining candidates
+ * that still fit are sorted by size into a {@link SizeIndex}, and the rest of the draws are made from it.
+ * Each of these draws is uniform among the candidates that fit in the bytes remaining at that moment,
+ * and costs O(log n), so the selection never draws candidates that are discarded for their size.
+ * <p>
+ * The candidates can also be packed to fill the bytes as much as possible: they are drawn in the
+ * same way until only a sixteenth of the bytes remain, and then the remaining space is filled with
+ * a randomized best fit, drawing each time one of the largest candidates that fit from the size index.
+ * Since the gap left can be smaller than any candidate, the selected candidates are finally replaced,
+ * one at a time, with the largest candidate not selected that fits in the gap plus the replaced one.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class RandomSelection {
+
+    private static final int SPARSE_SELECTION_RATIO = 16;
+    private static final int MISFITS_BEFORE_SIZE_INDEX = 32;
+    private static final int PACKING_RESERVE_RATIO = 16;
+    private static final int BEST_FIT_CHOICES = 8;
+    private static final int REPLACEMENT_PASSES = 4;
+
+    private final Random random;
+
+    public RandomSelection(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Selects random candidates one by one. A candidate is selected if its size fits
+     * in the bytes remaining, and the selection goes on until {@code maxFiles} candidates
+     * are selected, the selected candidates sum {@code maxBytes}, or there are no more candidates.
+     *
+     * @param candidates The number of candidates, whose indexes go from 0 to {@code candidates - 1}
+     * @param sizeOf     The function that returns the size in bytes of a candidate given its index
+     * @param maxFiles   The maximum number of candidates to select. 0 means no maximum
+     * @param maxBytes   The maximum number of bytes that the selected candidates can sum
+     *
+     * @return The indexes of the selected candidates in the order they were drawn
+     */
+    public int[] select(int candidates, IntToLongFunction sizeOf, int maxFiles, long maxBytes) {
+        return select(candidates, index -> true, sizeOf, maxFiles, maxBytes);
+    }
+
+    /**
+     * Selects random candidates one by one, skipping the ones that are not eligible. A candidate is
+     * selected if it is eligible and its size fits in the bytes remaining, and the selection goes on
+     * until {@code maxFiles} candidates are selected, the selected candidates sum {@code maxBytes},
+     * or there are no more candidates.
+     *
+     * @param candidates The number of candidates, whose indexes go from 0 to {@code candidates - 1}
+     * @param eligible   The condition that a candidate must satisfy to be selected, given its index
+     * @param sizeOf     The function that returns the size in bytes of a candidate given its index
+     * @param maxFiles   The maximum number of candidates to select. 0 means no maximum
+     * @param maxBytes   The maximum number of bytes that the selected candidates can sum
+     *
+     * @return The indexes of the selected candidates in the order they were drawn
+     */
+    public int[] select(int candidates, IntPredicate eligible, IntToLongFunction sizeOf, int maxFiles, long maxBytes) {
+        return select(candidates, eligible, sizeOf, maxFiles, maxBytes, false);
+    }
+
+    /**
+     * Selects random candidates like {@link #select(int, IntPredicate, IntToLongFunction, int, long)}
+     * until only a sixteenth of {@code maxBytes} remain, and then fills the remaining bytes choosing
+     * each time at random among the largest eligible candidates that fit in them. Finally, selected
+     * candidates are replaced with larger ones while that reduces the bytes remaining.
+     *
+     * @param candidates The number of candidates, whose indexes go from 0 to {@code candidates - 1}
+     * @param eligible   The condition that a candidate must satisfy to be selected, given its index
+     * @param sizeOf     The function that returns the size in bytes of a candidate given its index
+     * @param maxFiles   The maximum number of candidates to select. 0 means no maximum
+     * @param maxBytes   The maximum number of bytes that the selected candidates can sum
+     *
+     * @return The indexes of the selected candidates in the order they were drawn
+     */
+    public int[] pack(int candidates, IntPredicate eligible, IntToLongFunction sizeOf, int maxFiles, long maxBytes) {
+        return select(candidates, eligible, sizeOf, maxFiles, maxBytes, true);
+    }
+
+    private int[] select(int candidates, IntPredicate eligible, IntToLongFunction sizeOf, int maxFiles, long maxBytes,
+                         boolean packing) {
+        if (candidates < 0 || maxFiles < 0)
+            throw new IllegalArgumentException("candidates or maxFiles argument less than zero");
+
+        int expectedSelected = maxFiles == 0 ? candidates : Math.min(maxFiles, candidates);
+        int[] selected = new int[expectedSelected];
+        int numSelected = 0;
+        long selectedBytes = 0;
+        Shuffle shuffle = maxFiles != 0 && maxFiles < candidates / SPARSE_SELECTION_RATIO
+                ? new SparseShuffle(candidates) : new DenseShuffle(candidates);
+
+        long reservedBytes = packing ? maxBytes / PACKING_RESERVE_RATIO : 0;
+        int consecutiveMisfits = 0;
+
+        while (shuffle.hasRemaining() && numSelected < expectedSelected && maxBytes - selectedBytes > reservedBytes
+                && consecutiveMisfits < MISFITS_BEFORE_SIZE_INDEX) {
+            int candidate = shuffle.draw(random);
+            long size = sizeOf.applyAsLong(candidate);
+            if (size > maxBytes - selectedBytes)
+                consecutiveMisfits++;
+            else {
+                consecutiveMisfits = 0;
+                if (eligible.test(candidate)) {
+                    selected[numSelected++] = candidate;
+                    selectedBytes += size;
+                }
+            }
+        }
+
+        if (shuffle.hasRemaining() && selectedBytes < maxBytes && (packing || numSelected < expectedSelected)) {
+            SizeIndex sizeIndex = new SizeIndex(shuffle, sizeOf, packing ? maxBytes : maxBytes - selectedBytes);
+            while (numSelected < expectedSelected && selectedBytes < maxBytes) {
+                long bytesRemaining = maxBytes - selectedBytes;
+                int position = packing ? sizeIndex.drawLargest(random, bytesRemaining) : sizeIndex.draw(random, bytesRemaining);
+                if (position == - 1)
+                    break;
+                int candidate = sizeIndex.candidateAt(position);
+                if (eligible.test(candidate)) {
+                    selected[numSelected++] = candidate;
+                    selectedBytes += sizeIndex.sizeAt(position);
+                }
+            }
+            if (packing)
+                replaceWithLargerCandidates(selected, numSelected, eligible, sizeOf, sizeIndex, maxBytes - selectedBytes);
+        }
+        return numSelected == selected.length ? selected : Arrays.copyOf(selected, numSelected);
+    }
+
+    /**
+     * Replaces each selected candidate with the largest eligible one in the size index that fits in the bytes
+     * remaining plus the size of the replaced candidate, if it is larger than it. The selected candidates are
+     * passed over until none of them is replaced or the bytes remaining are exhausted.
+     */
+    private void replaceWithLargerCandidates(int[] selected, int numSelected, IntPredicate eligible, IntToLongFunction sizeOf,
+                                             SizeIndex sizeIndex, long bytesRemaining) {
+        boolean replaced = true;
+        for (int pass = 0; replaced && pass < REPLACEMENT_PASSES; pass++) {
+            replaced = false;
+            for (int i = 0; i < numSelected && bytesRemaining > 0; i++) {
+                long size = sizeOf.applyAsLong(selected[i]);
+                int position = sizeIndex.largestFitting(bytesRemaining + size);
+                while (position != - 1 && sizeIndex.sizeAt(position) > size && ! eligible.test(sizeIndex.candidateAt(position))) {
+                    sizeIndex.remove(position);
+                    position = sizeIndex.largestFitting(bytesRemaining + size);
+                }
+                if (position != - 1 && sizeIndex.sizeAt(position) > size) {
+                    sizeIndex.remove(position);
+                    selected[i] = sizeIndex.candidateAt(position);
+                    bytesRemaining -= sizeIndex.sizeAt(position) - size;
+                    replaced = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * A permutation of the indexes of the candidates that is
+     * built lazily as the candidates are drawn
+     */
+    private abstract static class Shuffle {
+
+        int remaining;
+
+        Shuffle(int candidates) {
+            remaining = candidates;
+        }
+
+        boolean hasRemaining() {
+            return remaining > 0;
+        }
+
+        /**
+         * Draws a random candidate among the remaining ones, moving the last
+         * remaining candidate to the position of the drawn one
+         */
+        int draw(Random random) {
+            int position = random.nextInt(remaining);
+            int last = -- remaining;
+            int candidate = candidateAt(position);
+            moveTo(position, candidateAt(last));
+            return candidate;
+        }
+
+        abstract int candidateAt(int position);
+
+        abstract void moveTo(int position, int candidate);
+    }
+
+    private static class DenseShuffle extends Shuffle {
+
+        private final int[] positions;
+
+        DenseShuffle(int candidates) {
+            super(candidates);
+            positions = new int[candidates];
+            for (int i = 0; i < candidates; i++)
+                positions[i] = i;
+        }
+
+        @Override
+        int candidateAt(int position) {
+            return positions[position];
+        }
+
+        @Override
+        void moveTo(int position, int candidate) {
+            positions[position] = candidate;
+        }
+    }
+
+    /**
+     * Only the positions that were swapped are stored, the rest hold their own index
+     */
+    private static class SparseShuffle extends Shuffle {
+
+        private final Map<Integer, Integer> swappedPositions = new HashMap<>();
+
+        SparseShuffle(int candidates) {
+            super(candidates);
+        }
+
+        @Override
+        int candidateAt(int position) {
+            return swappedPositions.getOrDefault(position, position);
+        }
+
+        @Override
+        void moveTo(int position, int candidate) {
+            swappedPositions.put(position, candidate);
+            swappedPositions.remove(remaining);
+        }
+    }
+
+    /**
+     * The remaining candidates of a {@link Shuffle} that fit in the bytes remaining, sorted by size, with
+     * a Fenwick tree that counts the ones that were not drawn yet up to each position. The candidates that
+     * don't fit are left out, since the bytes remaining never grow.
+     */
+    private static class SizeIndex {
+
+        private final int[] candidates;
+        private final long[] sizes;
+        private final int[] tree;
+
+        SizeIndex(Shuffle shuffle, IntToLongFunction sizeOf, long bytesRemaining) {
+            int[] fittingCandidates = new int[shuffle.remaining];
+            long[] fittingSizes = new long[shuffle.remaining];
+            int fitting = 0;
+            for (int position = 0; position < shuffle.remaining; position++) {
+                int candidate = shuffle.candidateAt(position);
+                long size = sizeOf.applyAsLong(candidate);
+                if (size <= bytesRemaining) {
+                    fittingCandidates[fitting] = candidate;
+                    fittingSizes[fitting++] = size;
+                }
+            }
+
+            sizes = Arrays.copyOf(fittingSizes, fitting);
+            Arrays.sort(sizes);
+            candidates = new int[fitting];
+            int[] placedWithSize = new int[fitting];
+            for (int i = 0; i < fitting; i++) {
+                int first = firstPositionOver(fittingSizes[i] - 1);
+                candidates[first + placedWithSize[first]++] = fittingCandidates[i];
+            }
+
+            tree = new int[fitting + 1];
+            for (int node = 1; node <= fitting; node++)
+                tree[node] = node & - node;
+        }
+
+        int candidateAt(int position) {
+            return candidates[position];
+        }
+
+        long sizeAt(int position) {
+            return sizes[position];
+        }
+
+        /**
+         * Draws a random position among the ones not drawn yet whose size is not greater than the bytes remaining
+         *
+         * @return The position drawn, or -1 if no candidate fits
+         */
+        int draw(Random random, long bytesRemaining) {
+            int fitting = countBefore(firstPositionOver(bytesRemaining));
+            if (fitting == 0)
+                return - 1;
+            return remove(positionOf(random.nextInt(fitting)));
+        }
+
+        /**
+         * Draws a random position among the {@code BEST_FIT_CHOICES} largest ones not drawn yet
+         * whose size is not greater than the bytes remaining
+         *
+         * @return The position drawn, or -1 if no candidate fits
+         */
+        int drawLargest(Random random, long bytesRemaining) {
+            int fitting = countBefore(firstPositionOver(bytesRemaining));
+            if (fitting == 0)
+                return - 1;
+            return remove(positionOf(fitting - 1 - random.nextInt(Math.min(fitting, BEST_FIT_CHOICES))));
+        }
+
+        /**
+         * @return The position of the largest candidate not drawn yet whose size is not greater than
+         * the given bytes, or -1 if there is none
+         */
+        int largestFitting(long bytes) {
+            int fitting = countBefore(firstPositionOver(bytes));
+            return fitting == 0 ? - 1 : positionOf(fitting - 1);
+        }
+
+        int remove(int position) {
+            for (int node = position + 1; node < tree.length; node += node & - node)
+                tree[node]--;
+            return position;
+        }
+
+        private int firstPositionOver(long size) {
+            int low = 0;
+            int high = sizes.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sizes[middle] <= size)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            return low;
+        }
+
+        private int countBefore(int position) {
+            int count = 0;
+            for (int node = position; node > 0; node -= node & - node)
+                count += tree[node];
+            return count;
+        }
+
+        /**
+         * Finds the position of the candidate not drawn yet with the given rank, descending the tree
+         */
+        private int positionOf(int rank) {
+            int position = 0;
+            int remainingRank = rank + 1;
+            for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+                int node = position + step;
+                if (node < tree.length && tree[node] < remainingRank) {
+                    position = node;
+                    remainingRank -= tree[node];
+                }
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Selects random files from a stream of {@link FileEntry} objects of unknown length using
+ * reservoir sampling, limiting the number of files and the total bytes of the selection.
+ * <p>
+ * Each entry is tagged with a random key and the entries are considered in ascending key order,
+ * which is a uniform random permutation of the stream. Following that order, an entry is selected
+ * if it fits in the bytes remaining and the maximum number of files has not been reached.
+ * <p>
+ * Since an entry with a smaller key can arrive at any time and displace selected entries, freeing
+ * bytes for larger ones that did not fit before, the reservoir keeps every entry that could still be
+ * selected, and the selection is made over them once it is requested. An entry can be discarded once
+ * the entries with a smaller key that are not larger than it reach the maximum number of files, or
+ * leave no room for it in the bytes: if all of them are selected it doesn't fit, and if any of them is
+ * not, the bytes remaining were already less than its size, or the maximum number of files was reached.
+ * <p>
+ * To check that cheaply, the reservoir keeps for each size the key from which entries of that size are
+ * discarded, and updates it and discards the entries above it each time the reservoir doubles its size.
+ * With the keys at random, the entries kept are in the order of the maximum number of files times the
+ * logarithm of the number of entries in the stream. When only the bytes are limited more entries are kept,
+ * since the small ones can still fit after many others have been selected.
+ * <p>
+ * This class is thread safe, so it can be used as the consumer of a concurrent directory scan.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class ReservoirSelection implements Consumer<FileEntry> {
+
+    private static final int MIN_PRUNING_SIZE = 64;
+
+    private final int maxFiles;
+    private final long maxBytes;
+    private final Random random;
+    private final TreeMap<Long, FileEntry> reservoir;
+    private long[] thresholdSizes;
+    private long[] thresholdKeys;
+    private int pruningSize;
+
+    /**
+     * Constructor
+     *
+     * @param maxFiles The maximum number of files to select. 0 means no maximum
+     * @param maxBytes The maximum number of bytes that the selected files can sum
+     * @param random   The source of randomness
+     */
+    public ReservoirSelection(int maxFiles, long maxBytes, Random random) {
+        if (maxFiles < 0)
+            throw new IllegalArgumentException("maxFiles argument less than zero");
+        this.maxFiles = maxFiles;
+        this.maxBytes = maxBytes;
+        this.random = random;
+        reservoir = new TreeMap<>();
+        thresholdSizes = new long[0];
+        thresholdKeys = new long[0];
+        pruningSize = MIN_PRUNING_SIZE;
+    }
+
+    @Override
+    public synchronized void accept(FileEntry entry) {
+        if (entry.getSize() > maxBytes)
+            return;
+
+        long key = random.nextLong();
+        while (reservoir.containsKey(key))
+            key = random.nextLong();
+
+        if (key > thresholdKey(entry.getSize()))
+            return;
+
+        reservoir.put(key, entry);
+        if (reservoir.size() >= pruningSize) {
+            discardEntriesThatCantBeSelected();
+            pruningSize = Math.max(MIN_PRUNING_SIZE, reservoir.size() * 2);
+        }
+    }
+
+    /**
+     * @return The key from which the entries of a size are discarded, computed with the entries
+     *         that were kept when the thresholds were last updated, or with the smaller size closest
+     *         to it, which discards less entries
+     */
+    private long thresholdKey(long size) {
+        int position = Arrays.binarySearch(thresholdSizes, size);
+        if (position < 0)
+            position = - position - 2;
+        return position < 0 ? Long.MAX_VALUE : thresholdKeys[position];
+    }
+
+    /**
+     * Adds the entries in ascending size order to Fenwick trees of their count and bytes by key order,
+     * computing for each size the key from which the entries before it reach the maximum number of files
+     * or the bytes remaining for that size, and removes the entries whose key is above it
+     */
+    private void discardEntriesThatCantBeSelected() {
+        int entries = reservoir.size();
+        long[] keys = new long[entries];
+        long[] sizes = new long[entries];
+        int position = 0;
+        for (Map.Entry<Long, FileEntry> entry : reservoir.entrySet()) {
+            keys[position] = entry.getKey();
+            sizes[position++] = entry.getValue().getSize();
+        }
+        Integer[] bySize = new Integer[entries];
+        for (int i = 0; i < entries; i++)
+            bySize[i] = i;
+        Arrays.sort(bySize, Comparator.comparingLong(i -> sizes[i]));
+
+        int[] countTree = new int[entries + 1];
+        long[] bytesTree = new long[entries + 1];
+        long[] newThresholdSizes = new long[entries];
+        long[] newThresholdKeys = new long[entries];
+        int thresholds = 0;
+        for (int i = 0; i < entries; ) {
+            long size = sizes[bySize[i]];
+            for (; i < entries && sizes[bySize[i]] == size; i++)
+                for (int node = bySize[i] + 1; node <= entries; node += node & - node) {
+                    countTree[node]++;
+                    bytesTree[node] += size;
+                }
+            int lastFitting = maxFiles == 0 ? entries : lastPositionWithCountBelow(countTree, maxFiles);
+            lastFitting = Math.min(lastFitting, lastPositionWithBytesUpTo(bytesTree, maxBytes - size));
+            newThresholdSizes[thresholds] = size;
+            newThresholdKeys[thresholds++] = lastFitting == entries ? Long.MAX_VALUE : keys[lastFitting];
+        }
+        thresholdSizes = Arrays.copyOf(newThresholdSizes, thresholds);
+        thresholdKeys = Arrays.copyOf(newThresholdKeys, thresholds);
+        reservoir.entrySet().removeIf(entry -> entry.getKey() > thresholdKey(entry.getValue().getSize()));
+    }
+
+    /**
+     * @return The number of positions, from the first in key order, whose count of entries sums less than {@code count}
+     */
+    private static int lastPositionWithCountBelow(int[] countTree, int count) {
+        int position = 0;
+        int remaining = count - 1;
+        for (int step = Integer.highestOneBit(countTree.length - 1); step > 0; step >>= 1)
+            if (position + step < countTree.length && countTree[position + step] <= remaining) {
+                position += step;
+                remaining -= countTree[position];
+            }
+        return position;
+    }
+
+    /**
+     * @return The number of positions, from the first in key order, whose bytes sum no more than {@code bytes}
+     */
+    private static int lastPositionWithBytesUpTo(long[] bytesTree, long bytes) {
+        int position = 0;
+        long remaining = bytes;
+        for (int step = Integer.highestOneBit(bytesTree.length - 1); step > 0; step >>= 1)
+            if (position + step < bytesTree.length && bytesTree[position + step] <= remaining) {
+                position += step;
+                remaining -= bytesTree[position];
+            }
+        return position;
+    }
+
+    /**
+     * Follows the reservoir in key order selecting the entries that fit in the bytes remaining
+     * until the maximum number of files is reached
+     */
+    private List<FileEntry> selection() {
+        List<FileEntry> selected = new ArrayList<>();
+        long selectedBytes = 0;
+        for (FileEntry entry : reservoir.values()) {
+            if (maxFiles > 0 && selected.size() == maxFiles)
+                break;
+            if (entry.getSize() <= maxBytes - selectedBytes) {
+                selected.add(entry);
+                selectedBytes += entry.getSize();
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return The selected entries in random order
+     */
+    public synchronized List<FileEntry> getSelectedFiles() {
+        return selection();
+    }
+
+    public synchronized long getSelectedBytes() {
+        return selection().stream().mapToLong(FileEntry::getSize).sum();
+    }
+
+    /**
+     * @return The number of entries kept in the reservoir
+     */
+    synchronized int reservoirSize() {
+        return reservoir.size();
+    }
+}
@@ -0,0 +1,52 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+/**
+ * The ways in which {@link RandomFileCopier} can select the random files from the source directory
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public enum SelectionMode {
+
+    /**
+     * All the files in the source directory that satisfy the filter are collected
+     * and then the random files are selected among them
+     */
+    UNIFORM,
+
+    /**
+     * The random files are sampled while the source directory is scanned, retaining
+     * only the candidates that can make it to the selection
+     */
+    STREAMING,
+
+    /**
+     * All the files in the source directory that satisfy the filter are collected, the random
+     * files are selected among them until the maximum bytes are almost reached, and then the
+     * remaining bytes are filled choosing among the largest files that fit in them
+     */
+    PACK,
+
+    /**
+     * The files in the source directory that satisfy the filter are grouped in strata while the
+     * source directory is scanned, and the random files are selected from each stratum within its
+     * share of the maximum number of files and bytes
+     */
+    STRATIFIED
+}
@@ -0,0 +1,38 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+/**
+ * The ways in which {@link StratifiedSelection} shares the number of files and the bytes to copy among the strata
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public enum StrataAllocation {
+
+    /**
+     * Every stratum gets the same share, and what a stratum can't take because it has
+     * fewer files or bytes is shared again among the others
+     */
+    EVEN,
+
+    /**
+     * Every stratum gets a share proportional to its number of files, or to its bytes
+     * for the share of the bytes to copy
+     */
+    PROPORTIONAL
+}
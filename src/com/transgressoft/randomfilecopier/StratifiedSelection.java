@@ -0,0 +1,269 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Selects random candidates, identified by their index, from each of the {@link FileStrata} in which they
+ * are grouped, limiting the number of them and the total bytes that they sum.
+ * <p>
+ * The maximum number of files and the maximum bytes are shared among the strata beforehand, by
+ * {@link StrataAllocation}, using the number of files and the bytes counted in each stratum. A stratum
+ * never gets more than it has, and the rest is shared again among the strata that can take it. The
+ * units that can't be shared evenly go to strata chosen at random, so that with fewer files than strata
+ * every stratum has the same chance of getting one. Then the candidates of each stratum are selected
+ * at random within its share. The files and bytes of the shares that the candidates of a stratum can't fill
+ * are shared again, in the next round, among the strata that still have candidates. The rounds start from the
+ * files and bytes counted in the strata, and the candidates drawn are taken out of them as they are selected
+ * or rejected, because they are not eligible or don't fit in the bytes left, so that no round goes over the
+ * candidates again to count them. The candidates that don't fit in the share of their stratum are kept for the
+ * next rounds. After a round that selects nothing, or after a few rounds, what is left is given whole to each
+ * stratum in turn, in random order. Finally the selected candidates are shuffled together.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class StratifiedSelection {
+
+    private static final int MAX_ROUNDS = 16;
+
+    private final Random random;
+    private final StrataAllocation allocation;
+
+    public StratifiedSelection(Random random, StrataAllocation allocation) {
+        this.random = random;
+        this.allocation = allocation;
+    }
+
+    /**
+     * Selects random candidates from every stratum. The candidates that are not in any stratum are never selected.
+     *
+     * @param strata   The {@code FileStrata} of the candidates, whose indexes are their positions in it
+     * @param eligible The condition that a candidate must satisfy to be selected, given its index
+     * @param sizeOf   The function that returns the size in bytes of a candidate given its index
+     * @param maxFiles The maximum number of candidates to select. 0 means no maximum
+     * @param maxBytes The maximum number of bytes that the selected candidates can sum
+     *
+     * @return The indexes of the selected candidates in random order
+     */
+    public int[] select(FileStrata strata, IntPredicate eligible, IntToLongFunction sizeOf, int maxFiles, long maxBytes) {
+        if (maxFiles < 0)
+            throw new IllegalArgumentException("maxFiles argument less than zero");
+
+        int numStrata = strata.size();
+        int[] strataOfFiles = strata.strataOfFiles();
+        int[] firstMember = new int[numStrata + 1];
+        for (int stratum : strataOfFiles)
+            if (stratum != FileStrata.NONE)
+                firstMember[stratum + 1]++;
+        for (int stratum = 0; stratum < numStrata; stratum++)
+            firstMember[stratum + 1] += firstMember[stratum];
+        int[] members = new int[firstMember[numStrata]];
+        int[] nextMember = Arrays.copyOf(firstMember, numStrata);
+        for (int index = 0; index < strataOfFiles.length; index++)
+            if (strataOfFiles[index] != FileStrata.NONE)
+                members[nextMember[strataOfFiles[index]]++] = index;
+
+        Members left = new Members(strata, members, firstMember, eligible, sizeOf, maxBytes);
+        long filesLeft = maxFiles == 0 ? Long.MAX_VALUE : maxFiles;
+        int selectedInRound = 1;
+        boolean everyCandidateDrawn = false;
+        for (int round = 0; round < MAX_ROUNDS && selectedInRound > 0 && ! everyCandidateDrawn && filesLeft > 0 && left.bytesLeft > 0; round++) {
+            long totalFiles = 0;
+            long totalBytes = 0;
+            for (int stratum = 0; stratum < numStrata; stratum++) {
+                if (left.smallestLeft[stratum] > left.bytesLeft)
+                    left.discard(stratum);
+                totalFiles += left.files[stratum];
+                totalBytes += left.bytes[stratum];
+            }
+            if (totalFiles == 0)
+                break;
+            long[] fileShares = filesLeft >= totalFiles ? left.files.clone() : allocate(filesLeft, left.files);
+            long[] byteShares = left.bytesLeft >= totalBytes ? null : allocate(left.bytesLeft, left.bytes);
+            everyCandidateDrawn = filesLeft >= totalFiles && byteShares == null;
+
+            selectedInRound = 0;
+            for (int stratum = 0; stratum < numStrata; stratum++) {
+                long bytesShare = byteShares == null ? left.bytesLeft : byteShares[stratum];
+                if (fileShares[stratum] > 0 && bytesShare > 0)
+                    selectedInRound += left.draw(stratum, fileShares[stratum], bytesShare);
+            }
+            filesLeft -= selectedInRound;
+        }
+
+        if (! everyCandidateDrawn && filesLeft > 0 && left.bytesLeft > 0) {
+            List<Integer> strataLeft = new ArrayList<>();
+            for (int stratum = 0; stratum < numStrata; stratum++)
+                if (left.files[stratum] > 0)
+                    strataLeft.add(stratum);
+            Collections.shuffle(strataLeft, random);
+            for (int i = 0; i < strataLeft.size() && filesLeft > 0 && left.bytesLeft > 0; i++)
+                filesLeft -= left.draw(strataLeft.get(i), filesLeft, left.bytesLeft);
+        }
+
+        int[] selected = left.selected;
+        int numSelected = left.numSelected;
+        for (int i = numSelected - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swapped = selected[i];
+            selected[i] = selected[j];
+            selected[j] = swapped;
+        }
+        return Arrays.copyOf(selected, numSelected);
+    }
+
+    /**
+     * Shares a total among the strata without giving any of them more than its capacity. Each round shares
+     * what is left among the strata that are not full, evenly or proportionally to their capacities, and once
+     * it can't be shared in whole units the last units are given one by one to strata chosen at random.
+     *
+     * @param total      The total to share, not greater than the sum of the capacities
+     * @param capacities The number of files or the bytes of each stratum
+     *
+     * @return The share of each stratum
+     */
+    long[] allocate(long total, long[] capacities) {
+        long[] shares = new long[capacities.length];
+        long remaining = total;
+        List<Integer> open = new ArrayList<>();
+        while (remaining > 0) {
+            open.clear();
+            double openWeight = 0;
+            for (int stratum = 0; stratum < capacities.length; stratum++)
+                if (shares[stratum] < capacities[stratum]) {
+                    open.add(stratum);
+                    openWeight += allocation == StrataAllocation.EVEN ? 1 : capacities[stratum];
+                }
+            if (open.isEmpty())
+                break;
+
+            long shared = 0;
+            for (int stratum : open) {
+                double weight = allocation == StrataAllocation.EVEN ? 1 : capacities[stratum];
+                long share = Math.min((long) (remaining * weight / openWeight), capacities[stratum] - shares[stratum]);
+                shares[stratum] += share;
+                shared += share;
+            }
+            remaining -= shared;
+            if (shared == 0) {
+                Collections.shuffle(open, random);
+                for (int i = 0; i < open.size() && remaining > 0; i++, remaining--)
+                    shares[open.get(i)]++;
+            }
+        }
+        return shares;
+    }
+
+    /**
+     * The candidates of each stratum that were neither selected nor rejected yet, which are kept first in the
+     * range of the stratum in {@code members}, and the files and bytes counted in each stratum for them
+     */
+    private class Members {
+
+        private final int[] members;
+        private final int[] firstMember;
+        private final int[] alive;
+        private final long[] files;
+        private final long[] bytes;
+        private final long[] smallestLeft;
+        private final IntPredicate eligible;
+        private final IntToLongFunction sizeOf;
+        private final int[] selected;
+        private int numSelected;
+        private long bytesLeft;
+
+        Members(FileStrata strata, int[] members, int[] firstMember, IntPredicate eligible, IntToLongFunction sizeOf, long maxBytes) {
+            this.members = members;
+            this.firstMember = firstMember;
+            this.eligible = eligible;
+            this.sizeOf = sizeOf;
+            int numStrata = firstMember.length - 1;
+            alive = new int[numStrata];
+            files = new long[numStrata];
+            bytes = new long[numStrata];
+            smallestLeft = new long[numStrata];
+            for (int stratum = 0; stratum < numStrata; stratum++) {
+                alive[stratum] = firstMember[stratum + 1] - firstMember[stratum];
+                files[stratum] = strata.filesIn(stratum);
+                bytes[stratum] = strata.bytesIn(stratum);
+            }
+            selected = new int[members.length];
+            bytesLeft = maxBytes;
+        }
+
+        /**
+         * Draws the candidates of a stratum at random until its share is filled or all of them are drawn. The ones
+         * that don't fit in the share but fit in the bytes left are kept, and if all of them are drawn the smallest
+         * of those is remembered, so that the stratum is discarded once it doesn't fit in the bytes left either.
+         *
+         * @return The number of candidates selected
+         */
+        int draw(int stratum, long filesShare, long bytesShare) {
+            int offset = firstMember[stratum];
+            int undrawn = alive[stratum];
+            long smallestKept = Long.MAX_VALUE;
+            int selectedBefore = numSelected;
+            while (undrawn > 0 && filesShare > 0 && bytesShare > 0) {
+                undrawn--;
+                swap(offset + random.nextInt(undrawn + 1), offset + undrawn);
+                int index = members[offset + undrawn];
+                long size = sizeOf.applyAsLong(index);
+                if (size > bytesLeft)
+                    remove(stratum, offset + undrawn, size);
+                else if (size > bytesShare)
+                    smallestKept = Math.min(smallestKept, size);
+                else {
+                    if (eligible.test(index)) {
+                        selected[numSelected++] = index;
+                        filesShare--;
+                        bytesShare -= size;
+                        bytesLeft -= size;
+                    }
+                    remove(stratum, offset + undrawn, size);
+                }
+            }
+            smallestLeft[stratum] = undrawn == 0 ? smallestKept : 0;
+            return numSelected - selectedBefore;
+        }
+
+        /**
+         * Takes a drawn candidate out of its stratum, moving it after the ones left
+         */
+        private void remove(int stratum, int member, long size) {
+            swap(member, firstMember[stratum] + -- alive[stratum]);
+            files[stratum]--;
+            bytes[stratum] = Math.max(0, bytes[stratum] - size);
+        }
+
+        void discard(int stratum) {
+            alive[stratum] = 0;
+            files[stratum] = 0;
+            bytes[stratum] = 0;
+        }
+
+        private void swap(int member, int otherMember) {
+            int swapped = members[member];
+            members[member] = members[otherMember];
+            members[otherMember] = swapped;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * {@link ArchiveWriter} of tar archives in the POSIX ustar format. Names longer than 100 bytes are written
+ * in a preceding GNU long name entry, and sizes that don't fit in octal are written in base-256, as GNU tar does.
+ * Headers are gathered in a large buffer and the content of the files is transferred directly from their
+ * channels, so that the archive is written sequentially in big blocks.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class TarArchiveWriter implements ArchiveWriter {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int NAME_LENGTH = 100;
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+    private static final String LONG_NAME = "././@LongLink";
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel archiveChannel;
+    private final ByteBuffer buffer;
+    private long writtenBytes;
+
+    /**
+     * @param archiveFile The path of the archive, that is overwritten if it exists
+     *
+     * @throws IOException If the archive can't be created
+     */
+    public TarArchiveWriter(Path archiveFile) throws IOException {
+        archiveChannel = FileChannel.open(archiveFile, CREATE, TRUNCATE_EXISTING, WRITE);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(Path source, String entryName, long size, long lastModified) throws IOException {
+        try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+            byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+            if (name.length > NAME_LENGTH) {
+                putHeader(LONG_NAME.getBytes(StandardCharsets.US_ASCII), name.length + 1, 0, 'L');
+                putData(name);
+                putData(new byte[1]);
+                putPadding(name.length + 1);
+            }
+            putHeader(name, size, lastModified / 1000, '0');
+            flush();
+            long position = 0;
+            while (position < size) {
+                long transferred = sourceChannel.transferTo(position, size - position, archiveChannel);
+                if (transferred <= 0)
+                    throw new EOFException("Source file truncated while archived: " + source);
+                position += transferred;
+            }
+            writtenBytes += size;
+        }
+        putPadding(size);
+    }
+
+    /**
+     * Puts a 512 bytes header with the name truncated to 100 bytes, the size, the modification time in seconds and
+     * the type of entry. The numeric fields are octal strings terminated by a null, as written by most implementations.
+     */
+    private void putHeader(byte[] name, long size, long lastModifiedSeconds, char type) throws IOException {
+        byte[] header = new byte[BLOCK_SIZE];
+        System.arraycopy(name, 0, header, 0, Math.min(name.length, NAME_LENGTH));
+        putOctal(header, 100, 8, 0644);
+        putOctal(header, 108, 8, 0);
+        putOctal(header, 116, 8, 0);
+        if (size <= MAX_OCTAL_SIZE)
+            putOctal(header, 124, 12, size);
+        else
+            putBase256(header, 124, 12, size);
+        putOctal(header, 136, 12, Math.max(0, lastModifiedSeconds));
+        header[156] = (byte) type;
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+
+        for (int i = 148; i < 156; i++)
+            header[i] = ' ';
+        long checksum = 0;
+        for (byte headerByte : header)
+            checksum += headerByte & 0xFF;
+        putOctal(header, 148, 7, checksum);
+        putData(header);
+    }
+
+    private void putOctal(byte[] header, int offset, int length, long value) {
+        String octal = Long.toOctalString(value);
+        int digits = length - 1;
+        for (int i = 0; i < digits; i++) {
+            int octalIndex = octal.length() - digits + i;
+            header[offset + i] = (byte) (octalIndex < 0 ? '0' : octal.charAt(octalIndex));
+        }
+        header[offset + digits] = 0;
+    }
+
+    private void putBase256(byte[] header, int offset, int length, long value) {
+        for (int i = offset + length - 1; i > offset; i--) {
+            header[i] = (byte) value;
+            value >>>= 8;
+        }
+        header[offset] = (byte) 0x80;
+    }
+
+    private void putPadding(long dataLength) throws IOException {
+        int remainder = (int) (dataLength % BLOCK_SIZE);
+        if (remainder != 0)
+            putData(new byte[BLOCK_SIZE - remainder]);
+    }
+
+    private void putData(byte[] data) throws IOException {
+        if (buffer.remaining() < data.length)
+            flush();
+        buffer.put(data);
+        writtenBytes += data.length;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            archiveChannel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    /**
+     * Writes the two empty blocks that end the archive and closes it
+     *
+     * @throws IOException If the archive can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            putData(new byte[2 * BLOCK_SIZE]);
+            flush();
+        }
+        finally {
+            archiveChannel.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * {@link CopyStrategy} that chooses between two other strategies by the size of the files,
+ * so that a strategy that only pays off with large files is not used with the small ones.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class ThresholdCopy implements CopyStrategy {
+
+    private final CopyStrategy smallFilesStrategy;
+    private final CopyStrategy largeFilesStrategy;
+    private final long threshold;
+
+    /**
+     * @param smallFilesStrategy The {@code CopyStrategy} for the files smaller than the threshold
+     * @param largeFilesStrategy The {@code CopyStrategy} for the files with at least {@code threshold} bytes
+     * @param threshold          The size in bytes from which a file is copied with {@code largeFilesStrategy}
+     */
+    public ThresholdCopy(CopyStrategy smallFilesStrategy, CopyStrategy largeFilesStrategy, long threshold) {
+        if (smallFilesStrategy == null || largeFilesStrategy == null)
+            throw new IllegalArgumentException("copy strategy null");
+        this.smallFilesStrategy = smallFilesStrategy;
+        this.largeFilesStrategy = largeFilesStrategy;
+        this.threshold = threshold;
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    public void copy(Path source, Path target) throws IOException {
+        copy(source, target, Files.size(source));
+    }
+
+    @Override
+    public void copy(Path source, Path target, long size) throws IOException {
+        if (size < threshold)
+            smallFilesStrategy.copy(source, target, size);
+        else
+            largeFilesStrategy.copy(source, target, size);
+    }
+}
@@ -0,0 +1,55 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.channels.*;
+
+/**
+ * {@link CopyStrategy} that copies the files with {@link FileChannel#transferTo}, so that
+ * the operating system can move the content without copying it to user space buffers.
+ * Big files are transferred in chunks, since each call transfers at most 2 GB, and if the
+ * operating system does not support the transfer the rest is copied through a buffer.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class TransferCopy extends ChannelCopy {
+
+    private static final long MAX_TRANSFER_SIZE = Integer.MAX_VALUE;
+
+    @Override
+    protected void transfer(FileChannel source, FileChannel target, long size) throws IOException {
+        long position = 0;
+        try {
+            while (position < size) {
+                long transferred = source.transferTo(position, Math.min(MAX_TRANSFER_SIZE, size - position), target);
+                if (transferred <= 0)
+                    break;
+                position += transferred;
+            }
+        }
+        catch (ClosedChannelException exception) {
+            throw exception;
+        }
+        catch (IOException exception) {
+            // The transfer is not supported between these file systems
+        }
+        if (position < size)
+            bufferedTransfer(source, target, position, size);
+    }
+}
@@ -0,0 +1,101 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.util.*;
+
+/**
+ * Tree to draw random indexes with probabilities proportional to a set of weights, that can be
+ * removed afterwards, both in O(log n). It is a complete binary tree stored in an array, whose
+ * leaves hold the weights and whose inner nodes hold the sum of their two children. The sum of
+ * a node is computed again from its children whenever a weight beneath it is removed, instead of
+ * subtracting the weight from it, so the sums stay accurate however small the weight left is.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class WeightTree {
+
+    private final int leaves;
+    private final double[] sums;
+
+    /**
+     * Builds the tree for the given weights in O(n). Indexes with weight 0 are never drawn.
+     *
+     * @param weights The weights of the indexes, not negative
+     *
+     * @throws IllegalArgumentException If a weight is negative or not finite
+     */
+    public WeightTree(double[] weights) {
+        int capacity = 1;
+        while (capacity < weights.length)
+            capacity <<= 1;
+        leaves = capacity;
+        sums = new double[2 * capacity];
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 0 || Double.isNaN(weights[i]) || Double.isInfinite(weights[i]))
+                throw new IllegalArgumentException("Weights must be finite and not negative");
+            sums[capacity + i] = weights[i];
+        }
+        for (int node = capacity - 1; node > 0; node--)
+            sums[node] = sums[2 * node] + sums[2 * node + 1];
+    }
+
+    /**
+     * @return The sum of the weights that were not removed
+     */
+    public double totalWeight() {
+        return sums[1];
+    }
+
+    /**
+     * Draws a random index descending from the root to the child whose range holds a uniform point
+     * of the weight of the node, never into a child without weight
+     *
+     * @param random The source of randomness
+     *
+     * @return The index drawn, or -1 if there is no weight left
+     */
+    public int sample(Random random) {
+        if (sums[1] <= 0)
+            return - 1;
+        double point = random.nextDouble() * sums[1];
+        int node = 1;
+        while (node < leaves) {
+            double left = sums[2 * node];
+            if (sums[2 * node + 1] == 0 || (left > 0 && point < left))
+                node = 2 * node;
+            else {
+                point -= left;
+                node = 2 * node + 1;
+            }
+        }
+        return node - leaves;
+    }
+
+    /**
+     * Sets the weight of an index to 0, so that it is never drawn again
+     *
+     * @param index The index to remove
+     */
+    public void remove(int index) {
+        int node = leaves + index;
+        sums[node] = 0;
+        for (node >>= 1; node > 0; node >>= 1)
+            sums[node] = sums[2 * node] + sums[2 * node + 1];
+    }
+}
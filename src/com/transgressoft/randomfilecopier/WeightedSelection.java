@@ -0,0 +1,127 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Selects random candidates, identified by their index, with probabilities proportional to
+ * their weights, limiting the number of them and the total bytes that they sum.
+ * <p>
+ * The candidates are drawn in O(1) from an {@link AliasTable}. Since they are drawn without
+ * replacement, the weight of every drawn candidate is set to 0, whether it was selected or not,
+ * and the draws that fall on one of them are rejected. Once the weight left is less than half
+ * of the weight of the table, so that more than half of the draws would be rejected, the rest of
+ * the candidates are drawn from a {@link WeightTree} of the weights left instead, where the drawn
+ * candidates are removed in O(log n). This way the selection takes O(n + k log n) for k draws even
+ * if the weights are so skewed that a few draws take most of the weight.
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class WeightedSelection {
+
+    private static final double TREE_RATIO = 0.5;
+
+    private final Random random;
+
+    public WeightedSelection(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Selects random candidates one by one, skipping the ones that are not eligible. A candidate is
+     * selected if it is eligible and its size fits in the bytes remaining, and the selection goes on
+     * until {@code maxFiles} candidates are selected, the selected candidates sum {@code maxBytes},
+     * or there are no more candidates with weight. Candidates with weight 0 are never selected.
+     *
+     * @param weights  The weights of the candidates, whose indexes go from 0 to {@code weights.length - 1}
+     * @param eligible The condition that a candidate must satisfy to be selected, given its index
+     * @param sizeOf   The function that returns the size in bytes of a candidate given its index
+     * @param maxFiles The maximum number of candidates to select. 0 means no maximum
+     * @param maxBytes The maximum number of bytes that the selected candidates can sum
+     *
+     * @return The indexes of the selected candidates in the order they were drawn
+     */
+    public int[] select(double[] weights, IntPredicate eligible, IntToLongFunction sizeOf, int maxFiles, long maxBytes) {
+        double weightSum = 0;
+        for (double weight : weights)
+            weightSum += weight;
+        if (weightSum <= 0)
+            return new int[0];
+        return select(weights, new AliasTable(weights), eligible, sizeOf, maxFiles, maxBytes);
+    }
+
+    /**
+     * Selects random candidates like {@link #select(double[], IntPredicate, IntToLongFunction, int, long)}
+     * with an {@link AliasTable} of the weights that was already built, so that it can be kept between
+     * selections from the same candidates.
+     *
+     * @param weights    The weights of the candidates, whose indexes go from 0 to {@code weights.length - 1}
+     * @param aliasTable The {@code AliasTable} built with the same weights
+     * @param eligible   The condition that a candidate must satisfy to be selected, given its index
+     * @param sizeOf     The function that returns the size in bytes of a candidate given its index
+     * @param maxFiles   The maximum number of candidates to select. 0 means no maximum
+     * @param maxBytes   The maximum number of bytes that the selected candidates can sum
+     *
+     * @return The indexes of the selected candidates in the order they were drawn
+     */
+    public int[] select(double[] weights, AliasTable aliasTable, IntPredicate eligible, IntToLongFunction sizeOf, int maxFiles, long maxBytes) {
+        if (maxFiles < 0)
+            throw new IllegalArgumentException("maxFiles argument less than zero");
+
+        int candidates = weights.length;
+        int expectedSelected = maxFiles == 0 ? candidates : Math.min(maxFiles, candidates);
+        int[] selected = new int[expectedSelected];
+        int numSelected = 0;
+        long selectedBytes = 0;
+        double[] weightsLeft = weights.clone();
+        double weightLeft = aliasTable.getTotalWeight();
+        double tableWeight = weightLeft;
+        WeightTree weightTree = null;
+
+        while (numSelected < expectedSelected && selectedBytes < maxBytes) {
+            int candidate;
+            if (weightTree != null) {
+                candidate = weightTree.sample(random);
+                if (candidate == - 1)
+                    break;
+                weightTree.remove(candidate);
+            }
+            else if (weightLeft < tableWeight * TREE_RATIO) {
+                weightTree = new WeightTree(weightsLeft);
+                continue;
+            }
+            else {
+                candidate = aliasTable.sample(random);
+                double weight = weightsLeft[candidate];
+                if (weight == 0)
+                    continue;
+                weightsLeft[candidate] = 0;
+                weightLeft -= weight;
+            }
+
+            long size = sizeOf.applyAsLong(candidate);
+            if (size <= maxBytes - selectedBytes && eligible.test(candidate)) {
+                selected[numSelected++] = candidate;
+                selectedBytes += size;
+            }
+        }
+        return numSelected == selected.length ? selected : Arrays.copyOf(selected, numSelected);
+    }
+}
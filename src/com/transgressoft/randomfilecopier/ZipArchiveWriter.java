@@ -0,0 +1,97 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * {@link ArchiveWriter} of zip archives, compressing the entries with the default deflate level
+ * and writing the archive through a large buffer
+ *
+ * @author Octavio Calleya
+ * @version 0.2.6
+ */
+public class ZipArchiveWriter implements ArchiveWriter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final CountingOutputStream archiveOutput;
+    private final ZipOutputStream zipOutput;
+    private final byte[] buffer;
+
+    /**
+     * @param archiveFile The path of the archive, that is overwritten if it exists
+     *
+     * @throws IOException If the archive can't be created
+     */
+    public ZipArchiveWriter(Path archiveFile) throws IOException {
+        archiveOutput = new CountingOutputStream(Files.newOutputStream(archiveFile, CREATE, TRUNCATE_EXISTING, WRITE));
+        zipOutput = new ZipOutputStream(new BufferedOutputStream(archiveOutput, BUFFER_SIZE));
+        buffer = new byte[BUFFER_SIZE];
+    }
+
+    @Override
+    public void write(Path source, String entryName, long size, long lastModified) throws IOException {
+        try (InputStream sourceInput = Files.newInputStream(source)) {
+            ZipEntry entry = new ZipEntry(entryName);
+            entry.setTime(lastModified);
+            zipOutput.putNextEntry(entry);
+            int read;
+            while ((read = sourceInput.read(buffer)) != - 1)
+                zipOutput.write(buffer, 0, read);
+        }
+        zipOutput.closeEntry();
+    }
+
+    /**
+     * @return The bytes that already went to the archive file, the ones in the buffer are not counted
+     */
+    @Override
+    public long getWrittenBytes() {
+        return archiveOutput.count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipOutput.close();
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class DirectoryPruningTest {
+
+	Path sourceFolder;
+	DirectoryPruning pruning;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		sourceFolder = Files.createTempDirectory("pruningSource");
+		Files.write(sourceFolder.resolve("root.txt"), new byte[10]);
+		Path photos = Files.createDirectories(sourceFolder.resolve("photos"));
+		Files.write(photos.resolve("photo.jpg"), new byte[10]);
+		Path thumbnails = Files.createDirectories(photos.resolve("thumbnails"));
+		Files.write(thumbnails.resolve("thumbnail.jpg"), new byte[10]);
+		Path git = Files.createDirectories(sourceFolder.resolve(".git").resolve("objects"));
+		Files.write(git.resolve("object"), new byte[10]);
+		Path deep = Files.createDirectories(sourceFolder.resolve("a").resolve("b").resolve("c"));
+		Files.write(deep.resolve("deep.txt"), new byte[10]);
+		pruning = new DirectoryPruning();
+	}
+
+	Set<String> scannedFileNames() {
+		FilesInDirectory filesInDirectory = new FilesInDirectory(sourceFolder.toFile(), 2);
+		filesInDirectory.setPruning(pruning);
+		return filesInDirectory.entries(entry -> true).stream().map(FileEntry::getName).collect(Collectors.toSet());
+	}
+
+	@Test
+	public void noRulesScansEveryDirectory() {
+		assertTrue(pruning.isEmpty());
+		assertEquals(new HashSet<>(Arrays.asList("root.txt", "photo.jpg", "thumbnail.jpg", "object", "deep.txt")),
+					 scannedFileNames());
+	}
+
+	@Test
+	public void globsMatchDirectoryNamesAtAnyDepth() {
+		pruning.addExcludedGlob(".git");
+		pruning.addExcludedGlob("thumb*");
+
+		assertEquals(new HashSet<>(Arrays.asList("root.txt", "photo.jpg", "deep.txt")), scannedFileNames());
+	}
+
+	@Test
+	public void globsWithSlashMatchRelativePaths() {
+		pruning.addExcludedGlob("a/b");
+		pruning.addExcludedGlob("thumbnails/*");
+
+		assertEquals(new HashSet<>(Arrays.asList("root.txt", "photo.jpg", "thumbnail.jpg", "object")), scannedFileNames());
+	}
+
+	@Test
+	public void maxDepthStopsDescending() {
+		pruning.setMaxDepth(1);
+		assertEquals(new HashSet<>(Arrays.asList("root.txt", "photo.jpg")), scannedFileNames());
+
+		pruning.setMaxDepth(0);
+		assertEquals(Collections.singleton("root.txt"), scannedFileNames());
+	}
+
+	@Test
+	public void rootIsNeverPruned() {
+		pruning.addExcludedGlob(sourceFolder.getFileName().toString());
+		pruning.setMaxDepth(0);
+
+		assertFalse(pruning.prunes(sourceFolder, sourceFolder));
+		assertTrue(pruning.prunes(sourceFolder, sourceFolder.resolve("photos")));
+	}
+
+	@Test
+	public void negativeMaxDepthIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> pruning.setMaxDepth(- 1));
+	}
+}
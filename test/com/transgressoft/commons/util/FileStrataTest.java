@@ -0,0 +1,156 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class FileStrataTest {
+
+	Path sourceFolder;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		sourceFolder = Files.createTempDirectory("strataSource");
+		Files.write(sourceFolder.resolve("root.txt"), new byte[10]);
+		Path photos = Files.createDirectories(sourceFolder.resolve("photos"));
+		Files.write(photos.resolve("photo.jpg"), new byte[20]);
+		Path thumbnails = Files.createDirectories(photos.resolve("thumbnails"));
+		Files.write(thumbnails.resolve("thumbnail.JPG"), new byte[5]);
+		Path deep = Files.createDirectories(sourceFolder.resolve("a").resolve("b").resolve("c"));
+		Files.write(deep.resolve("deep.txt"), new byte[10]);
+		Files.write(deep.resolve("README"), new byte[1]);
+	}
+
+	Map<String, Integer> filesByStratum(FileStrata strata) {
+		Map<String, Integer> filesByStratum = new HashMap<>();
+		for (int stratum = 0; stratum < strata.size(); stratum++)
+			if (strata.filesIn(stratum) > 0)
+				filesByStratum.put(strata.nameOf(stratum), strata.filesIn(stratum));
+		return filesByStratum;
+	}
+
+	Map<String, Integer> scannedStrata(FileStrata strata) {
+		FileTable table = new FilesInDirectory(sourceFolder.toFile(), 2).table(entry -> true, strata);
+		for (int index = 0; index < table.size(); index++) {
+			String stratumName = strata.nameOf(strata.stratumOf(index));
+			String expectedName = strata.isByExtension() ? table.entry(index).getName().replaceAll(".*\\.|^[^.]*$", "").toLowerCase()
+														 : strata.directoryKey(sourceFolder, table.entry(index).getPath().getParent());
+			assertEquals(expectedName, stratumName);
+		}
+		return filesByStratum(strata);
+	}
+
+	@Test
+	public void topLevelDirectoriesAreGatheredDuringTheScan() {
+		FileStrata strata = FileStrata.byDirectory(1);
+
+		Map<String, Integer> expected = new HashMap<>();
+		expected.put("", 1);
+		expected.put("photos", 2);
+		expected.put("a", 2);
+		assertEquals(expected, scannedStrata(strata));
+		assertEquals(25, strata.bytesIn(strata.stratum("photos")));
+	}
+
+	@Test
+	public void deeperDirectoriesAreStrataUpToTheDepth() {
+		Map<String, Integer> expected = new HashMap<>();
+		expected.put("", 1);
+		expected.put("photos", 1);
+		expected.put("photos/thumbnails", 1);
+		expected.put("a/b", 2);
+		assertEquals(expected, scannedStrata(FileStrata.byDirectory(2)));
+	}
+
+	@Test
+	public void extensionsAreStrataIgnoringTheCase() {
+		Map<String, Integer> expected = new HashMap<>();
+		expected.put("txt", 2);
+		expected.put("jpg", 2);
+		expected.put("", 1);
+		assertEquals(expected, scannedStrata(FileStrata.byExtension()));
+	}
+
+	@Test
+	public void indexIsGroupedLikeTheScan() throws Exception {
+		FileTable table = new FilesInDirectory(sourceFolder.toFile(), 2).table(entry -> true);
+		FileStrata strata = FileStrata.byDirectory(1);
+		strata.addAll(table, index -> ! table.entry(index).getName().equals("README"), sourceFolder);
+
+		Map<String, Integer> expected = new HashMap<>();
+		expected.put("", 1);
+		expected.put("photos", 2);
+		expected.put("a", 1);
+		assertEquals(expected, filesByStratum(strata));
+		for (int index = 0; index < table.size(); index++)
+			if (table.entry(index).getName().equals("README"))
+				assertEquals(FileStrata.NONE, strata.stratumOf(index));
+	}
+
+	@Test
+	public void indexIsGroupedByItsIdsWithoutReadingEntries() {
+		FileTable table = new FileTable(sourceFolder) {
+
+			@Override
+			public FileEntry entry(int index) {
+				throw new AssertionError("Entry read");
+			}
+		};
+		int photos = table.addDirectory(FileTable.ROOT, "photos");
+		table.addFile(FileTable.ROOT, "root.txt", 10, 0);
+		table.addFile(photos, "photo.jpg", 20, 0);
+		table.addFile(photos, "thumbnail.JPG", 5, 0);
+		table.addFile(photos, "README", 1, 0);
+
+		FileStrata strata = FileStrata.byExtension();
+		strata.addAll(table, index -> true, sourceFolder);
+		Map<String, Integer> expected = new HashMap<>();
+		expected.put("txt", 1);
+		expected.put("jpg", 2);
+		expected.put("", 1);
+		assertEquals(expected, filesByStratum(strata));
+
+		strata = FileStrata.byDirectory(1);
+		strata.addAll(table, index -> index != 0, sourceFolder);
+		assertEquals(Collections.singletonMap("photos", 3), filesByStratum(strata));
+		assertEquals(26, strata.bytesIn(strata.stratum("photos")));
+	}
+
+	@Test
+	public void emptyCopyKeepsTheRules() {
+		FileStrata strata = FileStrata.byDirectory(3);
+		scannedStrata(strata);
+		FileStrata copy = strata.emptyCopy();
+
+		assertEquals(0, copy.size());
+		assertEquals(3, copy.getDirectoryDepth());
+		assertFalse(copy.isByExtension());
+	}
+
+	@Test
+	public void depthLessThanOneIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> FileStrata.byDirectory(0));
+	}
+}
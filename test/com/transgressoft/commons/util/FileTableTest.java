@@ -0,0 +1,93 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class FileTableTest {
+
+	Path rootFolder = Paths.get("/source").toAbsolutePath();
+	FileTable fileTable = new FileTable(rootFolder);
+
+	@Test
+	public void filesAreMaterialisedWithTheirWholePath() {
+		int music = fileTable.addDirectory(FileTable.ROOT, "music");
+		int album = fileTable.addDirectory(music, "álbum");
+		fileTable.addFile(FileTable.ROOT, "root.txt", 10, 1000);
+		fileTable.addFile(album, "song.mp3", 20, 2500);
+
+		assertEquals(2, fileTable.size());
+		assertEquals(3, fileTable.directories());
+		assertEquals(rootFolder.resolve("root.txt"), fileTable.path(0));
+		assertEquals(rootFolder.resolve("music").resolve("álbum").resolve("song.mp3"), fileTable.path(1));
+		FileEntry songEntry = fileTable.entry(1);
+		assertEquals("song.mp3", songEntry.getName());
+		assertEquals(20, songEntry.getSize());
+		assertEquals(2000, songEntry.getLastModified());
+		assertEquals(music, fileTable.parentOf(album));
+	}
+
+	@Test
+	public void namesSpanSeveralPages() {
+		String longName = Stream.generate(() -> "n").limit(1000).collect(Collectors.joining());
+		for (int i = 0; i < 200; i++)
+			fileTable.addFile(FileTable.ROOT, longName + i, i, 0);
+
+		for (int i = 0; i < 200; i++) {
+			assertEquals(longName + i, fileTable.nameOf(i));
+			assertEquals(i, fileTable.sizeOf(i));
+		}
+	}
+
+	@Test
+	public void eachFileTakesLessThanFortyBytes() {
+		int numberOfFiles = 200_000;
+		int directory = FileTable.ROOT;
+		for (int i = 0; i < numberOfFiles; i++) {
+			if (i % 1000 == 0)
+				directory = fileTable.addDirectory(directory, "directory" + i);
+			fileTable.addFile(directory, String.format("track%08d.mp3", i), i, System.currentTimeMillis());
+		}
+		fileTable.trimToSize();
+
+		assertTrue(fileTable.memoryFootprint() / numberOfFiles < 40);
+	}
+
+	@Test
+	public void tableOfScannedDirectory() throws Exception {
+		Path sourceFolder = Files.createTempDirectory("tableSource");
+		Path subFolder = Files.createDirectories(sourceFolder.resolve("a").resolve("b"));
+		Files.write(sourceFolder.resolve("first.txt"), new byte[10]);
+		Files.write(subFolder.resolve("second.txt"), new byte[20]);
+		Files.write(subFolder.resolve("third.pdf"), new byte[30]);
+
+		FileTable scannedTable = new FilesInDirectory(sourceFolder.toFile(), 2).table(entry -> entry.getName().endsWith(".txt"));
+
+		Set<Path> paths = IntStream.range(0, scannedTable.size()).mapToObj(scannedTable::path).collect(Collectors.toSet());
+		assertEquals(new HashSet<>(Arrays.asList(sourceFolder.resolve("first.txt"), subFolder.resolve("second.txt"))), paths);
+		assertEquals(30, IntStream.range(0, scannedTable.size()).mapToLong(scannedTable::sizeOf).sum());
+	}
+}
@@ -0,0 +1,138 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class LiveSourceIndexTest {
+
+	Path sourceFolder;
+	LiveSourceIndex liveIndex;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		sourceFolder = Files.createTempDirectory("liveSource");
+		Files.write(sourceFolder.resolve("first.txt"), new byte[10]);
+		Path subFolder = Files.createDirectories(sourceFolder.resolve("sub"));
+		Files.write(subFolder.resolve("second.mp3"), new byte[20]);
+		liveIndex = LiveSourceIndex.start(sourceFolder);
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		liveIndex.close();
+	}
+
+	Set<String> fileNames(FileIndex index) {
+		return IntStream.range(0, index.size()).mapToObj(index::entry).map(FileEntry::getName).collect(Collectors.toSet());
+	}
+
+	/**
+	 * Events are delivered asynchronously, and some watch service implementations poll the directories
+	 */
+	void awaitIndex(Predicate<FileIndex> condition) throws Exception {
+		long deadline = System.currentTimeMillis() + 30000;
+		while (! condition.test(liveIndex.snapshot()) && System.currentTimeMillis() < deadline)
+			Thread.sleep(50);
+		assertTrue(condition.test(liveIndex.snapshot()));
+	}
+
+	@Test
+	public void startedIndexContainsAllFiles() {
+		FileIndex snapshot = liveIndex.snapshot();
+
+		assertEquals(2, snapshot.size());
+		assertEquals(new HashSet<>(Arrays.asList("first.txt", "second.mp3")), fileNames(snapshot));
+	}
+
+	@Test
+	public void createdFilesAndDirectoriesAreIndexed() throws Exception {
+		Files.write(sourceFolder.resolve("sub").resolve("third.txt"), new byte[30]);
+		Path newFolder = Files.createDirectories(sourceFolder.resolve("new"));
+		Files.write(newFolder.resolve("fourth.txt"), new byte[40]);
+
+		awaitIndex(index -> index.size() == 4);
+		assertEquals(new HashSet<>(Arrays.asList("first.txt", "second.mp3", "third.txt", "fourth.txt")),
+					 fileNames(liveIndex.snapshot()));
+	}
+
+	@Test
+	public void deletedFilesAndDirectoriesAreRemoved() throws Exception {
+		Files.delete(sourceFolder.resolve("first.txt"));
+		Files.delete(sourceFolder.resolve("sub").resolve("second.mp3"));
+		Files.delete(sourceFolder.resolve("sub"));
+
+		awaitIndex(index -> index.size() == 0);
+	}
+
+	@Test
+	public void modifiedFilesAreUpdated() throws Exception {
+		Files.write(sourceFolder.resolve("first.txt"), new byte[50]);
+
+		awaitIndex(index -> index.size() == 2 && index.sizeOf(0) + index.sizeOf(1) == 70);
+	}
+
+	@Test
+	public void snapshotIsNotAffectedByLaterChanges() throws Exception {
+		FileIndex snapshot = liveIndex.snapshot();
+		Files.delete(sourceFolder.resolve("first.txt"));
+
+		awaitIndex(index -> index.size() == 1);
+		assertEquals(2, snapshot.size());
+	}
+
+	@Test
+	public void indexIsReadInPlace() {
+		List<Long> sizes = new ArrayList<>();
+		liveIndex.read(index -> {
+			assertEquals(new HashSet<>(Arrays.asList("first.txt", "second.mp3")), fileNames(index));
+			for (int file = 0; file < index.size(); file++) {
+				sizes.add(index.sizeOf(file));
+				FileEntry entry = index.entry(file);
+				assertEquals(entry.getPath().getParent(), index.directoryPath(index.directoryOf(file)));
+				assertEquals(entry.getName().substring(entry.getName().indexOf('.') + 1), index.extensionName(index.extensionIdOf(file)));
+			}
+		});
+
+		assertEquals(new HashSet<>(Arrays.asList(10L, 20L)), new HashSet<>(sizes));
+	}
+
+	@Test
+	public void deletedDirectoryTreesAreRemoved() throws Exception {
+		Path nestedFolder = Files.createDirectories(sourceFolder.resolve("sub").resolve("nested"));
+		Files.write(nestedFolder.resolve("third.txt"), new byte[30]);
+		awaitIndex(index -> index.size() == 3);
+
+		Files.delete(nestedFolder.resolve("third.txt"));
+		Files.delete(nestedFolder);
+		Files.delete(sourceFolder.resolve("sub").resolve("second.mp3"));
+		Files.delete(sourceFolder.resolve("sub"));
+
+		awaitIndex(index -> index.size() == 1 && index.entry(0).getName().equals("first.txt"));
+		assertEquals(1, liveIndex.size());
+	}
+}
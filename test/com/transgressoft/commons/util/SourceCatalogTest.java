@@ -0,0 +1,221 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.commons.util;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class SourceCatalogTest {
+
+	Path sourceFolder;
+	Path cacheFolder;
+	SourceCatalog sourceCatalog;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		sourceFolder = Files.createTempDirectory("catalogSource");
+		cacheFolder = Files.createTempDirectory("catalogCache");
+		Files.write(sourceFolder.resolve("first.txt"), new byte[10]);
+		Path subFolder = Files.createDirectories(sourceFolder.resolve("sub"));
+		Files.write(subFolder.resolve("second.mp3"), new byte[20]);
+		Files.write(subFolder.resolve("third"), new byte[30]);
+	}
+
+	Set<String> fileNames(List<FileEntry> entries) {
+		return entries.stream().map(FileEntry::getName).collect(Collectors.toSet());
+	}
+
+	void touchDirectory(Path directory) throws Exception {
+		FileTime lastModified = Files.getLastModifiedTime(directory);
+		Files.setLastModifiedTime(directory, FileTime.fromMillis(lastModified.toMillis() + 1000));
+	}
+
+	@Test
+	public void newCatalogContainsAllFilesAfterRefresh() throws Exception {
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+		assertEquals(0, sourceCatalog.size());
+
+		assertTrue(sourceCatalog.refresh());
+
+		List<FileEntry> entries = sourceCatalog.entries(entry -> true);
+		assertEquals(3, sourceCatalog.size());
+		assertEquals(new HashSet<>(Arrays.asList("first.txt", "second.mp3", "third")), fileNames(entries));
+		assertEquals(20, entries.stream().filter(entry -> entry.getName().equals("second.mp3")).findFirst().get().getSize());
+	}
+
+	@Test
+	public void savedCatalogIsLoadedAndUnchangedOnRefresh() throws Exception {
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+		sourceCatalog.refresh();
+
+		SourceCatalog loadedCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+
+		assertEquals(3, loadedCatalog.size());
+		assertFalse(loadedCatalog.refresh());
+		assertEquals(fileNames(sourceCatalog.entries(entry -> true)), fileNames(loadedCatalog.entries(entry -> true)));
+	}
+
+	@Test
+	public void refreshListsAgainOnlyChangedDirectories() throws Exception {
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+		sourceCatalog.refresh();
+
+		Files.write(sourceFolder.resolve("sub").resolve("fourth.txt"), new byte[40]);
+		Files.delete(sourceFolder.resolve("first.txt"));
+		touchDirectory(sourceFolder.resolve("sub"));
+		touchDirectory(sourceFolder);
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+
+		assertTrue(sourceCatalog.refresh());
+		assertEquals(new HashSet<>(Arrays.asList("second.mp3", "third", "fourth.txt")),
+					 fileNames(sourceCatalog.entries(entry -> true)));
+	}
+
+	@Test
+	public void removedDirectoriesAreRemovedFromTheCatalog() throws Exception {
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+		sourceCatalog.refresh();
+
+		Path subFolder = sourceFolder.resolve("sub");
+		Files.delete(subFolder.resolve("second.mp3"));
+		Files.delete(subFolder.resolve("third"));
+		Files.delete(subFolder);
+		touchDirectory(sourceFolder);
+
+		assertTrue(sourceCatalog.refresh());
+		assertEquals(Collections.singleton("first.txt"), fileNames(sourceCatalog.entries(entry -> true)));
+	}
+
+	@Test
+	public void prunedDirectoriesAreRemovedFromTheCatalog() throws Exception {
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+		sourceCatalog.refresh();
+
+		DirectoryPruning pruning = new DirectoryPruning();
+		pruning.addExcludedGlob("sub");
+		sourceCatalog.setPruning(pruning);
+
+		assertTrue(sourceCatalog.refresh());
+		assertEquals(Collections.singleton("first.txt"), fileNames(sourceCatalog.entries(entry -> true)));
+	}
+
+	@Test
+	public void relaxedPruningCatalogsTheDirectoriesPrunedBefore() throws Exception {
+		DirectoryPruning pruning = new DirectoryPruning();
+		pruning.addExcludedGlob("sub");
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+		sourceCatalog.setPruning(pruning);
+		sourceCatalog.refresh();
+		assertEquals(1, sourceCatalog.size());
+
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+
+		assertTrue(sourceCatalog.refresh());
+		assertEquals(new HashSet<>(Arrays.asList("first.txt", "second.mp3", "third")),
+					 fileNames(sourceCatalog.entries(entry -> true)));
+		assertFalse(SourceCatalog.open(sourceFolder, cacheFolder).refresh());
+	}
+
+	@Test
+	public void entriesAreFiltered() throws Exception {
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+		sourceCatalog.refresh();
+
+		List<FileEntry> entries = sourceCatalog.entries(entry -> entry.getName().endsWith(".mp3"));
+
+		assertEquals(Collections.singleton("second.mp3"), fileNames(entries));
+	}
+
+	@Test
+	public void eligibilityChecksExtensionBeforeReadingTheEntry() throws Exception {
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+		sourceCatalog.refresh();
+		List<String> testedNames = new ArrayList<>();
+		FileEntryFilter mp3Filter = new FileEntryFilter() {
+
+			@Override
+			public boolean accept(FileEntry entry) {
+				testedNames.add(entry.getName());
+				return true;
+			}
+
+			@Override
+			public boolean acceptsExtension(String extension) {
+				return "mp3".equals(extension);
+			}
+		};
+
+		List<FileEntry> entries = sourceCatalog.entries(mp3Filter);
+
+		assertEquals(Collections.singleton("second.mp3"), fileNames(entries));
+		assertEquals(Collections.singletonList("second.mp3"), testedNames);
+	}
+
+	@Test
+	public void columnsOfTheFilesAreRead() throws Exception {
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+		sourceCatalog.refresh();
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+
+		for (int index = 0; index < sourceCatalog.size(); index++) {
+			FileEntry entry = sourceCatalog.entry(index);
+			assertEquals(Files.size(entry.getPath()), sourceCatalog.sizeOf(index));
+			assertEquals(Files.getLastModifiedTime(entry.getPath()).toMillis(), sourceCatalog.lastModifiedOf(index));
+			String expectedExtension = entry.getName().contains(".") ? entry.getName().substring(entry.getName().indexOf('.') + 1) : null;
+			assertEquals(expectedExtension, sourceCatalog.extensionOf(index));
+			int extensionId = sourceCatalog.extensionIdOf(index);
+			assertEquals(expectedExtension, extensionId == FileIndex.NO_EXTENSION ? null : sourceCatalog.extensionName(extensionId));
+			assertEquals(entry.getPath().getParent(), sourceCatalog.directoryPath(sourceCatalog.directoryOf(index)));
+		}
+		assertEquals(2, sourceCatalog.directories());
+		assertEquals(2, sourceCatalog.extensions());
+	}
+
+	@Test
+	public void catalogOfAnotherSourceIsNotLoaded() throws Exception {
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+		sourceCatalog.refresh();
+		Path anotherSourceFolder = Files.createTempDirectory("anotherSource");
+		SourceCatalog anotherCatalog = SourceCatalog.open(anotherSourceFolder, cacheFolder);
+		Files.copy(sourceCatalog.getCatalogFile(), anotherCatalog.getCatalogFile());
+
+		anotherCatalog = SourceCatalog.open(anotherSourceFolder, cacheFolder);
+
+		assertEquals(0, anotherCatalog.size());
+	}
+
+	@Test
+	public void corruptedCatalogIsRebuilt() throws Exception {
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+		Files.write(sourceCatalog.getCatalogFile(), new byte[]{1, 2, 3});
+
+		sourceCatalog = SourceCatalog.open(sourceFolder, cacheFolder);
+
+		assertEquals(0, sourceCatalog.size());
+		assertTrue(sourceCatalog.refresh());
+		assertEquals(3, sourceCatalog.size());
+	}
+}
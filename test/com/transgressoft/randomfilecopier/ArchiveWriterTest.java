@@ -0,0 +1,118 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class ArchiveWriterTest {
+
+	Path testFolder;
+	Path firstFile;
+	Path secondFile;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		testFolder = Files.createTempDirectory("archive");
+		firstFile = Files.write(testFolder.resolve("first.txt"), "first file".getBytes(StandardCharsets.UTF_8));
+		secondFile = Files.write(testFolder.resolve("second.txt"), new byte[1000]);
+	}
+
+	/**
+	 * Reads the names and contents of the entries of a tar archive, resolving the GNU long names
+	 */
+	Map<String, byte[]> readTar(Path tarFile) throws Exception {
+		byte[] archive = Files.readAllBytes(tarFile);
+		assertEquals(0, archive.length % 512);
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		String longName = null;
+		int offset = 0;
+		while (archive[offset] != 0) {
+			String name = new String(archive, offset, 100, StandardCharsets.UTF_8).split("\u0000")[0];
+			int size = Integer.parseInt(new String(archive, offset + 124, 11, StandardCharsets.US_ASCII), 8);
+			assertEquals("ustar", new String(archive, offset + 257, 5, StandardCharsets.US_ASCII));
+			byte[] content = Arrays.copyOfRange(archive, offset + 512, offset + 512 + size);
+			if (archive[offset + 156] == 'L')
+				longName = new String(content, 0, size - 1, StandardCharsets.UTF_8);
+			else {
+				entries.put(longName == null ? name : longName, content);
+				longName = null;
+			}
+			offset += 512 + (size + 511) / 512 * 512;
+		}
+		return entries;
+	}
+
+	@Test
+	public void tarArchiveContainsFilesWithLongNames() throws Exception {
+		Path tarFile = testFolder.resolve("files.tar");
+		String longName = String.join("", Collections.nCopies(30, "long")) + ".txt";
+		try (ArchiveWriter tarWriter = new TarArchiveWriter(tarFile)) {
+			tarWriter.write(firstFile, "first.txt", Files.size(firstFile), 1500000000000L);
+			tarWriter.write(secondFile, longName, Files.size(secondFile), 1500000000000L);
+		}
+
+		Map<String, byte[]> entries = readTar(tarFile);
+		assertEquals(Arrays.asList("first.txt", longName), new ArrayList<>(entries.keySet()));
+		assertArrayEquals(Files.readAllBytes(firstFile), entries.get("first.txt"));
+		assertArrayEquals(Files.readAllBytes(secondFile), entries.get(longName));
+	}
+
+	@Test
+	public void zipArchiveContainsFiles() throws Exception {
+		Path zipFile = testFolder.resolve("files.zip");
+		try (ArchiveWriter zipWriter = new ZipArchiveWriter(zipFile)) {
+			zipWriter.write(firstFile, "first.txt", Files.size(firstFile), Files.getLastModifiedTime(firstFile).toMillis());
+			zipWriter.write(secondFile, "second.txt", Files.size(secondFile), Files.getLastModifiedTime(secondFile).toMillis());
+		}
+
+		try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+			assertEquals(2, zip.size());
+			ZipEntry entry = zip.getEntry("second.txt");
+			assertEquals(1000, entry.getSize());
+			byte[] content = new byte[1000];
+			assertEquals(1000, zip.getInputStream(entry).read(content));
+			assertArrayEquals(Files.readAllBytes(secondFile), content);
+		}
+	}
+
+	@Test
+	public void archiveSinkStartsNewVolumeWhenSplitSizeIsExceeded() throws Exception {
+		Path outputFolder = Files.createDirectory(testFolder.resolve("output"));
+		FileEntry second = new FileEntry(secondFile, 1000, 0, null, false);
+		try (ArchiveSink archiveSink = new ArchiveSink(ArchiveFormat.TAR, 3072,
+													   volume -> outputFolder.resolve("part" + volume + ".tar"))) {
+			archiveSink.add(second, "a.txt");
+			archiveSink.add(second, "b.txt");
+			archiveSink.add(second, "c.txt");
+			assertEquals(2, archiveSink.getVolumes());
+		}
+
+		assertEquals(Arrays.asList("a.txt", "b.txt"), new ArrayList<>(readTar(outputFolder.resolve("part1.tar")).keySet()));
+		assertEquals(Arrays.asList("c.txt"), new ArrayList<>(readTar(outputFolder.resolve("part2.tar")).keySet()));
+	}
+}
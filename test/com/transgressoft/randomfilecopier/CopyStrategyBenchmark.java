@@ -0,0 +1,86 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Compares the time to copy a file with each {@link CopyMode}
+ *
+ * @author Octavio Calleya
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3)
+@Measurement (iterations = 5)
+@Fork (1)
+public class CopyStrategyBenchmark {
+
+	@Param ({"FILES", "TRANSFER", "MAPPED", "CHUNKED", "ASYNC"})
+	CopyMode copyMode;
+
+	@Param ({"1048576", "268435456"})
+	int fileSize;
+
+	Path benchmarkFolder;
+	Path sourceFile;
+	Path targetFile;
+	CopyStrategy copyStrategy;
+
+	@Setup (Level.Trial)
+	public void setUp() throws IOException {
+		benchmarkFolder = Files.createTempDirectory("copyBenchmark");
+		sourceFile = benchmarkFolder.resolve("source.bin");
+		targetFile = benchmarkFolder.resolve("target.bin");
+		byte[] block = new byte[1 << 20];
+		new Random(42).nextBytes(block);
+		try (OutputStream output = Files.newOutputStream(sourceFile)) {
+			for (int written = 0; written < fileSize; written += block.length)
+				output.write(block, 0, Math.min(block.length, fileSize - written));
+		}
+		copyStrategy = copyMode.newStrategy();
+	}
+
+	@TearDown (Level.Invocation)
+	public void deleteTarget() throws IOException {
+		Files.deleteIfExists(targetFile);
+	}
+
+	@TearDown (Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(sourceFile);
+		Files.deleteIfExists(benchmarkFolder);
+	}
+
+	@Benchmark
+	public void copy() throws IOException {
+		copyStrategy.copy(sourceFile, targetFile);
+	}
+
+	public static void main(String... args) throws Exception {
+		Options options = new OptionsBuilder().include(CopyStrategyBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+}
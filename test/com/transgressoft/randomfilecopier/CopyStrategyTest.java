@@ -0,0 +1,193 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class CopyStrategyTest {
+
+	Path testFolder;
+	Path sourceFile;
+	byte[] content;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		testFolder = Files.createTempDirectory("copyStrategy");
+		content = new byte[300000];
+		new Random(42).nextBytes(content);
+		sourceFile = Files.write(testFolder.resolve("source.bin"), content);
+		Files.setLastModifiedTime(sourceFile, FileTime.fromMillis(1500000000000L));
+	}
+
+	void assertCopied(Path target) throws Exception {
+		assertArrayEquals(content, Files.readAllBytes(target));
+		assertEquals(1500000000000L, Files.getLastModifiedTime(target).toMillis());
+	}
+
+	void assertCopiesContentAndModifiedTime(CopyStrategy copyStrategy) throws Exception {
+		Path target = testFolder.resolve("target.bin");
+		copyStrategy.copy(sourceFile, target);
+		assertCopied(target);
+	}
+
+	void assertExistingTargetIsNotOverwritten(CopyStrategy copyStrategy) throws Exception {
+		Path target = Files.write(testFolder.resolve("target.bin"), new byte[]{1});
+		assertThrows(FileAlreadyExistsException.class, () -> copyStrategy.copy(sourceFile, target));
+		assertArrayEquals(new byte[]{1}, Files.readAllBytes(target));
+	}
+
+	@Test
+	public void filesCopyCopiesContentAndModifiedTime() throws Exception {
+		assertCopiesContentAndModifiedTime(new FilesCopy());
+		assertExistingTargetIsNotOverwritten(new FilesCopy());
+	}
+
+	@Test
+	public void transferCopyCopiesContentAndModifiedTime() throws Exception {
+		assertCopiesContentAndModifiedTime(new TransferCopy());
+		assertExistingTargetIsNotOverwritten(new TransferCopy());
+	}
+
+	@Test
+	public void mappedCopyCopiesContentAndModifiedTime() throws Exception {
+		assertCopiesContentAndModifiedTime(new MappedCopy(4096));
+		assertExistingTargetIsNotOverwritten(new MappedCopy());
+	}
+
+	@Test
+	public void chunkedCopyCopiesContentAndModifiedTime() throws Exception {
+		assertCopiesContentAndModifiedTime(new ChunkedCopy(4, 7000));
+		assertExistingTargetIsNotOverwritten(new ChunkedCopy());
+	}
+
+	@Test
+	public void asyncCopyCopiesContentAndModifiedTime() throws Exception {
+		DirectBufferPool bufferPool = new DirectBufferPool(7000, 2);
+		assertCopiesContentAndModifiedTime(new AsyncCopy(bufferPool));
+		assertEquals(2, bufferPool.available());
+		assertExistingTargetIsNotOverwritten(new AsyncCopy());
+	}
+
+	@Test
+	public void directBufferPoolReusesReleasedBuffers() {
+		DirectBufferPool bufferPool = new DirectBufferPool(1024, 1);
+		ByteBuffer first = bufferPool.acquire();
+		ByteBuffer second = bufferPool.acquire();
+		bufferPool.release(first);
+		bufferPool.release(second);
+
+		assertTrue(first.isDirect());
+		assertEquals(1, bufferPool.available());
+		assertSame(first, bufferPool.acquire());
+		assertEquals(1024, bufferPool.acquire().capacity());
+	}
+
+	@Test
+	public void hardLinkCopySharesTheSourceFile() throws Exception {
+		Path target = testFolder.resolve("target.bin");
+		new LinkCopy(false, (source, copy) -> fail("Copied instead of linked")).copy(sourceFile, target);
+
+		assertCopied(target);
+		assertEquals(Files.getAttribute(sourceFile, "unix:ino"), Files.getAttribute(target, "unix:ino"));
+		assertExistingTargetIsNotOverwritten(new LinkCopy(false, new FilesCopy()));
+	}
+
+	@Test
+	public void symbolicLinkCopyPointsToTheSourceFile() throws Exception {
+		Path target = testFolder.resolve("target.bin");
+		new LinkCopy(true, (source, copy) -> fail("Copied instead of linked")).copy(sourceFile, target);
+
+		assertTrue(Files.isSymbolicLink(target));
+		assertEquals(sourceFile.toAbsolutePath(), Files.readSymbolicLink(target));
+		assertArrayEquals(content, Files.readAllBytes(target));
+	}
+
+	@Test
+	public void hardLinkCopyFallsBackWhenLinkCantBeCreated() throws Exception {
+		Path directorySource = Files.createDirectory(testFolder.resolve("directory"));
+		Path target = testFolder.resolve("target");
+		List<Path> fallbackCopies = new ArrayList<>();
+		new LinkCopy(false, (source, copy) -> fallbackCopies.add(source)).copy(directorySource, target);
+
+		assertEquals(Collections.singletonList(directorySource), fallbackCopies);
+	}
+
+	@Test
+	public void thresholdCopyChoosesStrategyBySize() throws Exception {
+		List<String> usedStrategies = new ArrayList<>();
+		CopyStrategy small = (source, target) -> usedStrategies.add("small");
+		CopyStrategy large = (source, target) -> usedStrategies.add("large");
+
+		new ThresholdCopy(small, large, content.length).copy(sourceFile, testFolder.resolve("first.bin"));
+		new ThresholdCopy(small, large, content.length + 1).copy(sourceFile, testFolder.resolve("second.bin"));
+
+		assertEquals(Arrays.asList("large", "small"), usedStrategies);
+	}
+
+	@Test
+	public void thresholdCopyChoosesStrategyByTheGivenSize() throws Exception {
+		List<String> usedStrategies = new ArrayList<>();
+		CopyStrategy small = (source, target) -> usedStrategies.add("small");
+		CopyStrategy large = (source, target) -> usedStrategies.add("large");
+		Path missingSource = testFolder.resolve("missing.bin");
+
+		new ThresholdCopy(small, large, 100).copy(missingSource, testFolder.resolve("first.bin"), 100);
+		new ThresholdCopy(small, large, 100).copy(missingSource, testFolder.resolve("second.bin"), 99);
+
+		assertEquals(Arrays.asList("large", "small"), usedStrategies);
+	}
+
+	@Test
+	public void bufferedTransferCopiesTheRestOfTheFile() throws Exception {
+		ChannelCopy halfTransferCopy = new ChannelCopy() {
+
+			@Override
+			protected void transfer(FileChannel source, FileChannel target, long size) throws IOException {
+				source.transferTo(0, size / 2, target);
+				bufferedTransfer(source, target, size / 2, size);
+			}
+		};
+		assertCopiesContentAndModifiedTime(halfTransferCopy);
+	}
+
+	@Test
+	public void emptyFileIsCopied() throws Exception {
+		content = new byte[0];
+		Files.write(sourceFile, content);
+		Files.setLastModifiedTime(sourceFile, FileTime.fromMillis(1500000000000L));
+
+		assertCopiesContentAndModifiedTime(new TransferCopy());
+		Files.delete(testFolder.resolve("target.bin"));
+		assertCopiesContentAndModifiedTime(new MappedCopy());
+		Files.delete(testFolder.resolve("target.bin"));
+		assertCopiesContentAndModifiedTime(new ChunkedCopy(4, 1000));
+		Files.delete(testFolder.resolve("target.bin"));
+		assertCopiesContentAndModifiedTime(new AsyncCopy());
+	}
+}
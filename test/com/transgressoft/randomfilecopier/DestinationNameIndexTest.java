@@ -0,0 +1,81 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class DestinationNameIndexTest {
+
+	Path destinationFolder;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		destinationFolder = Files.createTempDirectory("destinationNames");
+		Files.createFile(destinationFolder.resolve("cover.jpg"));
+		Files.createFile(destinationFolder.resolve("cover(1).jpg"));
+		Files.createFile(destinationFolder.resolve("cover(3).jpg"));
+		Files.createFile(destinationFolder.resolve("README"));
+	}
+
+	@Test
+	public void takenNamesAreNumberedSkippingExistingOnes() throws Exception {
+		DestinationNameIndex nameIndex = DestinationNameIndex.load(destinationFolder);
+
+		assertEquals("cover(2).jpg", nameIndex.reserve("cover.jpg"));
+		assertEquals("cover(4).jpg", nameIndex.reserve("cover.jpg"));
+		assertEquals("cover(5).jpg", nameIndex.reserve("cover.jpg"));
+		assertEquals("song.mp3", nameIndex.reserve("song.mp3"));
+		assertEquals("song(1).mp3", nameIndex.reserve("song.mp3"));
+		assertTrue(nameIndex.isTaken("cover(5).jpg"));
+	}
+
+	@Test
+	public void namesWithoutExtensionAreNumberedAtTheEnd() throws Exception {
+		DestinationNameIndex nameIndex = DestinationNameIndex.load(destinationFolder);
+
+		assertEquals("README(1)", nameIndex.reserve("README"));
+		assertEquals("LICENSE", nameIndex.reserve("LICENSE"));
+	}
+
+	@Test
+	public void reservedNamesMatchEnsuredFileNamesOnPath() throws Exception {
+		RandomFileCopier randomFileCopier = new RandomFileCopier(destinationFolder, destinationFolder, 0);
+
+		assertEquals(randomFileCopier.ensuredFileNameOnPath(destinationFolder, "cover.jpg"),
+					 DestinationNameIndex.load(destinationFolder).reserve("cover.jpg"));
+		assertEquals(randomFileCopier.ensuredFileNameOnPath(destinationFolder, "README"),
+					 DestinationNameIndex.load(destinationFolder).reserve("README"));
+	}
+
+	@Test
+	public void reservedFileSkipsNameCreatedAfterListing() throws Exception {
+		DestinationNameIndex nameIndex = DestinationNameIndex.load(destinationFolder);
+		Files.createFile(destinationFolder.resolve("cover(2).jpg"));
+
+		Path reservedFile = nameIndex.reserveFile("cover.jpg");
+
+		assertEquals(destinationFolder.resolve("cover(4).jpg"), reservedFile);
+		assertEquals(0, Files.size(reservedFile));
+	}
+}
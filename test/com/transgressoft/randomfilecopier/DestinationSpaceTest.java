@@ -0,0 +1,95 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class DestinationSpaceTest {
+
+	Path destinationFolder;
+	DestinationSpace destinationSpace;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		destinationFolder = Files.createTempDirectory("destinationSpace");
+		destinationSpace = new DestinationSpace(destinationFolder);
+		destinationSpace.sample();
+	}
+
+	@Test
+	public void sizesAreRoundedUpToTheBlockSize() {
+		long blockSize = destinationSpace.getBlockSize();
+
+		assertEquals(0, destinationSpace.sizeOnDisk(0));
+		assertEquals(blockSize, destinationSpace.sizeOnDisk(1));
+		assertEquals(blockSize, destinationSpace.sizeOnDisk(blockSize));
+		assertEquals(2 * blockSize, destinationSpace.sizeOnDisk(blockSize + 1));
+	}
+
+	@Test
+	public void reservedAndWrittenBytesAreNotAvailable() {
+		long available = destinationSpace.available();
+		long blockSize = destinationSpace.getBlockSize();
+
+		assertTrue(destinationSpace.reserve(10));
+		assertEquals(available - blockSize, destinationSpace.available());
+
+		destinationSpace.written(10);
+		assertEquals(available - blockSize, destinationSpace.available());
+
+		assertTrue(destinationSpace.reserve(blockSize + 1));
+		destinationSpace.release(blockSize + 1);
+		assertEquals(available - blockSize, destinationSpace.available());
+	}
+
+	@Test
+	public void spaceIsNotSampledAgainWhileCopiesAreInProgress() throws Exception {
+		long available = destinationSpace.available();
+		int size = 1 << 20;
+
+		assertTrue(destinationSpace.reserve(size));
+		Files.write(destinationFolder.resolve("copy"), new byte[size]);
+		Thread.sleep(1100);
+
+		assertEquals(available - destinationSpace.sizeOnDisk(size), destinationSpace.available());
+		assertThrows(IllegalStateException.class, () -> destinationSpace.sample());
+		destinationSpace.written(size);
+	}
+
+	@Test
+	public void reservationFailsIfThereIsNoSpaceLeft() {
+		long available = destinationSpace.available();
+
+		assertFalse(destinationSpace.reserve(available + 1));
+		assertEquals(available, destinationSpace.available());
+	}
+
+	@Test
+	public void nonExistentDirectoryHasNoSpace() {
+		DestinationSpace missingSpace = new DestinationSpace(destinationFolder.resolve("missing"));
+
+		assertEquals(0, missingSpace.available());
+		assertFalse(missingSpace.reserve(1));
+	}
+}
@@ -0,0 +1,121 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+/**
+ * Compares {@link ExtensionFileFilter#accept(FileEntry)} against the previous matching, that took the
+ * substring after the last dot and compared it with every extension. The <tt>Fresh</tt> benchmarks give
+ * each call a new {@link FileEntry} like the ones of a scan, whose name has not been read yet, so they
+ * measure the whole check of a scanned file. The <tt>Named</tt> ones reuse entries whose names are already
+ * read, so they measure only the matching. Run it with <tt>-prof gc</tt> to see the bytes allocated by each
+ * call in <tt>gc.alloc.rate.norm</tt>, that are none for the matching of the suffix trie.
+ *
+ * @author Octavio Calleya
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class ExtensionFileFilterBenchmark {
+
+	@Param ({"10", "500"})
+	int extensions;
+
+	@Param ({"false", "true"})
+	boolean ignoreCase;
+
+	String[] extensionsToFilter;
+	ExtensionFileFilter filter;
+	Path[] paths;
+	FileEntry[] namedEntries;
+	int next;
+
+	@Setup (Level.Trial)
+	public void setUp() {
+		extensionsToFilter = new String[extensions];
+		for (int i = 0; i < extensions; i++)
+			extensionsToFilter[i] = "ext" + i;
+		filter = new ExtensionFileFilter(extensionsToFilter);
+		filter.setIgnoreCase(ignoreCase);
+		paths = new Path[1024];
+		for (int i = 0; i < paths.length; i++)
+			paths[i] = Paths.get("/source/folder/file" + i + ".ext" + (i % (2 * extensions)));
+		namedEntries = new FileEntry[paths.length];
+		for (int i = 0; i < paths.length; i++) {
+			namedEntries[i] = new FileEntry(paths[i], 1, 0, null, false);
+			namedEntries[i].getName();
+		}
+	}
+
+	FileEntry nextEntry() {
+		next = (next + 1) & (paths.length - 1);
+		return new FileEntry(paths[next], 1, 0, null, false);
+	}
+
+	FileEntry nextNamedEntry() {
+		next = (next + 1) & (namedEntries.length - 1);
+		return namedEntries[next];
+	}
+
+	@Benchmark
+	public boolean suffixTrieAcceptFresh() {
+		return filter.accept(nextEntry());
+	}
+
+	@Benchmark
+	public boolean substringAcceptFresh() {
+		return substringAccept(nextEntry());
+	}
+
+	@Benchmark
+	public boolean suffixTrieAcceptNamed() {
+		return filter.accept(nextNamedEntry());
+	}
+
+	@Benchmark
+	public boolean substringAcceptNamed() {
+		return substringAccept(nextNamedEntry());
+	}
+
+	boolean substringAccept(FileEntry entry) {
+		String fileName = entry.getName();
+		int pos = fileName.lastIndexOf('.');
+		if (pos == - 1)
+			return false;
+		String extension = fileName.substring(pos + 1);
+		for (String someExtension : extensionsToFilter)
+			if (ignoreCase ? extension.equalsIgnoreCase(someExtension) : extension.equals(someExtension))
+				return true;
+		return false;
+	}
+
+	public static void main(String... args) throws Exception {
+		Options options = new OptionsBuilder().include(ExtensionFileFilterBenchmark.class.getSimpleName())
+											  .addProfiler("gc").build();
+		new Runner(options).run();
+	}
+}
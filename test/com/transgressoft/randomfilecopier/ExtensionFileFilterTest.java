@@ -0,0 +1,90 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class ExtensionFileFilterTest {
+
+	FileEntry entry(String name) {
+		return new FileEntry(Paths.get("/source", name), 10, 0, null, false);
+	}
+
+	@Test
+	public void noExtensionsAcceptsNamesWithDot() {
+		ExtensionFileFilter filter = new ExtensionFileFilter();
+
+		assertTrue(filter.accept(entry("song.mp3")));
+		assertFalse(filter.accept(entry("README")));
+		assertTrue(filter.acceptsExtension("mp3"));
+		assertFalse(filter.acceptsExtension(null));
+	}
+
+	@Test
+	public void extensionsMatchTheEndOfTheName() {
+		ExtensionFileFilter filter = new ExtensionFileFilter("mp3", "flac", "m4a");
+
+		assertTrue(filter.accept(entry("song.mp3")));
+		assertTrue(filter.accept(entry("song.with.dots.flac")));
+		assertFalse(filter.accept(entry("song.MP3")));
+		assertFalse(filter.accept(entry("songmp3")));
+		assertFalse(filter.accept(entry("song.3")));
+		assertFalse(filter.accept(entry("song.xmp3")));
+		assertTrue(filter.hasExtension("m4a"));
+		assertFalse(filter.hasExtension("m4"));
+	}
+
+	@Test
+	public void ignoreCaseFoldsBothSides() {
+		ExtensionFileFilter filter = new ExtensionFileFilter("Mp3");
+		filter.setIgnoreCase(true);
+
+		assertTrue(filter.accept(entry("song.MP3")));
+		assertTrue(filter.accept(entry("song.mp3")));
+		assertTrue(filter.acceptsExtension("mP3"));
+	}
+
+	@Test
+	public void multiPartExtensionsAreMatched() {
+		ExtensionFileFilter filter = new ExtensionFileFilter("tar.gz", "txt");
+
+		assertTrue(filter.accept(entry("backup.tar.gz")));
+		assertFalse(filter.accept(entry("backup.gz")));
+		assertFalse(filter.accept(entry("tar.gz")));
+		assertTrue(filter.acceptsExtension("gz"));
+		assertFalse(filter.acceptsExtension("tar"));
+		assertTrue(filter.hasExtension("tar.gz"));
+	}
+
+	@Test
+	public void extensionsAddedLaterAreMatched() {
+		ExtensionFileFilter filter = new ExtensionFileFilter("mp3");
+		assertFalse(filter.accept(entry("song.ogg")));
+
+		filter.addExtension("ogg");
+
+		assertTrue(filter.accept(entry("song.ogg")));
+	}
+}
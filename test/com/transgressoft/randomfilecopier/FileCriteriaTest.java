@@ -0,0 +1,106 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class FileCriteriaTest {
+
+	FileCriteria fileCriteria = new FileCriteria();
+
+	FileEntry entry(String name, long size, long lastModified) {
+		return new FileEntry(Paths.get("/source", name), size, lastModified, null, false);
+	}
+
+	@Test
+	public void emptyCriteriaAcceptsFilesWithExtensionButHiddenOnes() {
+		FileEntryFilter filter = fileCriteria.compile();
+
+		assertTrue(filter.accept(entry("song.mp3", 10, 0)));
+		assertFalse(filter.accept(entry("README", 10, 0)));
+		assertFalse(filter.accept(new FileEntry(Paths.get("/source/.hidden.mp3"), 10, 0, null, true)));
+		assertTrue(filter.acceptsExtension("mp3"));
+		assertFalse(filter.acceptsExtension(null));
+	}
+
+	@Test
+	public void namesWithoutExtensionAreAcceptedOnlyByGlobsOrRegexes() {
+		fileCriteria.addNameGlob("READ*");
+		FileEntryFilter filter = fileCriteria.compile();
+
+		assertTrue(filter.accept(entry("README", 10, 0)));
+		assertTrue(filter.accept(entry("README.md", 10, 0)));
+		assertTrue(filter.acceptsExtension(null));
+
+		fileCriteria = new FileCriteria();
+		fileCriteria.addNameRegex("[A-Z]+");
+		filter = fileCriteria.compile();
+		assertTrue(filter.accept(entry("LICENSE", 10, 0)));
+
+		fileCriteria.setExtensions("txt");
+		filter = fileCriteria.compile();
+		assertFalse(filter.accept(entry("LICENSE", 10, 0)));
+	}
+
+	@Test
+	public void extensionsAreComparedIgnoringCase() {
+		fileCriteria.setExtensions("mp3", "FLAC");
+		FileEntryFilter filter = fileCriteria.compile();
+
+		assertTrue(filter.accept(entry("song.MP3", 10, 0)));
+		assertTrue(filter.accept(entry("song.flac", 10, 0)));
+		assertFalse(filter.accept(entry("song.wav", 10, 0)));
+		assertFalse(filter.accept(entry("README", 10, 0)));
+		assertTrue(filter.acceptsExtension("Mp3"));
+		assertFalse(filter.acceptsExtension("wav"));
+	}
+
+	@Test
+	public void globsAndRegexesAreAlternativesOfTheirKind() {
+		fileCriteria.addNameGlob("cover*.jpg");
+		fileCriteria.addNameGlob("*.png");
+		fileCriteria.addNameRegex("cover.*");
+		FileEntryFilter filter = fileCriteria.compile();
+
+		assertTrue(filter.accept(entry("cover2.jpg", 10, 0)));
+		assertTrue(filter.accept(entry("cover.png", 10, 0)));
+		assertFalse(filter.accept(entry("back.png", 10, 0)));
+		assertFalse(filter.accept(entry("back.jpg", 10, 0)));
+	}
+
+	@Test
+	public void sizeAndModifiedRangesAreApplied() {
+		fileCriteria.setSizeRange(10, 20);
+		fileCriteria.setModifiedRange(1000, 2000);
+		FileEntryFilter filter = fileCriteria.compile();
+
+		assertTrue(filter.accept(entry("a.txt", 10, 1000)));
+		assertTrue(filter.accept(entry("a.txt", 20, 1999)));
+		assertFalse(filter.accept(entry("a.txt", 21, 1500)));
+		assertFalse(filter.accept(entry("a.txt", 9, 1500)));
+		assertFalse(filter.accept(entry("a.txt", 15, 2000)));
+		assertThrows(IllegalArgumentException.class, () -> fileCriteria.setSizeRange(20, 10));
+	}
+}
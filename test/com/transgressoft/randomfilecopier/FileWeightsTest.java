@@ -0,0 +1,148 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class FileWeightsTest {
+
+	static final long DAY = 24 * 60 * 60 * 1000L;
+
+	FileWeights fileWeights = new FileWeights();
+	long now = System.currentTimeMillis();
+
+	FileEntry entry(String path, long size, long lastModified) {
+		return new FileEntry(Paths.get(path).toAbsolutePath(), size, lastModified, null, false);
+	}
+
+	@Test
+	public void noWeightsAreUniform() {
+		assertTrue(fileWeights.isUniform());
+		assertEquals(1, fileWeights.weightOf(entry("/source/file.txt", 10, 0), now), 1e-9);
+	}
+
+	@Test
+	public void extensionWeightsIgnoreTheCase() {
+		fileWeights.setExtensionWeight("MP3", 4);
+
+		assertFalse(fileWeights.isUniform());
+		assertEquals(4, fileWeights.weightOf(entry("/source/song.mp3", 10, now), now), 1e-9);
+		assertEquals(1, fileWeights.weightOf(entry("/source/text.txt", 10, now), now), 1e-9);
+		assertEquals(1, fileWeights.weightOf(entry("/source/noextension", 10, now), now), 1e-9);
+	}
+
+	@Test
+	public void recencyWeightHalvesEachHalfLife() {
+		fileWeights.setHalfLife(DAY);
+
+		assertEquals(1, fileWeights.weightOf(entry("/source/new.txt", 10, now), now), 1e-9);
+		assertEquals(0.25, fileWeights.weightOf(entry("/source/old.txt", 10, now - 2 * DAY), now), 1e-9);
+	}
+
+	@Test
+	public void filesModifiedManyHalfLivesAgoKeepTheirWeight() {
+		fileWeights.setHalfLife(DAY);
+		FileTable oldFiles = new FileTable(Paths.get("/source"));
+		oldFiles.addFile(FileTable.ROOT, "old.txt", 10, now - 3000 * DAY);
+		oldFiles.addFile(FileTable.ROOT, "older.txt", 10, now - 3001 * DAY);
+		oldFiles.addFile(FileTable.ROOT, "oldest.txt", 10, now - 6000 * DAY);
+
+		double[] weights = fileWeights.weightsOf(oldFiles, now);
+		assertEquals(1, weights[0], 1e-9);
+		assertEquals(0.5, weights[1], 1e-9);
+		assertEquals(Double.MIN_NORMAL, weights[2]);
+		assertEquals(3, new WeightedSelection(new Random()).select(weights, index -> true, index -> 10, 0, Long.MAX_VALUE).length);
+	}
+
+	@Test
+	public void zeroWeightIsKeptAmongOldFiles() {
+		fileWeights.setHalfLife(DAY);
+		fileWeights.setExtensionWeight("tmp", 0);
+		FileTable oldFiles = new FileTable(Paths.get("/source"));
+		oldFiles.addFile(FileTable.ROOT, "old.txt", 10, now - 3000 * DAY);
+		oldFiles.addFile(FileTable.ROOT, "old.tmp", 10, now - 3000 * DAY);
+
+		double[] weights = fileWeights.weightsOf(oldFiles, now);
+		assertEquals(1, weights[0], 1e-9);
+		assertEquals(0, weights[1]);
+	}
+
+	@Test
+	public void sizeWeightIsTheSizeRaisedToTheExponent() {
+		fileWeights.setSizeExponent(0.5);
+
+		assertEquals(10, fileWeights.weightOf(entry("/source/file.txt", 100, now), now), 1e-9);
+		assertEquals(1, fileWeights.weightOf(entry("/source/empty.txt", 0, now), now), 1e-9);
+	}
+
+	@Test
+	public void directoryWeightsApplyToTheNearestDirectory() throws Exception {
+		Path sourceFolder = Files.createTempDirectory("weightsSource");
+		Path weightFile = Files.write(sourceFolder.resolveSibling(sourceFolder.getFileName() + ".weights"),
+									  Arrays.asList("# Weights", "", "music = 3", "music/old=0.5"));
+		fileWeights.loadDirectoryWeights(sourceFolder, weightFile);
+
+		assertEquals(3, fileWeights.weightOf(entry(sourceFolder + "/music/new/song.mp3", 10, now), now), 1e-9);
+		assertEquals(0.5, fileWeights.weightOf(entry(sourceFolder + "/music/old/song.mp3", 10, now), now), 1e-9);
+		assertEquals(1, fileWeights.weightOf(entry(sourceFolder + "/text/file.txt", 10, now), now), 1e-9);
+	}
+
+	@Test
+	public void weightsOfAnIndexAreReadFromItsIds() throws Exception {
+		Path sourceFolder = Files.createTempDirectory("weightsSource");
+		Path weightFile = Files.write(sourceFolder.resolveSibling(sourceFolder.getFileName() + ".weights"),
+									  Collections.singletonList("music = 3"));
+		fileWeights.loadDirectoryWeights(sourceFolder, weightFile);
+		fileWeights.setExtensionWeight("mp3", 2);
+		FileTable table = new FileTable(sourceFolder) {
+
+			@Override
+			public FileEntry entry(int index) {
+				throw new AssertionError("Entry read");
+			}
+		};
+		int music = table.addDirectory(FileTable.ROOT, "music");
+		table.addFile(FileTable.ROOT, "text.txt", 10, now);
+		table.addFile(music, "song.MP3", 10, now);
+		table.addFile(music, "cover.jpg", 10, now);
+		table.addFile(FileTable.ROOT, "noextension", 10, now);
+
+		double[] weights = fileWeights.weightsOf(table, now);
+		assertEquals(1.0 / 6, weights[0], 1e-9);
+		assertEquals(1, weights[1], 1e-9);
+		assertEquals(0.5, weights[2], 1e-9);
+		assertEquals(1.0 / 6, weights[3], 1e-9);
+	}
+
+	@Test
+	public void invalidWeightFileLineIsRejected() throws Exception {
+		Path sourceFolder = Files.createTempDirectory("weightsSource");
+		Path weightFile = Files.write(sourceFolder.resolveSibling(sourceFolder.getFileName() + ".weights"),
+									  Collections.singletonList("music"));
+
+		assertThrows(IllegalArgumentException.class, () -> fileWeights.loadDirectoryWeights(sourceFolder, weightFile));
+	}
+}
@@ -41,13 +41,52 @@ public class RandomFileCopierRunnerTest {
 	String DOC = "Random File Copier.\n\n" +
 			"Usage:\n" +
 			"  RandomFileCopier <source_directory> <target_directory> <max_files> [-v] [-s=<maxbytes>] " +
-			"[-e=<extension>]...\n\n" +
+			"[-w=<workers>] [--copy-mode=<mode>] [--threshold=<bytes>] " +
+			"[-a=<format>] [--split=<bytes>] [-c=<directory>] [--watch] [--pack] [--strata=<strata>] [--allocation=<allocation>] " +
+			"[-e=<extension>]... " +
+			"[--name=<glob>]... [--regex=<regex>]... [--min-size=<bytes>] [--max-size=<bytes>] " +
+			"[--after=<date>] [--before=<date>] [--exclude-dir=<glob>]... [--max-depth=<depth>] " +
+			"[--weight-extension=<weight>]... [--half-life=<days>] [--size-exponent=<exponent>] [--weight-file=<file>]\n\n" +
 			"Options:\n" +
 			"  -h, --help                     Show this help text.\n" +
 			"  <max_files>                    The maximum number of files.\n" +
 			"  -v, --verbose                  Show some extra information of the process.\n" +
 			"  -e, --extension=<extension>    A required extension of a file to be copied\n" +
-			"  -s, --space=<maxbytes>         The maximum bytes to copy in the destination.\n\n";
+			"  --name=<glob>                  A glob that the name of a file to be copied matches.\n" +
+			"  --regex=<regex>                A regular expression that the name of a file to be\n" +
+			"                                 copied matches.\n" +
+			"  --min-size=<bytes>             The minimum size of a file to be copied.\n" +
+			"  --max-size=<bytes>             The maximum size of a file to be copied.\n" +
+			"  --after=<date>                 Copy files modified on or after the yyyy-MM-dd date.\n" +
+			"  --before=<date>                Copy files modified before the yyyy-MM-dd date.\n" +
+			"  --exclude-dir=<glob>           A glob of the directories that are not scanned.\n" +
+			"  --max-depth=<depth>            The deepest level of directories scanned, 0 scans\n" +
+			"                                 only the source directory.\n" +
+			"  --weight-extension=<weight>    The weight of the files with an extension, given\n" +
+			"                                 as extension:weight.\n" +
+			"  --half-life=<days>             Halve the weight of the files each time the days\n" +
+			"                                 pass since they were modified.\n" +
+			"  --size-exponent=<exponent>     Weight the files by their size raised to the exponent.\n" +
+			"  --weight-file=<file>           A file with a line directory=weight for each\n" +
+			"                                 directory whose files are weighted.\n" +
+			"  -s, --space=<maxbytes>         The maximum bytes to copy in the destination.\n" +
+			"  --pack                         Fill the maximum bytes as much as possible, choosing\n" +
+			"                                 the last files among the largest that fit.\n" +
+			"  --strata=<strata>              Select the files from every stratum, grouping them\n" +
+			"                                 by top, depth:<depth> directory or extension.\n" +
+			"  --allocation=<allocation>      How the files and bytes are shared among the\n" +
+			"                                 strata: even or proportional.\n" +
+			"  -w, --workers=<workers>        The number of files copied at the same time.\n" +
+			"  --copy-mode=<mode>             How the files are copied: files, transfer, mapped,\n" +
+			"                                 chunked, async, hardlink or symlink.\n" +
+			"  --threshold=<bytes>            The size from which files are copied with the copy\n" +
+			"                                 mode, copying the smaller ones with files.\n" +
+			"  -a, --archive=<format>         Write the files into a tar or zip archive.\n" +
+			"  --split=<bytes>                The maximum bytes of each archive.\n" +
+			"  -c, --catalog=<directory>      Keep a catalog of the source in the directory to\n" +
+			"                                 refresh it instead of scanning the whole source.\n" +
+			"  --watch                        Keep watching the source and copy again each time\n" +
+			"                                 a line is read from the standard input.\n\n";
 
 	@BeforeAll
     public static void beforeAll() throws IOException {
@@ -197,4 +236,197 @@ public class RandomFileCopierRunnerTest {
 		String expectedMessage = "ERROR: MaxFiles must be between 0 and " + Integer.MAX_VALUE + " inclusively\n\n" + DOC;
 		assertEquals(expectedMessage, outContent.toString());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void copyWithCatalogTest() throws Exception {
+		Path catalogFolder = Files.createTempDirectory(parentTestFolder, "catalog");
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "-c=" + catalogFolder};
+		randomFileCopierRunner.main(args);
+
+		StringTokenizer stringTokenizer = new StringTokenizer(outContent.toString(), "\n");
+		String firstLine = stringTokenizer.nextToken();
+		String secondLine = stringTokenizer.nextToken();
+		String thirdLine = stringTokenizer.nextToken();
+		String fourthLine = stringTokenizer.nextToken();
+
+		assertEquals("Refreshing source catalog...", firstLine);
+		assertTrue(secondLine.matches("\\d{1,} files in catalog"));
+		assertEquals("Copying files to the destination directory...", thirdLine);
+		assertTrue(fourthLine.matches("Done. \\d+ files, \\d+(.)?\\d* \\w+ copied"));
+		assertEquals(1, catalogFolder.toFile().listFiles().length);
+	}
+
+	@Test
+	public void copyWithWorkersTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "-w=4"};
+		randomFileCopierRunner.main(args);
+
+		StringTokenizer stringTokenizer = new StringTokenizer(outContent.toString(), "\n");
+		String firstLine = stringTokenizer.nextToken();
+		String secondLine = stringTokenizer.nextToken();
+		String thirdLine = stringTokenizer.nextToken();
+		String fourthLine = stringTokenizer.nextToken();
+
+		assertEquals("Scanning source directory...", firstLine);
+		assertTrue(secondLine.matches("\\d{1,} files found"));
+		assertEquals("Copying files to the destination directory...", thirdLine);
+		assertTrue(fourthLine.matches("Done. \\d+ files, \\d+(.)?\\d* \\w+ copied"));
+		assertEquals(new File(tenTestFilesFolder).listFiles().length, testFolder.toFile().listFiles().length);
+	}
+
+	@Test
+	public void workersInvalidTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "-w=none"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Workers must be a number greater than zero\n\n" + DOC;
+		assertEquals(expectedMessage, outContent.toString());
+	}
+
+	@Test
+	public void zeroWorkersInvalidTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "-w=0"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Workers must be a number greater than zero\n\n" + DOC;
+		assertEquals(expectedMessage, outContent.toString());
+	}
+
+	@Test
+	public void copyModeInvalidTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--copy-mode=fast"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Copy mode must be one of [files, transfer, mapped, chunked, async, hardlink, symlink]\n\n" + DOC;
+		assertEquals(expectedMessage, outContent.toString());
+	}
+
+	@Test
+	public void thresholdInvalidTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--copy-mode=mapped", "--threshold=1M"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Threshold must be a number of bytes\n\n" + DOC;
+		assertEquals(expectedMessage, outContent.toString());
+	}
+
+	@Test
+	public void splitInvalidTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "-a=zip", "--split=-1"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Split must be a number of bytes not less than zero\n\n" + DOC;
+		assertEquals(expectedMessage, outContent.toString());
+	}
+
+	@Test
+	public void copyWithNameGlobTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--name=*1.txt", "-e=TXT"};
+		randomFileCopierRunner.main(args);
+
+		File[] copiedFiles = testFolder.toFile().listFiles();
+		assertTrue(copiedFiles.length > 0);
+		assertTrue(Stream.of(copiedFiles).allMatch(file -> file.getName().endsWith("1.txt")));
+	}
+
+	@Test
+	public void invalidDateTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--after=yesterday"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Dates must be given as yyyy-MM-dd\n\n" + DOC;
+		assertEquals(expectedMessage, outContent.toString());
+	}
+
+	@Test
+	public void invalidSizeTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--min-size=1k"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Sizes must be numbers of bytes\n\n" + DOC;
+		assertEquals(expectedMessage, outContent.toString());
+	}
+
+	@Test
+	public void copyWithMaxDepthTest() throws Exception {
+		Path sourceFolder = Files.createTempDirectory(parentTestFolder, "depthSource");
+		Files.write(sourceFolder.resolve("top.txt"), new byte[10]);
+		Path subFolder = Files.createDirectories(sourceFolder.resolve("sub"));
+		Files.write(subFolder.resolve("nested.txt"), new byte[10]);
+		String[] args = new String[]{sourceFolder.toString(), testFolder.toString(), "0", "--max-depth=0"};
+		randomFileCopierRunner.main(args);
+
+		File[] copiedFiles = testFolder.toFile().listFiles();
+		assertEquals(1, copiedFiles.length);
+		assertEquals("top.txt", copiedFiles[0].getName());
+	}
+
+	@Test
+	public void maxDepthInvalidTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--max-depth=-2"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Max depth must be a number not less than zero\n\n" + DOC;
+		assertEquals(expectedMessage, outContent.toString());
+	}
+
+	@Test
+	public void copyWithZeroExtensionWeightCopiesNothingTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--weight-extension=txt:0"};
+		randomFileCopierRunner.main(args);
+
+		assertEquals(0, testFolder.toFile().listFiles().length);
+	}
+
+	@Test
+	public void extensionWeightInvalidTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--weight-extension=txt"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Weights must be numbers, given as extension:weight for the extensions\n\n" + DOC;
+		assertEquals(expectedMessage, outContent.toString());
+	}
+
+	@Test
+	public void weightsWithPackOrStrataInvalidTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--pack", "--half-life=2"};
+		randomFileCopierRunner.main(args);
+		args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--strata=top", "--weight-extension=txt:2"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Weights can't be used with pack or strata\n\n" + DOC;
+		assertEquals(expectedMessage + expectedMessage, outContent.toString());
+	}
+
+	@Test
+	public void copyWithExtensionStrataTest() throws Exception {
+		Path sourceFolder = Files.createTempDirectory(parentTestFolder, "strataSource");
+		for (int i = 0; i < 5; i++)
+			Files.write(sourceFolder.resolve("text" + i + ".txt"), new byte[10]);
+		Files.write(sourceFolder.resolve("photo.jpg"), new byte[10]);
+		String[] args = new String[]{sourceFolder.toString(), testFolder.toString(), "2", "--strata=extension"};
+		randomFileCopierRunner.main(args);
+
+		File[] copiedFiles = testFolder.toFile().listFiles();
+		assertEquals(2, copiedFiles.length);
+		assertTrue(Stream.of(copiedFiles).anyMatch(file -> file.getName().equals("photo.jpg")));
+	}
+
+	@Test
+	public void strataInvalidTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--strata=depth:0"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Strata must be top, depth:<depth> with a depth greater than zero, or extension\n\n" + DOC;
+		assertEquals(expectedMessage, outContent.toString());
+	}
+
+	@Test
+	public void allocationInvalidTest() throws Exception {
+		String[] args = new String[]{tenTestFilesFolder, testFolder.toString(), "0", "--strata=top", "--allocation=random"};
+		randomFileCopierRunner.main(args);
+
+		String expectedMessage = "ERROR: Allocation must be one of [even, proportional]\n\n" + DOC;
+		assertEquals(expectedMessage, outContent.toString());
+	}
+}
@@ -16,6 +16,7 @@
 
 package com.transgressoft.randomfilecopier;
 
+import com.transgressoft.commons.util.*;
 import junitx.framework.*;
 import org.junit.jupiter.api.*;
 
@@ -84,6 +85,19 @@ public class RandomFileCopierTest {
 		assertEquals(maxBytesInDestination, randomFileCopier.getMaxBytesToCopy());
 	}
 
+	@Test
+	public void setMaxBytesToCopyGreaterThanDestinationSpaceWithLinks() throws Exception {
+		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 0);
+		long maxBytesInDestination = testFolderPath.toFile().getUsableSpace();
+
+		randomFileCopier.setCopyStrategy(CopyMode.SYMLINK.newStrategy());
+		randomFileCopier.setMaxBytesToCopy(maxBytesInDestination + 1);
+
+		assertEquals(maxBytesInDestination + 1, randomFileCopier.getMaxBytesToCopy());
+		randomFileCopier.setArchiveFormat(ArchiveFormat.TAR);
+		assertEquals(maxBytesInDestination, randomFileCopier.getMaxBytesToCopy());
+	}
+
 	@Test
 	public void filterExtensionsAreTheSame() throws Exception {
 		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 0);
@@ -214,4 +228,270 @@ public class RandomFileCopierTest {
         Map<String, File> destinationFilesByName = Stream.of(destinationFiles).collect(Collectors.toMap(File::getName, f -> f));
         sourceFilesByName.forEach((name, file) -> FileAssert.assertBinaryEquals(file, destinationFilesByName.get(name)));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void copyAllFilesFromNestedFoldersWithSeveralScanThreads() throws Exception {
+		Path nestedSourceFolder = Files.createTempDirectory("nestedSource");
+		Path subFolder = Files.createDirectories(nestedSourceFolder.resolve("first").resolve("second"));
+		for (File sourceFile : sourceFiles) {
+			Files.copy(sourceFile.toPath(), nestedSourceFolder.resolve("first").resolve(sourceFile.getName()));
+			Files.copy(sourceFile.toPath(), subFolder.resolve(sourceFile.getName()));
+		}
+
+		randomFileCopier = new RandomFileCopier(nestedSourceFolder, testFolderPath, 0);
+		randomFileCopier.setScanParallelism(4);
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(2 * sourceFiles.length, destinationFiles.length);
+	}
+
+	@Test
+	public void invalidScanParallelismThrowsException() throws Exception {
+		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 0);
+
+		assertThrows(IllegalArgumentException.class, () -> randomFileCopier.setScanParallelism(0));
+	}
+
+	@Test
+	public void hiddenFilesAreNotCopied() throws Exception {
+		Path sourceFolder = Files.createTempDirectory("hiddenSource");
+		Files.copy(sourceFiles[0].toPath(), sourceFolder.resolve("visible.txt"));
+		Files.copy(sourceFiles[1].toPath(), sourceFolder.resolve(".hidden.txt"));
+
+		randomFileCopier = new RandomFileCopier(sourceFolder, testFolderPath, 0);
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(1, destinationFiles.length);
+		assertEquals("visible.txt", destinationFiles[0].getName());
+		FileAssert.assertBinaryEquals(sourceFiles[0], destinationFiles[0]);
+	}
+
+	@Test
+	public void streamingSelectionLimitingTheNumber() throws Exception {
+		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 5);
+		randomFileCopier.setSelectionMode(SelectionMode.STREAMING);
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(5, destinationFiles.length);
+	}
+
+	@Test
+	public void streamingSelectionRegardingHalfBytesOfSources() throws Exception {
+		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 0);
+		randomFileCopier.setSelectionMode(SelectionMode.STREAMING);
+		long totalBytesInSource = Stream.of(sourceFiles).mapToLong(File::length).sum();
+
+		randomFileCopier.setMaxBytesToCopy(totalBytesInSource / 2);
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		long totalBytesCopiedInDestination = Stream.of(destinationFiles).mapToLong(File::length).sum();
+		assertTrue(destinationFiles.length > 0);
+		assertTrue(totalBytesCopiedInDestination <= totalBytesInSource / 2);
+	}
+
+	@Test
+	public void packSelectionReportsHowFullItIs() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 0, new PrintStream(output));
+		randomFileCopier.setSelectionMode(SelectionMode.PACK);
+		long totalBytesInSource = Stream.of(sourceFiles).mapToLong(File::length).sum();
+
+		randomFileCopier.setMaxBytesToCopy(totalBytesInSource / 2);
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		long totalBytesCopiedInDestination = Stream.of(destinationFiles).mapToLong(File::length).sum();
+		assertTrue(totalBytesCopiedInDestination <= totalBytesInSource / 2);
+		assertTrue(output.toString().matches("(?s).*Packed .+ of .+ \\(\\d+\\.\\d{2}% full\\)\n.*"));
+	}
+
+	Path stratifiedSourceFolder() throws IOException {
+		Path sourceFolder = Files.createTempDirectory("stratifiedSource");
+		Path many = Files.createDirectories(sourceFolder.resolve("many").resolve("nested"));
+		Path few = Files.createDirectories(sourceFolder.resolve("few"));
+		for (File sourceFile : sourceFiles)
+			Files.copy(sourceFile.toPath(), many.resolve("many-" + sourceFile.getName()));
+		Files.copy(sourceFiles[0].toPath(), few.resolve("few-" + sourceFiles[0].getName()));
+		Files.copy(sourceFiles[1].toPath(), few.resolve("few-" + sourceFiles[1].getName()));
+		return sourceFolder;
+	}
+
+	@Test
+	public void stratifiedSelectionTakesEvenlyFromTopLevelFolders() throws Exception {
+		randomFileCopier = new RandomFileCopier(stratifiedSourceFolder(), testFolderPath, 4);
+		randomFileCopier.setSelectionMode(SelectionMode.STRATIFIED);
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(4, destinationFiles.length);
+		assertEquals(2, Stream.of(destinationFiles).filter(file -> file.getName().startsWith("few-")).count());
+	}
+
+	@Test
+	public void stratifiedSelectionFromCatalogGroupsTheEligibleFiles() throws Exception {
+		randomFileCopier = new RandomFileCopier(stratifiedSourceFolder(), testFolderPath, 6);
+		randomFileCopier.setSelectionMode(SelectionMode.STRATIFIED);
+		randomFileCopier.setFileStrata(FileStrata.byDirectory(2));
+		randomFileCopier.setStrataAllocation(StrataAllocation.PROPORTIONAL);
+		randomFileCopier.setCatalogDirectory(Files.createTempDirectory("catalog"));
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(6, destinationFiles.length);
+		assertEquals(1, Stream.of(destinationFiles).filter(file -> file.getName().startsWith("few-")).count());
+	}
+
+	@Test
+	public void copyFromCatalogTwiceCopiesAllFiles() throws Exception {
+		Path catalogFolder = Files.createTempDirectory("catalog");
+		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 0);
+		randomFileCopier.setCatalogDirectory(catalogFolder);
+		randomFileCopier.randomCopy();
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(2 * sourceFiles.length, destinationFiles.length);
+		assertEquals(1, catalogFolder.toFile().listFiles().length);
+	}
+
+	@Test
+	public void copyFromLiveIndexCopiesFilteredFiles() throws Exception {
+		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 3);
+		randomFileCopier.setFilterExtensions("txt");
+		try (LiveSourceIndex liveIndex = LiveSourceIndex.start(tenTestFilesFolder)) {
+			randomFileCopier.setLiveIndex(liveIndex);
+			randomFileCopier.randomCopy();
+		}
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(3, destinationFiles.length);
+		assertTrue(Stream.of(destinationFiles).allMatch(file -> file.getName().endsWith(".txt")));
+	}
+
+	@Test
+	public void copyWithWorkersRenamesFilesWithTheSameName() throws Exception {
+		Path sourceFolder = Files.createTempDirectory("sameNames");
+		for (int i = 0; i < 8; i++) {
+			Path subFolder = Files.createDirectories(sourceFolder.resolve("folder" + i).resolve("sub"));
+			Files.write(subFolder.resolve("song.mp3"), new byte[100 + i]);
+		}
+		randomFileCopier = new RandomFileCopier(sourceFolder, testFolderPath, 0);
+		randomFileCopier.setCopyWorkers(4);
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(8, destinationFiles.length);
+		assertEquals(8 * 100 + 28, Stream.of(destinationFiles).mapToLong(File::length).sum());
+	}
+
+	@Test
+	public void invalidCopyWorkersThrowsException() {
+		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 0);
+		assertThrows(IllegalArgumentException.class, () -> randomFileCopier.setCopyWorkers(0));
+	}
+
+	@Test
+	public void nullCopyStrategyThrowsException() {
+		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 0);
+		assertThrows(IllegalArgumentException.class, () -> randomFileCopier.setCopyStrategy(null));
+	}
+
+	@Test
+	public void copyWithTransferStrategyCopiesAllFiles() throws Exception {
+		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 0);
+		randomFileCopier.setCopyStrategy(new TransferCopy());
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(sourceFiles.length, destinationFiles.length);
+		for (File destinationFile : destinationFiles)
+			FileAssert.assertBinaryEquals(tenTestFilesFolder.resolve(destinationFile.getName()).toFile(), destinationFile);
+	}
+
+	@Test
+	public void filesDeletedFromTheSourceAreSkipped() throws Exception {
+		Path sourceFolder = Files.createTempDirectory("deletedSource");
+		for (int i = 0; i < 4; i++)
+			Files.write(sourceFolder.resolve("file" + i + ".txt"), new byte[100]);
+		Path deletedFile = sourceFolder.resolve("file2.txt");
+		CopyStrategy filesCopy = new FilesCopy();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		randomFileCopier = new RandomFileCopier(sourceFolder, testFolderPath, 0, new PrintStream(output, true));
+		randomFileCopier.setCopyStrategy((source, target) -> {
+			Files.deleteIfExists(deletedFile);
+			filesCopy.copy(source, target);
+		});
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		Set<String> copiedNames = Stream.of(destinationFiles).map(File::getName).collect(Collectors.toSet());
+		assertEquals(new HashSet<>(Arrays.asList("file0.txt", "file1.txt", "file3.txt")), copiedNames);
+		assertTrue(output.toString().contains("Skipped " + deletedFile + ", it is no longer in the source"));
+		assertTrue(output.toString().contains("Done. 3 files, "));
+	}
+
+	@Test
+	public void copyWithHardLinksAppliesBytesLimitToFileSizes() throws Exception {
+		File minorFile = Stream.of(sourceFiles)
+							   .min((file1, file2) -> Long.valueOf(file1.length()).compareTo(file2.length())).get();
+		randomFileCopier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 0);
+		randomFileCopier.setCopyStrategy(CopyMode.HARDLINK.newStrategy());
+		randomFileCopier.setMaxBytesToCopy(minorFile.length());
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(1, destinationFiles.length);
+		FileAssert.assertBinaryEquals(minorFile, destinationFiles[0]);
+	}
+
+	@Test
+	public void copyToZipArchiveRenamesEntriesWithTheSameName() throws Exception {
+		Path sourceFolder = Files.createTempDirectory("sameNamesArchive");
+		for (int i = 0; i < 3; i++) {
+			Path subFolder = Files.createDirectories(sourceFolder.resolve("folder" + i).resolve("sub"));
+			Files.write(subFolder.resolve("song.mp3"), new byte[100]);
+		}
+		randomFileCopier = new RandomFileCopier(sourceFolder, testFolderPath, 0);
+		randomFileCopier.setArchiveFormat(ArchiveFormat.ZIP);
+		randomFileCopier.randomCopy();
+
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(1, destinationFiles.length);
+		assertEquals(RandomFileCopier.ARCHIVE_NAME + ".zip", destinationFiles[0].getName());
+		try (java.util.zip.ZipFile zip = new java.util.zip.ZipFile(destinationFiles[0])) {
+			Set<String> entryNames = zip.stream().map(java.util.zip.ZipEntry::getName).collect(Collectors.toSet());
+			assertEquals(new HashSet<>(Arrays.asList("song.mp3", "song(1).mp3", "song(2).mp3")), entryNames);
+		}
+	}
+
+	@Test
+	public void concurrentCopiersToTheSameDestinationDoNotOverwriteFiles() throws Exception {
+		List<Thread> copiers = new ArrayList<>();
+		List<Exception> failures = Collections.synchronizedList(new ArrayList<>());
+		for (int i = 0; i < 4; i++) {
+			RandomFileCopier copier = new RandomFileCopier(tenTestFilesFolder, testFolderPath, 0, null);
+			copier.setCopyWorkers(2);
+			copiers.add(new Thread(() -> {
+				try {
+					copier.randomCopy();
+				}
+				catch (Exception exception) {
+					failures.add(exception);
+				}
+			}));
+		}
+		copiers.forEach(Thread::start);
+		for (Thread copier : copiers)
+			copier.join();
+
+		assertEquals(Collections.emptyList(), failures);
+		destinationFiles = testFolderPath.toFile().listFiles();
+		assertEquals(4 * sourceFiles.length, destinationFiles.length);
+		long sourceBytes = Stream.of(sourceFiles).mapToLong(File::length).sum();
+		assertEquals(4 * sourceBytes, Stream.of(destinationFiles).mapToLong(File::length).sum());
+	}
+}
@@ -0,0 +1,109 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Compares the selection of random files with {@link RandomSelection} against the previous
+ * loop, that removed each drawn file from the {@link ArrayList} of candidates.
+ *
+ * @author Octavio Calleya
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.SingleShotTime)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 2)
+@Measurement (iterations = 5)
+@Fork (1)
+public class RandomSelectionBenchmark {
+
+	@Param ({"1000000"})
+	int candidates;
+
+	@Param ({"1000", "10000"})
+	int maxFiles;
+
+	List<FileEntry> filesInSource;
+	double[] weights;
+	double[] skewedWeights;
+	Random random = new Random(42);
+
+	@Setup (Level.Trial)
+	public void setUp() {
+		filesInSource = new ArrayList<>(candidates);
+		for (int i = 0; i < candidates; i++)
+			filesInSource.add(new FileEntry(Paths.get("/source/file" + i + ".txt"), 1024, 0, null, false));
+		weights = random.doubles(candidates).toArray();
+		skewedWeights = IntStream.range(0, candidates).mapToDouble(index -> Math.pow(0.5, index / 4.0)).toArray();
+	}
+
+	@Benchmark
+	public int[] randomSelection() {
+		return new RandomSelection(random).select(filesInSource.size(), index -> filesInSource.get(index).getSize(),
+												  maxFiles, Long.MAX_VALUE);
+	}
+
+	@Benchmark
+	public int[] randomSelectionOfAllCandidates() {
+		return new RandomSelection(random).select(filesInSource.size(), index -> filesInSource.get(index).getSize(),
+												  0, Long.MAX_VALUE);
+	}
+
+	@Benchmark
+	public int[] randomSelectionWithTightBudget() {
+		return new RandomSelection(random).select(filesInSource.size(), index -> index % 1000 == 0 ? 1 : 1024,
+												  maxFiles, 1024L * 10 + maxFiles / 2);
+	}
+
+	@Benchmark
+	public int[] weightedSelection() {
+		return new WeightedSelection(random).select(weights, index -> true, index -> filesInSource.get(index).getSize(),
+													maxFiles, Long.MAX_VALUE);
+	}
+
+	@Benchmark
+	public int[] weightedSelectionWithSkewedWeights() {
+		return new WeightedSelection(random).select(skewedWeights, index -> true, index -> filesInSource.get(index).getSize(),
+													maxFiles, Long.MAX_VALUE);
+	}
+
+	@Benchmark
+	public List<FileEntry> listRemovalSelection() {
+		List<FileEntry> candidatesLeft = new ArrayList<>(filesInSource);
+		List<FileEntry> selected = new ArrayList<>();
+		while (selected.size() < maxFiles) {
+			FileEntry randomSourceFile = candidatesLeft.get(random.nextInt(candidatesLeft.size()));
+			selected.add(randomSourceFile);
+			candidatesLeft.remove(randomSourceFile);
+		}
+		return selected;
+	}
+
+	public static void main(String... args) throws Exception {
+		Options options = new OptionsBuilder().include(RandomSelectionBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,156 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class RandomSelectionTest {
+
+	RandomSelection randomSelection = new RandomSelection(new Random(42));
+
+	@Test
+	public void selectsAllCandidatesWithoutLimits() {
+		int[] selected = randomSelection.select(1000, index -> 1, 0, Long.MAX_VALUE);
+
+		assertEquals(1000, selected.length);
+		assertEquals(1000, IntStream.of(selected).distinct().count());
+	}
+
+	@Test
+	public void selectionIsLimitedByNumberOfCandidates() {
+		int[] selected = randomSelection.select(1000, index -> 1, 10, Long.MAX_VALUE);
+
+		assertEquals(10, selected.length);
+		assertEquals(10, IntStream.of(selected).distinct().count());
+		assertTrue(IntStream.of(selected).allMatch(index -> index >= 0 && index < 1000));
+	}
+
+	@Test
+	public void selectionIsLimitedByBytes() {
+		int[] selected = randomSelection.select(1000, index -> index, 0, 5000);
+
+		long selectedBytes = IntStream.of(selected).sum();
+		assertTrue(selectedBytes <= 5000);
+		assertEquals(selected.length, IntStream.of(selected).distinct().count());
+	}
+
+	@Test
+	public void candidatesThatDoNotFitAreSkipped() {
+		int[] selected = randomSelection.select(100, index -> index == 7 ? 10 : 1000, 5, 500);
+
+		assertArrayEquals(new int[]{7}, selected);
+	}
+
+	@Test
+	public void noCandidatesSelectsNothing() {
+		assertEquals(0, randomSelection.select(0, index -> 1, 5, 100).length);
+	}
+
+	@Test
+	public void moreFilesThanCandidatesSelectsAll() {
+		int[] selected = randomSelection.select(10, index -> 1, 11, Long.MAX_VALUE);
+
+		assertEquals(10, selected.length);
+	}
+
+	@Test
+	public void sparseSelectionDrawsEachCandidateWithTheSameProbability() {
+		int[] timesSelected = new int[100];
+		for (int run = 0; run < 20000; run++)
+			for (int index : randomSelection.select(100, i -> 1, 5, Long.MAX_VALUE))
+				timesSelected[index]++;
+
+		for (int times : timesSelected)
+			assertTrue(times > 800 && times < 1200);
+	}
+
+	@Test
+	public void tightBudgetSelectsOnlyFromCandidatesThatFit() {
+		int[] selected = randomSelection.select(100_000, index -> index % 1000 == 0 ? index / 1000 + 1 : 1_000_000, 0, 60);
+
+		long selectedBytes = IntStream.of(selected).mapToLong(index -> index / 1000 + 1).sum();
+		assertTrue(IntStream.of(selected).allMatch(index -> index % 1000 == 0));
+		assertTrue(selectedBytes <= 60);
+		assertEquals(selected.length, IntStream.of(selected).distinct().count());
+		assertTrue(IntStream.range(0, 100).filter(small -> small + 1 <= 60 - selectedBytes)
+							.allMatch(small -> IntStream.of(selected).anyMatch(index -> index == small * 1000)));
+	}
+
+	@Test
+	public void tightBudgetDrawsEachFittingCandidateWithTheSameProbability() {
+		int[] timesSelected = new int[100];
+		for (int run = 0; run < 20000; run++)
+			for (int index : randomSelection.select(2100, i -> i < 100 ? 1 : 100, 0, 5))
+				timesSelected[index]++;
+
+		for (int times : timesSelected)
+			assertTrue(times > 800 && times < 1200);
+	}
+
+	@Test
+	public void packingFillsTheBytesAlmostCompletely() {
+		Random sizes = new Random(7);
+		long[] sizeOf = sizes.longs(100_000, 1, 100_000).toArray();
+		int[] selected = randomSelection.pack(sizeOf.length, index -> true, index -> sizeOf[index], 0, 100_000_000);
+
+		long selectedBytes = IntStream.of(selected).mapToLong(index -> sizeOf[index]).sum();
+		assertEquals(selected.length, IntStream.of(selected).distinct().count());
+		assertTrue(selectedBytes <= 100_000_000);
+		assertTrue(selectedBytes > 100_000_000 - 100);
+	}
+
+	@Test
+	public void packingReplacesCandidatesWhenTheGapIsSmallerThanAnyCandidate() {
+		int[] selected = randomSelection.pack(300, index -> true, index -> 1000 + index, 0, 10_000);
+
+		long selectedBytes = IntStream.of(selected).mapToLong(index -> 1000 + index).sum();
+		assertTrue(selectedBytes <= 10_000);
+		assertTrue(selectedBytes > 10_000 - 10);
+	}
+
+	@Test
+	public void packingSkipsCandidatesThatAreNotEligible() {
+		int[] selected = randomSelection.pack(1000, index -> index % 2 == 0, index -> index, 0, 10_000);
+
+		assertTrue(IntStream.of(selected).allMatch(index -> index % 2 == 0));
+		assertTrue(IntStream.of(selected).sum() <= 10_000);
+	}
+
+	@Test
+	public void packingAMillionCandidatesFillsTheBytes() {
+		int[] selected = randomSelection.pack(1_000_000, index -> true, index -> index % 1000 + 1, 0, 100_000_000L);
+
+		assertEquals(100_000_000L, IntStream.of(selected).mapToLong(index -> index % 1000 + 1).sum());
+		assertEquals(selected.length, IntStream.of(selected).distinct().count());
+	}
+
+	@Test
+	public void selectingAMillionCandidatesSelectsThemAll() {
+		int[] selected = randomSelection.select(1_000_000, index -> 1, 0, Long.MAX_VALUE);
+
+		assertEquals(1_000_000, selected.length);
+		assertEquals(1_000_000, IntStream.of(selected).distinct().count());
+	}
+}
@@ -0,0 +1,134 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class ReservoirSelectionTest {
+
+	Random random = new Random(42);
+	ReservoirSelection reservoirSelection;
+
+	List<FileEntry> entriesOfSize(int numberOfEntries, long size) {
+		return IntStream.range(0, numberOfEntries)
+						.mapToObj(i -> new FileEntry(Paths.get("file" + i + ".txt"), size, 0, null, false))
+						.collect(Collectors.toList());
+	}
+
+	@Test
+	public void selectionIsLimitedByNumberOfFiles() {
+		reservoirSelection = new ReservoirSelection(50, Long.MAX_VALUE, random);
+		entriesOfSize(10000, 10).forEach(reservoirSelection);
+
+		List<FileEntry> selected = reservoirSelection.getSelectedFiles();
+		assertEquals(50, selected.size());
+		assertEquals(50, new HashSet<>(selected).size());
+		assertEquals(500, reservoirSelection.getSelectedBytes());
+	}
+
+	@Test
+	public void selectionIsLimitedByBytes() {
+		reservoirSelection = new ReservoirSelection(0, 1000, random);
+		List<FileEntry> entries = new ArrayList<>(entriesOfSize(5000, 30));
+		entries.add(new FileEntry(Paths.get("big.txt"), 1001, 0, null, false));
+		entries.forEach(reservoirSelection);
+
+		List<FileEntry> selected = reservoirSelection.getSelectedFiles();
+		assertEquals(33, selected.size());
+		assertEquals(990, reservoirSelection.getSelectedBytes());
+		assertEquals(990, selected.stream().mapToLong(FileEntry::getSize).sum());
+	}
+
+	@Test
+	public void entriesOfMixedSizesAreSelectedLikeInARandomOrder() {
+		int onlyTheLargest = 0;
+		for (int run = 0; run < 6000; run++) {
+			reservoirSelection = new ReservoirSelection(0, 10, random);
+			reservoirSelection.accept(new FileEntry(Paths.get("six"), 6, 0, null, false));
+			reservoirSelection.accept(new FileEntry(Paths.get("five"), 5, 0, null, false));
+			reservoirSelection.accept(new FileEntry(Paths.get("other five"), 5, 0, null, false));
+
+			long selectedBytes = reservoirSelection.getSelectedBytes();
+			assertTrue(selectedBytes == 6 || selectedBytes == 10);
+			if (selectedBytes == 6)
+				onlyTheLargest++;
+		}
+		assertEquals(2000, onlyTheLargest, 200);
+	}
+
+	@Test
+	public void noEntryLeftOutFitsInTheBytesRemaining() {
+		for (int run = 0; run < 20; run++) {
+			reservoirSelection = new ReservoirSelection(0, 500, random);
+			List<FileEntry> entries = IntStream.range(0, 5000)
+											   .mapToObj(i -> new FileEntry(Paths.get("file" + i), 1 + random.nextInt(100), 0, null, false))
+											   .collect(Collectors.toList());
+			entries.forEach(reservoirSelection);
+
+			Set<FileEntry> selected = new HashSet<>(reservoirSelection.getSelectedFiles());
+			long bytesRemaining = 500 - reservoirSelection.getSelectedBytes();
+			assertTrue(bytesRemaining >= 0);
+			assertTrue(entries.stream().filter(entry -> ! selected.contains(entry)).allMatch(entry -> entry.getSize() > bytesRemaining));
+			assertTrue(reservoirSelection.reservoirSize() < 1000);
+		}
+	}
+
+	@Test
+	public void reservoirKeepsFewEntriesLimitedByNumber() {
+		reservoirSelection = new ReservoirSelection(10, Long.MAX_VALUE, random);
+		for (int i = 0; i < 100_000; i++)
+			reservoirSelection.accept(new FileEntry(Paths.get("file" + i), 1 + random.nextInt(1000), 0, null, false));
+
+		assertEquals(10, reservoirSelection.getSelectedFiles().size());
+		assertTrue(reservoirSelection.reservoirSize() < 1000);
+	}
+
+	@Test
+	public void allEntriesAreSelectedWithoutLimits() {
+		reservoirSelection = new ReservoirSelection(0, Long.MAX_VALUE, random);
+		List<FileEntry> entries = entriesOfSize(100, 1);
+		entries.forEach(reservoirSelection);
+
+		assertEquals(new HashSet<>(entries), new HashSet<>(reservoirSelection.getSelectedFiles()));
+	}
+
+	@Test
+	public void eachEntryIsSelectedWithTheSameProbability() {
+		int[] timesSelected = new int[10];
+		for (int run = 0; run < 10000; run++) {
+			reservoirSelection = new ReservoirSelection(2, Long.MAX_VALUE, random);
+			entriesOfSize(10, 1).forEach(reservoirSelection);
+			reservoirSelection.getSelectedFiles().forEach(entry -> {
+				String name = entry.getName();
+				timesSelected[Integer.parseInt(name.substring(4, name.indexOf('.')))]++;
+			});
+		}
+
+		for (int times : timesSelected)
+			assertTrue(times > 1800 && times < 2200);
+	}
+}
@@ -0,0 +1,142 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import com.transgressoft.commons.util.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class StratifiedSelectionTest {
+
+	Random random = new Random(42);
+	FileStrata strata;
+	long[] sizes;
+
+	@BeforeEach
+	public void setUp() {
+		strata = FileStrata.byDirectory(1);
+		sizes = new long[112];
+		addStratum("large", 0, 100, 1);
+		addStratum("medium", 100, 10, 10);
+		addStratum("small", 110, 2, 100);
+	}
+
+	void addStratum(String directory, int firstFile, int files, long size) {
+		List<FileEntry> entries = new ArrayList<>();
+		for (int file = 0; file < files; file++) {
+			entries.add(new FileEntry(Paths.get(directory, "file" + file), size, 0, null, false));
+			sizes[firstFile + file] = size;
+		}
+		strata.addFiles(firstFile, entries, strata.stratum(directory));
+	}
+
+	int[] filesByStratum(int[] selected) {
+		int[] filesByStratum = new int[strata.size()];
+		for (int index : selected)
+			filesByStratum[strata.stratumOf(index)]++;
+		return filesByStratum;
+	}
+
+	int[] select(StrataAllocation allocation, int maxFiles, long maxBytes) {
+		return new StratifiedSelection(random, allocation).select(strata, index -> true, index -> sizes[index], maxFiles, maxBytes);
+	}
+
+	@Test
+	public void evenAllocationSharesWhatSmallStrataCantTake() {
+		int[] selected = select(StrataAllocation.EVEN, 30, Long.MAX_VALUE);
+
+		assertEquals(30, IntStream.of(selected).distinct().count());
+		assertArrayEquals(new int[]{18, 10, 2}, filesByStratum(selected));
+	}
+
+	@Test
+	public void proportionalAllocationFollowsTheNumberOfFiles() {
+		int[] selected = select(StrataAllocation.PROPORTIONAL, 56, Long.MAX_VALUE);
+
+		assertEquals(56, selected.length);
+		int[] filesByStratum = filesByStratum(selected);
+		assertEquals(50, filesByStratum[0], 1);
+		assertEquals(5, filesByStratum[1], 1);
+		assertEquals(1, filesByStratum[2], 1);
+	}
+
+	@Test
+	public void bytesAreSharedAmongStrata() {
+		int[] selected = select(StrataAllocation.EVEN, 0, 150);
+
+		int[] filesByStratum = filesByStratum(selected);
+		assertEquals(0, filesByStratum[2]);
+		assertTrue(filesByStratum[1] >= 5);
+		assertEquals(150, IntStream.of(selected).mapToLong(index -> sizes[index]).sum());
+		assertEquals(selected.length, IntStream.of(selected).distinct().count());
+
+		selected = select(StrataAllocation.PROPORTIONAL, 0, 200);
+		assertArrayEquals(new int[]{50, 5, 1}, filesByStratum(selected));
+		assertEquals(200, IntStream.of(selected).mapToLong(index -> sizes[index]).sum());
+	}
+
+	@Test
+	public void fewerFilesThanStrataGoToRandomStrata() {
+		int[] timesSelected = new int[strata.size()];
+		for (int selection = 0; selection < 3000; selection++)
+			timesSelected[strata.stratumOf(select(StrataAllocation.EVEN, 1, Long.MAX_VALUE)[0])]++;
+
+		for (int times : timesSelected)
+			assertEquals(1000, times, 100);
+	}
+
+	@Test
+	public void ineligibleCandidatesAreNotSelected() {
+		int[] selected = new StratifiedSelection(random, StrataAllocation.EVEN)
+				.select(strata, index -> index % 2 == 0, index -> sizes[index], 0, Long.MAX_VALUE);
+
+		assertEquals(56, selected.length);
+		assertTrue(IntStream.of(selected).allMatch(index -> index % 2 == 0));
+	}
+
+	@Test
+	public void onlyTheDrawnCandidatesAreRead() {
+		int[] reads = new int[1];
+		int[] selected = new StratifiedSelection(random, StrataAllocation.EVEN)
+				.select(strata, index -> true, index -> {
+					reads[0]++;
+					return sizes[index];
+				}, 3, Long.MAX_VALUE);
+
+		assertArrayEquals(new int[]{1, 1, 1}, filesByStratum(selected));
+		assertEquals(3, reads[0]);
+	}
+
+	@Test
+	public void eligibilityIsTestedOnceForEachCandidate() {
+		int[] tests = new int[sizes.length];
+		new StratifiedSelection(random, StrataAllocation.EVEN).select(strata, index -> {
+			tests[index]++;
+			return index % 3 != 0;
+		}, index -> sizes[index], 0, 150);
+
+		assertTrue(IntStream.of(tests).allMatch(times -> times <= 1));
+	}
+}
@@ -0,0 +1,125 @@
+/******************************************************************************
+ * Copyright 2016-2018 Octavio Calleya                                        *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ * http://www.apache.org/licenses/LICENSE-2.0                                 *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package com.transgressoft.randomfilecopier;
+
+import org.junit.jupiter.api.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Octavio Calleya
+ */
+public class WeightedSelectionTest {
+
+	Random random = new Random(42);
+	WeightedSelection weightedSelection = new WeightedSelection(random);
+
+	@Test
+	public void aliasTableDrawsProportionallyToTheWeights() {
+		AliasTable aliasTable = new AliasTable(new double[]{1, 0, 3, 6});
+		int[] timesDrawn = new int[4];
+		for (int draw = 0; draw < 100_000; draw++)
+			timesDrawn[aliasTable.sample(random)]++;
+
+		assertEquals(0, timesDrawn[1]);
+		assertEquals(10_000, timesDrawn[0], 500);
+		assertEquals(30_000, timesDrawn[2], 1000);
+		assertEquals(60_000, timesDrawn[3], 1000);
+	}
+
+	@Test
+	public void aliasTableRejectsInvalidWeights() {
+		assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[]{1, - 1}));
+		assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[]{0, 0}));
+	}
+
+	@Test
+	public void weightTreeDrawsProportionallyToTheWeightsLeft() {
+		WeightTree weightTree = new WeightTree(new double[]{1, 0, 3, 6, 5});
+		weightTree.remove(4);
+		int[] timesDrawn = new int[5];
+		for (int draw = 0; draw < 100_000; draw++)
+			timesDrawn[weightTree.sample(random)]++;
+
+		assertEquals(0, timesDrawn[1]);
+		assertEquals(0, timesDrawn[4]);
+		assertEquals(10_000, timesDrawn[0], 500);
+		assertEquals(30_000, timesDrawn[2], 1000);
+		assertEquals(60_000, timesDrawn[3], 1000);
+
+		weightTree.remove(0);
+		weightTree.remove(2);
+		weightTree.remove(3);
+		assertEquals(- 1, weightTree.sample(random));
+	}
+
+	@Test
+	public void skewedWeightsAreAllSelectedInOrderOfWeight() {
+		double[] weights = IntStream.range(0, 4000).mapToDouble(index -> Math.pow(0.5, index / 4.0)).toArray();
+		int[] selected = weightedSelection.select(weights, index -> true, index -> 1, 0, Long.MAX_VALUE);
+
+		assertEquals(4000, IntStream.of(selected).distinct().count());
+		assertTrue(IntStream.of(selected).limit(100).allMatch(index -> index < 200));
+	}
+
+	@Test
+	public void selectsAllCandidatesWithWeightWithoutRepetition() {
+		double[] weights = IntStream.range(0, 1000).mapToDouble(index -> index % 10 == 0 ? 0 : index).toArray();
+		int[] selected = weightedSelection.select(weights, index -> true, index -> 1, 0, Long.MAX_VALUE);
+
+		assertEquals(900, selected.length);
+		assertEquals(900, IntStream.of(selected).distinct().count());
+		assertTrue(IntStream.of(selected).noneMatch(index -> index % 10 == 0));
+	}
+
+	@Test
+	public void selectionIsLimitedByNumberAndBytes() {
+		double[] weights = new double[1000];
+		Arrays.fill(weights, 1);
+
+		assertEquals(10, weightedSelection.select(weights, index -> true, index -> 1, 10, Long.MAX_VALUE).length);
+		int[] selected = weightedSelection.select(weights, index -> index % 2 == 0, index -> index, 0, 5000);
+		assertTrue(IntStream.of(selected).sum() <= 5000);
+		assertTrue(IntStream.of(selected).allMatch(index -> index % 2 == 0));
+	}
+
+	@Test
+	public void heavierCandidatesAreSelectedFirst() {
+		double[] weights = new double[100];
+		Arrays.fill(weights, 1);
+		weights[7] = 1000;
+		int timesFirst = 0;
+		for (int run = 0; run < 1000; run++)
+			if (weightedSelection.select(weights, index -> true, index -> 1, 5, Long.MAX_VALUE)[0] == 7)
+				timesFirst++;
+
+		assertTrue(timesFirst > 870 && timesFirst < 950);
+	}
+
+	@Test
+	public void selectingAMillionWeightedCandidatesIsFast() {
+		double[] weights = new Random(7).doubles(1_000_000).toArray();
+		assertTimeout(Duration.ofSeconds(10), () -> {
+			int[] selected = weightedSelection.select(weights, index -> true, index -> 1, 0, Long.MAX_VALUE);
+			assertEquals(1_000_000, selected.length);
+		});
+	}
+}